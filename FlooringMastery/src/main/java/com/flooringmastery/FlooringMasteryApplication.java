@@ -1,20 +1,35 @@
 package com.flooringmastery;
 
+import java.io.IOException;
+
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import com.flooringmastery.controller.FlooringMasteryController;
+import com.flooringmastery.server.FlooringMasteryServer;
 
 public class FlooringMasteryApplication 
 {
 
-    public static void main(String[] args) throws InterruptedException 
+    public static void main(String[] args) throws InterruptedException, IOException 
     {
 
         AnnotationConfigApplicationContext appContext = new AnnotationConfigApplicationContext();
         appContext.scan("com.flooringmastery");
         appContext.refresh();
+        // Closing the context lets beans such as the audit writer finish their work, also when the program is interrupted.
+        appContext.registerShutdownHook();
+
+        // With --server [port], store terminals use the orders over HTTP instead of this console, until the program is stopped.
+        if (args.length > 0 && args[0].equals("--server")) 
+        {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : FlooringMasteryServer.DEFAULT_PORT;
+            appContext.getBean("flooringMasteryServer", FlooringMasteryServer.class).run(port);
+            appContext.close();
+            return;
+        }
 
         FlooringMasteryController controller = appContext.getBean("flooringMasteryController", FlooringMasteryController.class);
         controller.run();
+        appContext.close();
     }
 }
\ No newline at end of file
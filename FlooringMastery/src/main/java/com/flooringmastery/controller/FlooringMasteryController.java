@@ -6,17 +6,22 @@ import org.springframework.stereotype.Component;
 
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
 import com.flooringmastery.dto.Order;
 import com.flooringmastery.dto.Product;
 import com.flooringmastery.dto.State;
 import com.flooringmastery.service.FlooringMasteryService;
 import com.flooringmastery.service.exception.InvalidDateException;
+import com.flooringmastery.service.exception.InvalidImportFileException;
 import com.flooringmastery.service.exception.InvalidStateException;
 import com.flooringmastery.service.exception.NoSuchOrderException;
 import com.flooringmastery.service.exception.NoSuchProductException;
 import com.flooringmastery.view.FlooringMasteryView;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
@@ -71,12 +76,15 @@ public class FlooringMasteryController
                         exportData();
                         break;
                     case 6:
+                        importOrders();
+                        break;
+                    case 7:
                         isInitialized = false;
                         break;
                 }
             } 
             catch (NoOrdersOnDateException | InvalidDateException | NoSuchOrderException | InvalidStateException |
-                     NoSuchProductException e) 
+                     NoSuchProductException | StaleOrdersFileException | InvalidImportFileException e) 
             {
                 view.displayErrorMessage(e.getMessage());
             } 
@@ -91,14 +99,16 @@ public class FlooringMasteryController
 
     private void initializeProgram() throws FlooringMasteryPersistenceException 
     {
+        view.displayRecoveryResult(service.recoverOrders());
         service.loadStatesAndProducts();
+        service.archiveOldOrders();
+        service.loadOrderIndex();
     }
 
     private void displayOrders() throws FlooringMasteryPersistenceException, NoOrdersOnDateException 
     {
         LocalDate orderDate = view.retrieveOrderDate();
-        service.setOrdersFile(orderDate, Action.DISPLAY);
-        List<Order> ordersList = service.retrieveOrdersList(Action.DISPLAY); // throws exception if no orders found for date
+        List<Order> ordersList = service.retrieveOrdersList(orderDate, Action.DISPLAY); // throws exception if no orders found for date
         view.displayViewAllOrdersBanner(orderDate);
         view.displayOrders(ordersList);
     }
@@ -111,12 +121,12 @@ public class FlooringMasteryController
 
         // Order date must be in the future when adding new orders, will throw Exception if it is not.
         service.validateDate(orderDate);
-        // Assigning order to correct file, creates an Orders file for the specified date if one does not exist.
-        service.setOrdersFile(orderDate, Action.ADD);
+        // Creates an Orders file for the specified date if one does not exist.
+        service.retrieveOrdersList(orderDate, Action.ADD);
 
         Order newOrder = new Order();
         // Setting order's order number
-        newOrder.setOrderNumber(service.generateOrderNumber());
+        newOrder.setOrderNumber(service.generateOrderNumber(orderDate));
 
         // Setting order's customer name, state, tax rate, product type, area, cost per sq. ft., and labor cost per sq. ft.
         List<State> statesList = service.retrieveStatesList();
@@ -139,35 +149,32 @@ public class FlooringMasteryController
         } 
         else 
         {
-            // If ordersList size is 0 that means this was going to be the first order added to the loaded Orders file, so now
-            // that the order is aborted, we must delete that file, otherwise we would leave an empty Orders file in the program.
-            List<Order> ordersList = service.retrieveOrdersList(Action.ADD);
-            
-            if (ordersList.size() == 0) 
-            {
-                service.deleteEmptyFile();
-            }
+            // If this was going to be the first order of the Orders file, now that the order is aborted we must delete that
+            // file, otherwise we would leave an empty Orders file in the program. The file is kept if it has orders, which
+            // another session may have added meanwhile.
+            service.deleteEmptyFile(orderDate);
             view.displayOrderCanceledBanner();
         }
     }
 
     private void editOrder() throws NoOrdersOnDateException, FlooringMasteryPersistenceException, NoSuchOrderException,
-            InvalidStateException, NoSuchProductException 
+            InvalidStateException, NoSuchProductException, StaleOrdersFileException 
     {
         view.displayEditOrderBanner();
         LocalDate date = view.retrieveOrderDate();
-        service.setOrdersFile(date, Action.EDIT); // will throw exception if Orders file does not exist for specified date
-
-        service.retrieveOrdersList(Action.EDIT); // will throw exception if no orders for that date
+        // will throw exception if Orders file does not exist for specified date, or it has no orders
+        service.retrieveOrdersList(date, Action.EDIT);
 
         int orderNumber = view.retrieveOrderNumber(Action.EDIT);
-        Order orderToEdit = service.retrieveOrder(orderNumber); // will throw exception if no order is found with that number
-
-        // Creating an order with orderToEdit's information before it's edited, so we can compare and see if order was edited.
-        Order orderToCompare = new Order(orderToEdit.getOrderNumber(), orderToEdit.getCustomerName(),
-                orderToEdit.getState(), orderToEdit.getTaxRate(), orderToEdit.getProductType(), orderToEdit.getArea(),
-                orderToEdit.getCostPerSquareFoot(), orderToEdit.getLaborCostPerSquareFoot(), orderToEdit.getMaterialCost(),
-                orderToEdit.getLaborCost(), orderToEdit.getTax(), orderToEdit.getTotal());
+        Order orderToCompare = service.retrieveOrder(date, orderNumber); // will throw exception if no order is found with that number
+
+        // Editing a copy of the order, so the loaded order is left untouched if the user cancels the edit, and we can compare
+        // and see if order was edited.
+        Order orderToEdit = new Order(orderToCompare.getOrderNumber(), orderToCompare.getCustomerName(),
+                orderToCompare.getState(), orderToCompare.getTaxRate(), orderToCompare.getProductType(), orderToCompare.getArea(),
+                orderToCompare.getCostPerSquareFoot(), orderToCompare.getLaborCostPerSquareFoot(),
+                orderToCompare.getMaterialCost(), orderToCompare.getLaborCost(), orderToCompare.getTax(),
+                orderToCompare.getTotal());
         List<State> statesList = service.retrieveStatesList();
         List<Product> productsList = service.retrieveProductsList();
         orderToEdit = view.retrieveOrderInformation(statesList, productsList, Action.EDIT, orderToEdit);
@@ -188,7 +195,7 @@ public class FlooringMasteryController
             boolean informationIsConfirmed = view.confirmAction(orderToEdit, Action.EDIT);
             if (informationIsConfirmed) 
             {
-                service.storeEditedOrder(orderToEdit, date);
+                service.storeEditedOrder(orderToCompare, orderToEdit, date);
                 view.displayEditOrderSuccessBanner();
             } 
             else 
@@ -198,28 +205,25 @@ public class FlooringMasteryController
         }
     }
 
-    private void removeOrder() throws FlooringMasteryPersistenceException, NoOrdersOnDateException, NoSuchOrderException 
+    private void removeOrder() throws FlooringMasteryPersistenceException, NoOrdersOnDateException, NoSuchOrderException,
+            StaleOrdersFileException 
     {
         view.displayRemoveOrderBanner();
         LocalDate dateChoice = view.retrieveOrderDate();
-        service.setOrdersFile(dateChoice, Action.REMOVE); // will throw exception if Orders file does not exist for specified date
-
-        List<Order> ordersList = service.retrieveOrdersList(Action.REMOVE); // will throw exception if no orders for that date
+        // will throw exception if Orders file does not exist for specified date, or it has no orders
+        service.retrieveOrdersList(dateChoice, Action.REMOVE);
 
         int orderNumber = view.retrieveOrderNumber(Action.REMOVE);
-        Order orderToRemove = service.retrieveOrder(orderNumber);
+        Order orderToRemove = service.retrieveOrder(dateChoice, orderNumber);
 
         boolean deletionIsConfirmed = view.confirmAction(orderToRemove, Action.REMOVE);
 
         if (deletionIsConfirmed) 
         {
             service.removeOrder(orderToRemove, dateChoice);
-            // If ordersList size is 0 after order removal, we've removed all orders for that date and can delete the
-            // loaded Orders file.
-            if (ordersList.size() == 0) 
-            {
-                service.deleteEmptyFile();
-            }
+            // If there are no orders left after order removal, we've removed all orders for that date and the Orders file
+            // is deleted.
+            service.deleteEmptyFile(dateChoice);
             view.displayRemoveOrderSuccessBanner();
         } 
         else 
@@ -228,9 +232,18 @@ public class FlooringMasteryController
         }
     }
 
-    private void exportData() throws FlooringMasteryPersistenceException, NoOrdersOnDateException 
+    private void importOrders() throws FlooringMasteryPersistenceException, InvalidImportFileException 
+    {
+        view.displayImportOrdersBanner();
+        File importFile = new File(view.retrieveImportFilePath());
+        ImportResult result = service.importOrders(importFile);
+        view.displayImportResult(result);
+    }
+
+    private void exportData() throws FlooringMasteryPersistenceException 
     {
-        service.exportData();
-        view.displayExportDataSuccessBanner();
+        ExportCompression compression = view.retrieveExportCompression();
+        service.exportData(compression);
+        view.displayExportDataSuccessBanner(compression);
     }
 }
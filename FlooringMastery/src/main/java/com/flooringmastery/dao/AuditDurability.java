@@ -0,0 +1,19 @@
+package com.flooringmastery.dao;
+
+/**
+ * How long writing an audit entry waits for the entry to reach the audit file.
+ */
+public enum AuditDurability 
+{
+
+    /**
+     * Returns as soon as the entry is queued; the audit writer flushes entries in batches.
+     */
+    ASYNC,
+
+    /**
+     * Waits until the batch holding the entry has been flushed to the audit file.
+     */
+    SYNC_ON_COMMIT
+    
+}
@@ -0,0 +1,93 @@
+package com.flooringmastery.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue of audit entries, written to by any number of threads and read by the single audit writer
+ * thread. Every slot carries a sequence number telling producers when it is free and the consumer when it is filled, so
+ * neither side ever takes a lock (the bounded queue design by Dmitry Vyukov).
+ */
+final class AuditRingBuffer<E>
+{
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // only ever written by the consumer
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    AuditRingBuffer(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+        {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element if there is room for it.
+     *
+     * @return the position of the element in the queue, counting from 0 since the queue was created, or -1 if it is full
+     */
+    long offer(E element)
+    {
+        long position = tail.get();
+        while (true)
+        {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0)
+            {
+                if (tail.compareAndSet(position, position + 1))
+                {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return position;
+                }
+                position = tail.get();
+            }
+            else if (difference < 0)
+            {
+                return -1;
+            }
+            else
+            {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element. Must only be called from the consumer thread.
+     *
+     * @return the oldest element, or null if the queue is empty
+     */
+    E poll()
+    {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1)
+        {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    boolean isEmpty()
+    {
+        return tail.get() == head;
+    }
+}
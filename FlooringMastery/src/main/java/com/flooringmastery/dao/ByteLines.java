@@ -0,0 +1,144 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the lines of a file through a {@link FileChannel} into a single buffer the size of the file, and splits it into
+ * lines on the bytes themselves. Each line is a {@link CharSequence} over the bytes it was read from, so a {@link CsvCursor}
+ * parses its fields straight from the buffer and only the text fields it keeps ever become Strings. Lines holding anything
+ * but ASCII are decoded to a String, with the same charset the files are written with. Lines end at \n or \r\n, like
+ * Scanner.nextLine, and a last empty line after the final line break is not returned.
+ */
+final class ByteLines
+{
+
+    private static final int MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+    private ByteLines()
+    {
+    }
+
+    /**
+     * @param skipFirstLine true to leave out the first line, such as the header of an Orders file
+     */
+    static List<CharSequence> read(File file, boolean skipFirstLine) throws IOException
+    {
+        byte[] bytes;
+        int length;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > MAX_FILE_SIZE)
+            {
+                throw new IOException(file + " is too large to read.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+            {
+                // Reading until the buffer is full or the file ends.
+            }
+            bytes = buffer.array();
+            length = buffer.position();
+        }
+        return split(bytes, length, skipFirstLine);
+    }
+
+    private static List<CharSequence> split(byte[] bytes, int length, boolean skipFirstLine)
+    {
+        List<CharSequence> lines = new ArrayList<>();
+        Charset charset = Charset.defaultCharset();
+        boolean skipLine = skipFirstLine;
+        int lineStart = 0;
+        boolean ascii = true;
+        for (int i = 0; i < length; i++)
+        {
+            byte b = bytes[i];
+            if (b == '\n')
+            {
+                if (!skipLine)
+                {
+                    lines.add(line(bytes, lineStart, i, ascii, charset));
+                }
+                skipLine = false;
+                lineStart = i + 1;
+                ascii = true;
+            }
+            else if (b < 0)
+            {
+                ascii = false;
+            }
+        }
+        if (lineStart < length && !skipLine)
+        {
+            lines.add(line(bytes, lineStart, length, ascii, charset));
+        }
+        return lines;
+    }
+
+    private static CharSequence line(byte[] bytes, int start, int end, boolean ascii, Charset charset)
+    {
+        if (end > start && bytes[end - 1] == '\r')
+        {
+            end--;
+        }
+        return ascii ? new Line(bytes, start, end - start) : new String(bytes, start, end - start, charset);
+    }
+
+    /**
+     * ASCII text read from a byte array, one byte per character.
+     */
+    private static final class Line implements CharSequence
+    {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        private Line(byte[] bytes, int offset, int length)
+        {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index)
+        {
+            if (index < 0 || index >= length)
+            {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) bytes[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            if (start < 0 || end > length || start > end)
+            {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return new Line(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString()
+        {
+            // Every byte is ASCII, so ISO-8859-1 turns it into the same character with a plain copy.
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.flooringmastery.dao;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Catalog;
+
+/**
+ * Watches the folder of the Taxes and Products files and, when either of them changes, reads both again on its own thread
+ * and publishes the new catalog. A catalog whose files cannot be read or do not pass validation is not published, so the
+ * program keeps pricing with the previous one.
+ */
+class CatalogReloader implements AutoCloseable
+{
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogReloader.class.getName());
+    // Editors often save a file in several writes; waiting this long after the last change reads the finished file.
+    private static final long SETTLE_MILLIS = 200;
+
+    /**
+     * Reads and validates a new catalog from the Taxes and Products files.
+     */
+    interface CatalogSource
+    {
+        Catalog load() throws FlooringMasteryPersistenceException;
+    }
+
+    private final Path folder;
+    private final Set<String> watchedFileNames;
+    private final CatalogSource source;
+    private final Consumer<Catalog> publisher;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile long lastReloadNanos;
+
+    CatalogReloader(Path folder, Set<String> watchedFileNames, CatalogSource source, Consumer<Catalog> publisher)
+            throws IOException
+    {
+        this.folder = folder;
+        this.watchedFileNames = watchedFileNames;
+        this.source = source;
+        this.publisher = publisher;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::watch, "catalog-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return how long the last reload took, from noticing the change to publishing the new catalog
+     */
+    long getLastReloadNanos()
+    {
+        return lastReloadNanos;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        watchService.close();
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                if (!takeWatchedChange(watchService.take()))
+                {
+                    continue;
+                }
+                long changeNoticed = System.nanoTime();
+
+                // Letting the writes to the file finish before reading it.
+                WatchKey laterChanges;
+                while ((laterChanges = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                {
+                    takeWatchedChange(laterChanges);
+                }
+                reload(changeNoticed);
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            // The reloader was closed.
+        }
+    }
+
+    private boolean takeWatchedChange(WatchKey key)
+    {
+        boolean watchedFileChanged = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            Object changed = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (changed instanceof Path && watchedFileNames.contains(((Path) changed).getFileName().toString())))
+            {
+                watchedFileChanged = true;
+            }
+        }
+        key.reset();
+        return watchedFileChanged;
+    }
+
+    private void reload(long changeNoticed)
+    {
+        try
+        {
+            Catalog catalog = source.load();
+            publisher.accept(catalog);
+            lastReloadNanos = System.nanoTime() - changeNoticed;
+            LOGGER.info(() -> "Reloaded the Taxes and Products files from " + folder + " as catalog version "
+                    + catalog.getVersion() + " in " + TimeUnit.NANOSECONDS.toMillis(lastReloadNanos) + " ms.");
+        }
+        catch (FlooringMasteryPersistenceException | RuntimeException e)
+        {
+            LOGGER.log(Level.WARNING, "The Taxes or Products file was changed but could not be loaded; still using the "
+                    + "previous catalog.", e);
+        }
+    }
+}
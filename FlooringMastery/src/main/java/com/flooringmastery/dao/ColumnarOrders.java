@@ -0,0 +1,458 @@
+package com.flooringmastery.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * The binary format the orders of older dates are archived in, in place of the text of their Orders file. Each field of
+ * the orders is stored as a column of its own: order numbers as the difference from the number before, customer names as
+ * text, states and product types as a dictionary of their distinct values plus one code per order, and every amount as
+ * fixed-point numbers, i.e. the unscaled long value with its scale, stored once for the whole column when every order has
+ * the same scale. Numbers are written as variable-length integers, one to three bytes for most amounts of an order. A small
+ * header holds the number of orders and the length and CRC-32 checksum of every column, so a reader can read only the
+ * columns it needs and tell when a column is damaged.
+ * <p>
+ * An archived file keeps the name of the Orders file it replaces and starts with a magic number no text Orders file can
+ * start with, so both formats are told apart by their first bytes. Amounts whose unscaled value does not fit in a long
+ * cannot be archived; their dates stay in the text format.
+ */
+final class ColumnarOrders
+{
+
+    enum Column
+    {
+        ORDER_NUMBER, CUSTOMER_NAME, STATE, TAX_RATE, PRODUCT_TYPE, AREA, COST_PER_SQUARE_FOOT, LABOR_COST_PER_SQUARE_FOOT,
+        MATERIAL_COST, LABOR_COST, TAX, TOTAL
+    }
+
+    // The columns needed to add up the orders of a date per state and product, as a DailyRollup does.
+    static final Set<Column> TOTALS_COLUMNS = EnumSet.of(Column.STATE, Column.PRODUCT_TYPE, Column.AREA,
+            Column.MATERIAL_COST, Column.LABOR_COST, Column.TAX, Column.TOTAL);
+
+    private static final int MAGIC = 0x464D4331; // "FMC1"
+    private static final Column[] COLUMNS = Column.values();
+    // Magic, order count, column count, a length and checksum per column, and the checksum of the header itself.
+    private static final int HEADER_SIZE = 4 + 4 + 4 + COLUMNS.length * 8 + 4;
+    private static final byte UNIFORM_SCALE = 0;
+    private static final byte SCALE_PER_ORDER = 1;
+
+    private ColumnarOrders()
+    {
+    }
+
+    /**
+     * @return true if the file holds orders in this format rather than as text
+     */
+    static boolean isColumnar(File ordersFile) throws IOException
+    {
+        if (ordersFile.length() < HEADER_SIZE)
+        {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(ordersFile.toPath()))
+        {
+            return new DataInputStream(in).readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Encodes the orders of a date.
+     *
+     * @throws IllegalArgumentException if an amount does not fit in the format
+     */
+    static byte[] encode(List<Order> orders) throws IOException
+    {
+        byte[][] columns = new byte[COLUMNS.length][];
+        for (Column column : COLUMNS)
+        {
+            columns[column.ordinal()] = encodeColumn(column, orders);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(HEADER_SIZE);
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(orders.size());
+        header.writeInt(COLUMNS.length);
+        for (byte[] column : columns)
+        {
+            header.writeInt(column.length);
+            header.writeInt(checksum(column, 0, column.length));
+        }
+        byte[] headerWithoutChecksum = headerBytes.toByteArray();
+        out.write(headerWithoutChecksum);
+        out.writeInt(checksum(headerWithoutChecksum, 0, headerWithoutChecksum.length));
+        for (byte[] column : columns)
+        {
+            out.write(column);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads some of the columns of an archived Orders file; the others are not read from disk.
+     *
+     * @throws IOException if the file cannot be read, is not in this format or is damaged
+     */
+    static Columns read(File ordersFile, Set<Column> columns) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(ordersFile.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE, ordersFile);
+            if (header.getInt(0) != MAGIC || header.getInt(8) != COLUMNS.length
+                    || header.getInt(HEADER_SIZE - 4) != checksum(header.array(), 0, HEADER_SIZE - 4))
+            {
+                throw new IOException(ordersFile + " is not an archived Orders file or its header is damaged.");
+            }
+
+            Columns read = new Columns(header.getInt(4));
+            long position = HEADER_SIZE;
+            for (Column column : COLUMNS)
+            {
+                int length = header.getInt(12 + column.ordinal() * 8);
+                int checksum = header.getInt(16 + column.ordinal() * 8);
+                if (columns.contains(column))
+                {
+                    ByteBuffer block = readFully(channel, position, length, ordersFile);
+                    if (checksum(block.array(), 0, length) != checksum)
+                    {
+                        throw new IOException("The " + column + " column of " + ordersFile + " is damaged.");
+                    }
+                    read.decode(column, new DataInputStream(new ByteArrayInputStream(block.array())));
+                }
+                position += length;
+            }
+            return read;
+        }
+    }
+
+    static List<Order> readOrders(File ordersFile) throws IOException
+    {
+        return read(ordersFile, EnumSet.allOf(Column.class)).toOrders();
+    }
+
+    /**
+     * Some or all of the columns of an archived Orders file, decoded. Amounts stay fixed-point numbers until they are asked
+     * for.
+     */
+    static final class Columns
+    {
+        private final int size;
+        private int[] orderNumbers;
+        private String[] customerNames;
+        private final Map<Column, String[]> dictionaryColumns = new EnumMap<>(Column.class);
+        private final Map<Column, DecimalColumn> decimalColumns = new EnumMap<>(Column.class);
+
+        private Columns(int size)
+        {
+            this.size = size;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        String getState(int row)
+        {
+            return dictionaryColumns.get(Column.STATE)[row];
+        }
+
+        String getProductType(int row)
+        {
+            return dictionaryColumns.get(Column.PRODUCT_TYPE)[row];
+        }
+
+        BigDecimal getDecimal(Column column, int row)
+        {
+            return decimalColumns.get(column).get(row);
+        }
+
+        List<Order> toOrders()
+        {
+            List<Order> orders = new ArrayList<>(size);
+            for (int row = 0; row < size; row++)
+            {
+                orders.add(new Order(orderNumbers[row], customerNames[row], getState(row),
+                        getDecimal(Column.TAX_RATE, row), getProductType(row), getDecimal(Column.AREA, row),
+                        getDecimal(Column.COST_PER_SQUARE_FOOT, row), getDecimal(Column.LABOR_COST_PER_SQUARE_FOOT, row),
+                        getDecimal(Column.MATERIAL_COST, row), getDecimal(Column.LABOR_COST, row),
+                        getDecimal(Column.TAX, row), getDecimal(Column.TOTAL, row)));
+            }
+            return orders;
+        }
+
+        private void decode(Column column, DataInputStream in) throws IOException
+        {
+            switch (column)
+            {
+                case ORDER_NUMBER:
+                    orderNumbers = new int[size];
+                    int orderNumber = 0;
+                    for (int row = 0; row < size; row++)
+                    {
+                        orderNumber += (int) readVarLong(in);
+                        orderNumbers[row] = orderNumber;
+                    }
+                    break;
+                case CUSTOMER_NAME:
+                    customerNames = new String[size];
+                    for (int row = 0; row < size; row++)
+                    {
+                        customerNames[row] = in.readUTF();
+                    }
+                    break;
+                case STATE:
+                case PRODUCT_TYPE:
+                    dictionaryColumns.put(column, decodeDictionary(in));
+                    break;
+                default:
+                    decimalColumns.put(column, decodeDecimals(in));
+            }
+        }
+
+        private String[] decodeDictionary(DataInputStream in) throws IOException
+        {
+            String[] dictionary = new String[(int) readVarLong(in)];
+            for (int i = 0; i < dictionary.length; i++)
+            {
+                dictionary[i] = in.readUTF();
+            }
+            // Every order refers to the String of its value in the dictionary, so repeated values share one instance.
+            String[] values = new String[size];
+            for (int row = 0; row < size; row++)
+            {
+                values[row] = dictionary[(int) readVarLong(in)];
+            }
+            return values;
+        }
+
+        private DecimalColumn decodeDecimals(DataInputStream in) throws IOException
+        {
+            DecimalColumn decimals = new DecimalColumn(size, in.readByte() == SCALE_PER_ORDER);
+            if (!decimals.scalePerOrder())
+            {
+                decimals.scale = in.readByte();
+            }
+            for (int row = 0; row < size; row++)
+            {
+                if (decimals.scalePerOrder())
+                {
+                    decimals.scales[row] = in.readByte();
+                }
+                decimals.unscaled[row] = readVarLong(in);
+            }
+            return decimals;
+        }
+    }
+
+    private static final class DecimalColumn
+    {
+        private final long[] unscaled;
+        private final byte[] scales;
+        private byte scale;
+
+        private DecimalColumn(int size, boolean scalePerOrder)
+        {
+            unscaled = new long[size];
+            scales = scalePerOrder ? new byte[size] : null;
+        }
+
+        private boolean scalePerOrder()
+        {
+            return scales != null;
+        }
+
+        private BigDecimal get(int row)
+        {
+            return BigDecimal.valueOf(unscaled[row], scales == null ? scale : scales[row]);
+        }
+    }
+
+    private static byte[] encodeColumn(Column column, List<Order> orders) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        switch (column)
+        {
+            case ORDER_NUMBER:
+                // Orders are mostly in number order, so the difference usually fits in one byte.
+                long previousOrderNumber = 0;
+                for (Order order : orders)
+                {
+                    writeVarLong(out, order.getOrderNumber() - previousOrderNumber);
+                    previousOrderNumber = order.getOrderNumber();
+                }
+                break;
+            case CUSTOMER_NAME:
+                for (Order order : orders)
+                {
+                    out.writeUTF(order.getCustomerName());
+                }
+                break;
+            case STATE:
+                encodeDictionary(out, orders, Order::getState);
+                break;
+            case PRODUCT_TYPE:
+                encodeDictionary(out, orders, Order::getProductType);
+                break;
+            default:
+                encodeDecimals(out, orders, column);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private interface TextField
+    {
+        String of(Order order);
+    }
+
+    private static void encodeDictionary(DataOutputStream out, List<Order> orders, TextField field) throws IOException
+    {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (Order order : orders)
+        {
+            codes.putIfAbsent(field.of(order), codes.size());
+        }
+        writeVarLong(out, codes.size());
+        for (String value : codes.keySet())
+        {
+            out.writeUTF(value);
+        }
+        for (Order order : orders)
+        {
+            writeVarLong(out, codes.get(field.of(order)));
+        }
+    }
+
+    private static void encodeDecimals(DataOutputStream out, List<Order> orders, Column column) throws IOException
+    {
+        BigDecimal[] values = new BigDecimal[orders.size()];
+        boolean uniformScale = true;
+        for (int row = 0; row < values.length; row++)
+        {
+            values[row] = decimalOf(orders.get(row), column);
+            if (values[row].scale() < Byte.MIN_VALUE || values[row].scale() > Byte.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("The scale of " + values[row] + " is too large to archive.");
+            }
+            uniformScale &= values[row].scale() == values[0].scale();
+        }
+
+        out.writeByte(uniformScale ? UNIFORM_SCALE : SCALE_PER_ORDER);
+        if (uniformScale)
+        {
+            out.writeByte(values.length == 0 ? 0 : values[0].scale());
+        }
+        for (BigDecimal value : values)
+        {
+            if (!uniformScale)
+            {
+                out.writeByte(value.scale());
+            }
+            try
+            {
+                writeVarLong(out, value.unscaledValue().longValueExact());
+            }
+            catch (ArithmeticException e)
+            {
+                throw new IllegalArgumentException(value + " is too large to archive.", e);
+            }
+        }
+    }
+
+    private static BigDecimal decimalOf(Order order, Column column)
+    {
+        switch (column)
+        {
+            case TAX_RATE:
+                return order.getTaxRate();
+            case AREA:
+                return order.getArea();
+            case COST_PER_SQUARE_FOOT:
+                return order.getCostPerSquareFoot();
+            case LABOR_COST_PER_SQUARE_FOOT:
+                return order.getLaborCostPerSquareFoot();
+            case MATERIAL_COST:
+                return order.getMaterialCost();
+            case LABOR_COST:
+                return order.getLaborCost();
+            case TAX:
+                return order.getTax();
+            case TOTAL:
+                return order.getTotal();
+            default:
+                throw new IllegalArgumentException(column + " is not an amount.");
+        }
+    }
+
+    // Zigzag encoded, so small negative numbers are as short as small positive ones, then seven bits per byte with the high
+    // bit set on every byte but the last.
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException
+    {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException
+    {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("A number in an archived Orders file is too long.");
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length, File file) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException(file + " ends before its last column.");
+            }
+        }
+        return buffer;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,193 @@
+package com.flooringmastery.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * Reads the fields of one delimited line in place, moving a cursor along it instead of splitting it into an array of
+ * substrings. Numbers are parsed straight from the characters of the line, and text fields whose value was already seen by
+ * this cursor (state abbreviations, product types) reuse the String returned the first time. A cursor is reset for every
+ * line and is not thread-safe; each thread keeps its own.
+ */
+final class CsvCursor
+{
+
+    // Longest digit run that always fits in a long; longer numbers fall back to parsing a BigDecimal from text.
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_REUSED_VALUES = 64;
+
+    private final char delimiter;
+    private final String[] reusedValues = new String[MAX_REUSED_VALUES];
+    private int reusedValuesCount;
+    private CharSequence line;
+    private int position;
+    private int end;
+
+    CsvCursor(char delimiter)
+    {
+        this.delimiter = delimiter;
+    }
+
+    CsvCursor reset(CharSequence line)
+    {
+        return reset(line, 0, line.length());
+    }
+
+    CsvCursor reset(CharSequence line, int start, int end)
+    {
+        this.line = line;
+        this.position = start;
+        this.end = end;
+        return this;
+    }
+
+    String nextString()
+    {
+        int start = position;
+        int stop = fieldEnd();
+        position = stop + 1;
+        return line.subSequence(start, stop).toString();
+    }
+
+    /**
+     * Reads a text field that repeats across lines, returning the same String instance every time its value comes up again.
+     */
+    String nextRepeatedString()
+    {
+        int start = position;
+        int stop = fieldEnd();
+        position = stop + 1;
+
+        int length = stop - start;
+        for (int i = 0; i < reusedValuesCount; i++)
+        {
+            String value = reusedValues[i];
+            if (value.length() == length && regionMatches(start, value))
+            {
+                return value;
+            }
+        }
+
+        String value = line.subSequence(start, stop).toString();
+        if (reusedValuesCount < MAX_REUSED_VALUES)
+        {
+            reusedValues[reusedValuesCount++] = value;
+        }
+        return value;
+    }
+
+    int nextInt()
+    {
+        int start = position;
+        int stop = fieldEnd();
+        position = stop + 1;
+
+        // Signs are read like Integer.parseInt does.
+        boolean negative = start < stop && line.charAt(start) == '-';
+        int i = negative || (start < stop && line.charAt(start) == '+') ? start + 1 : start;
+        if (i == stop)
+        {
+            throw new NumberFormatException("Expected a number at column " + start + " of: " + line);
+        }
+
+        long value = 0;
+        for (; i < stop; i++)
+        {
+            value = value * 10 + digitAt(i);
+            if (value > (long) Integer.MAX_VALUE + 1)
+            {
+                throw new NumberFormatException("Number out of range at column " + start + " of: " + line);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE)
+        {
+            throw new NumberFormatException("Number out of range at column " + start + " of: " + line);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a plain decimal field such as 9.25 or -100, keeping the scale it was written with, so the result is equal to
+     * {@code new BigDecimal(field)}.
+     */
+    BigDecimal nextDecimal()
+    {
+        int start = position;
+        int stop = fieldEnd();
+        position = stop + 1;
+
+        boolean negative = start < stop && line.charAt(start) == '-';
+        int i = negative || (start < stop && line.charAt(start) == '+') ? start + 1 : start;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean pastPoint = false;
+        for (; i < stop; i++)
+        {
+            char c = line.charAt(i);
+            if (c == '.' && !pastPoint)
+            {
+                pastPoint = true;
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > MAX_LONG_DIGITS)
+            {
+                // Exponents, very long numbers and malformed input go through the BigDecimal parser, which also reports errors.
+                return new BigDecimal(line.subSequence(start, stop).toString());
+            }
+            unscaled = unscaled * 10 + (c - '0');
+            if (pastPoint)
+            {
+                scale++;
+            }
+        }
+
+        if (digits == 0)
+        {
+            throw new NumberFormatException("Expected a decimal at column " + start + " of: " + line);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private int fieldEnd()
+    {
+        if (position > end)
+        {
+            throw new IllegalArgumentException("Missing field at column " + position + " of: " + line);
+        }
+        for (int i = position; i < end; i++)
+        {
+            if (line.charAt(i) == delimiter)
+            {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private int digitAt(int index)
+    {
+        char c = line.charAt(index);
+        if (c < '0' || c > '9')
+        {
+            throw new NumberFormatException("Expected a digit at column " + index + " of: " + line);
+        }
+        return c - '0';
+    }
+
+    private boolean regionMatches(int start, String value)
+    {
+        if (line instanceof String)
+        {
+            return ((String) line).regionMatches(start, value, 0, value.length());
+        }
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (line.charAt(start + i) != value.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
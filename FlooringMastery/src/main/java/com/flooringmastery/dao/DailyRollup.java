@@ -0,0 +1,224 @@
+package com.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderAggregate;
+
+/**
+ * The orders of one date added up per state and product: how many orders there are and the sums of their area, material
+ * cost, labor cost, tax and total. A rollup is kept in a Rollup_MMddyyyy.txt file next to the Orders file and is updated
+ * with every order the program adds, edits or removes, so reports over many dates can read one small file per date instead
+ * of every order. The rollup records the {@link FileStamp} of the Orders file it was built from; a rollup whose stamp no
+ * longer matches, e.g. after the Orders file was edited outside the program, is built again from the orders.
+ */
+class DailyRollup
+{
+
+    private static final String DELIMITER = ",";
+    private static final String STAMP_RECORD = "Rollup";
+    private static final String HEADER = "State,ProductType,Count,Area,MaterialCost,LaborCost,Tax,Total";
+
+    private FileStamp stamp;
+    // Keyed by state and then product type, so the file lists the cells in a stable order.
+    private final Map<String, Map<String, Cell>> cells = new TreeMap<>();
+
+    private DailyRollup(FileStamp stamp)
+    {
+        this.stamp = stamp;
+    }
+
+    static File rollupFileFor(File ordersFile)
+    {
+        String name = ordersFile.getName();
+        return new File(ordersFile.getParentFile(), "Rollup_" + name.substring(name.lastIndexOf('_') + 1));
+    }
+
+    static DailyRollup of(FileStamp stamp, Collection<Order> orders)
+    {
+        DailyRollup rollup = new DailyRollup(stamp);
+        for (Order order : orders)
+        {
+            rollup.add(order);
+        }
+        return rollup;
+    }
+
+    /**
+     * Adds up an archived date from the columns in {@link ColumnarOrders#TOTALS_COLUMNS}.
+     */
+    static DailyRollup of(FileStamp stamp, ColumnarOrders.Columns columns)
+    {
+        DailyRollup rollup = new DailyRollup(stamp);
+        for (int row = 0; row < columns.size(); row++)
+        {
+            Cell cell = rollup.cell(columns.getState(row), columns.getProductType(row));
+            cell.count++;
+            cell.area = cell.area.add(columns.getDecimal(ColumnarOrders.Column.AREA, row));
+            cell.materialCost = cell.materialCost.add(columns.getDecimal(ColumnarOrders.Column.MATERIAL_COST, row));
+            cell.laborCost = cell.laborCost.add(columns.getDecimal(ColumnarOrders.Column.LABOR_COST, row));
+            cell.tax = cell.tax.add(columns.getDecimal(ColumnarOrders.Column.TAX, row));
+            cell.total = cell.total.add(columns.getDecimal(ColumnarOrders.Column.TOTAL, row));
+        }
+        return rollup;
+    }
+
+    /**
+     * Reads the rollup of an Orders file.
+     *
+     * @return the rollup, or null if there is none, it cannot be read, or it was not built from the Orders file as it is now
+     */
+    static DailyRollup read(File ordersFile)
+    {
+        File rollupFile = rollupFileFor(ordersFile);
+        if (!rollupFile.exists())
+        {
+            return null;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(rollupFile)))
+        {
+            String[] stampTokens = reader.readLine().split(DELIMITER, 2);
+            if (!stampTokens[0].equals(STAMP_RECORD) || !HEADER.equals(reader.readLine()))
+            {
+                return null;
+            }
+            DailyRollup rollup = new DailyRollup(FileStamp.parse(stampTokens[1], DELIMITER));
+            if (!rollup.stamp.equals(FileStamp.of(ordersFile)))
+            {
+                return null;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] tokens = line.split(DELIMITER);
+                Cell cell = rollup.cell(tokens[0], tokens[1]);
+                cell.count = Long.parseLong(tokens[2]);
+                cell.area = new BigDecimal(tokens[3]);
+                cell.materialCost = new BigDecimal(tokens[4]);
+                cell.laborCost = new BigDecimal(tokens[5]);
+                cell.tax = new BigDecimal(tokens[6]);
+                cell.total = new BigDecimal(tokens[7]);
+            }
+            return rollup;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // A damaged rollup is built again from the orders.
+            return null;
+        }
+    }
+
+    void write(File ordersFile) throws IOException
+    {
+        File rollupFile = rollupFileFor(ordersFile);
+        File tempFile = new File(rollupFile.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new FileWriter(tempFile)))
+        {
+            out.println(STAMP_RECORD + DELIMITER + stamp.format(DELIMITER));
+            out.println(HEADER);
+            cells.forEach((state, products) -> products.forEach((productType, cell) -> out.println(state + DELIMITER
+                    + productType + DELIMITER + cell.count + DELIMITER + cell.area.toPlainString() + DELIMITER
+                    + cell.materialCost.toPlainString() + DELIMITER + cell.laborCost.toPlainString() + DELIMITER
+                    + cell.tax.toPlainString() + DELIMITER + cell.total.toPlainString())));
+            if (out.checkError())
+            {
+                throw new IOException("Could not write the rollup " + rollupFile + ".");
+            }
+        }
+        Files.move(tempFile.toPath(), rollupFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void delete(File ordersFile)
+    {
+        rollupFileFor(ordersFile).delete();
+    }
+
+    FileStamp getStamp()
+    {
+        return stamp;
+    }
+
+    void setStamp(FileStamp stamp)
+    {
+        this.stamp = stamp;
+    }
+
+    void add(Order order)
+    {
+        Cell cell = cell(order.getState(), order.getProductType());
+        cell.count++;
+        cell.area = cell.area.add(order.getArea());
+        cell.materialCost = cell.materialCost.add(order.getMaterialCost());
+        cell.laborCost = cell.laborCost.add(order.getLaborCost());
+        cell.tax = cell.tax.add(order.getTax());
+        cell.total = cell.total.add(order.getTotal());
+    }
+
+    void remove(Order order)
+    {
+        Map<String, Cell> products = cells.get(order.getState());
+        Cell cell = products == null ? null : products.get(order.getProductType());
+        if (cell == null)
+        {
+            return;
+        }
+        cell.count--;
+        cell.area = cell.area.subtract(order.getArea());
+        cell.materialCost = cell.materialCost.subtract(order.getMaterialCost());
+        cell.laborCost = cell.laborCost.subtract(order.getLaborCost());
+        cell.tax = cell.tax.subtract(order.getTax());
+        cell.total = cell.total.subtract(order.getTotal());
+
+        if (cell.count == 0)
+        {
+            products.remove(order.getProductType());
+            if (products.isEmpty())
+            {
+                cells.remove(order.getState());
+            }
+        }
+    }
+
+    /**
+     * @return one aggregate per state and product, with the state and product type as its group values
+     */
+    List<OrderAggregate> toAggregates()
+    {
+        List<OrderAggregate> aggregates = new ArrayList<>();
+        cells.forEach((state, products) -> products.forEach((productType, cell) -> aggregates.add(new OrderAggregate(
+                List.of(state, productType), cell.count, cell.area, cell.materialCost, cell.laborCost, cell.tax,
+                cell.total))));
+        return aggregates;
+    }
+
+    private Cell cell(String state, String productType)
+    {
+        return cells.computeIfAbsent(state, key -> new TreeMap<>()).computeIfAbsent(productType, key -> new Cell());
+    }
+
+    private static final class Cell
+    {
+        private long count;
+        private BigDecimal area = BigDecimal.ZERO;
+        private BigDecimal materialCost = BigDecimal.ZERO;
+        private BigDecimal laborCost = BigDecimal.ZERO;
+        private BigDecimal tax = BigDecimal.ZERO;
+        private BigDecimal total = BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,21 @@
+package com.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.flooringmastery.dto.OrderAggregate;
+
+/**
+ * Work done on the rolled-up orders of one date during {@link FlooringMasteryDao#scanDailyTotals}. Like an
+ * {@link OrdersScan}, dates are scanned in parallel and each returns its own result.
+ *
+ * @param <T> the result of scanning one date
+ */
+public interface DailyTotalsScan<T>
+{
+
+    /**
+     * @param totals one aggregate per state and product of the date, with the state and product type as its group values
+     */
+    T scan(LocalDate date, List<OrderAggregate> totals);
+}
@@ -0,0 +1,40 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Everything the DAO needs to work on the orders of one date: the date, its Orders file and the lock guarding them. Its
+ * read lock is held while the orders of the date are read and its write lock while they are changed, so callers working on
+ * different dates never wait for each other, and callers on the same date never see a change half made.
+ */
+final class DateHandle
+{
+
+    private final LocalDate date;
+    private final File ordersFile;
+    private final ReadWriteLock lock;
+
+    DateHandle(LocalDate date, File ordersFile, ReadWriteLock lock)
+    {
+        this.date = date;
+        this.ordersFile = ordersFile;
+        this.lock = lock;
+    }
+
+    LocalDate getDate()
+    {
+        return date;
+    }
+
+    File getOrdersFile()
+    {
+        return ordersFile;
+    }
+
+    ReadWriteLock getLock()
+    {
+        return lock;
+    }
+}
@@ -0,0 +1,126 @@
+package com.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+/**
+ * Records, for the last export, the size, modification time and checksum of every Orders file, together with where the
+ * orders of that date were written in the export file. The next export compares the Orders files against it, so only the
+ * dates that changed have to be read again and every other date is copied over from the previous export.
+ */
+class ExportManifest
+{
+
+    private static final String DELIMITER = ",";
+    private static final String EXPORT_FILE_RECORD = "ExportFile";
+    private static final String HEADER = "Date,Size,Modified,Checksum,Offset,Length";
+
+    private final long exportFileSize;
+    private final long exportFileModified;
+    private final Map<LocalDate, Section> sections;
+
+    ExportManifest(long exportFileSize, long exportFileModified, Map<LocalDate, Section> sections)
+    {
+        this.exportFileSize = exportFileSize;
+        this.exportFileModified = exportFileModified;
+        this.sections = sections;
+    }
+
+    /**
+     * Reads the manifest of the last export. Returns an empty manifest, meaning every date has to be exported again, if there
+     * is no manifest, it cannot be read, or the export file was changed since the manifest was written.
+     */
+    static ExportManifest load(File manifestFile, File exportFile)
+    {
+        ExportManifest empty = new ExportManifest(0, 0, new TreeMap<>());
+        if (!manifestFile.exists() || !exportFile.exists())
+        {
+            return empty;
+        }
+
+        try (Scanner scanner = new Scanner(new BufferedReader(new FileReader(manifestFile))))
+        {
+            String[] exportTokens = scanner.nextLine().split(DELIMITER);
+            long exportFileSize = Long.parseLong(exportTokens[1]);
+            long exportFileModified = Long.parseLong(exportTokens[2]);
+            if (!exportTokens[0].equals(EXPORT_FILE_RECORD) || exportFile.length() != exportFileSize
+                    || exportFile.lastModified() != exportFileModified)
+            {
+                return empty;
+            }
+
+            // Getting rid of the column header
+            scanner.nextLine();
+
+            Map<LocalDate, Section> sections = new TreeMap<>();
+            while (scanner.hasNextLine())
+            {
+                String[] tokens = scanner.nextLine().split(DELIMITER);
+                sections.put(LocalDate.parse(tokens[0], OrdersFiles.FILE_DATE_FORMAT), new Section(Long.parseLong(tokens[1]),
+                        Long.parseLong(tokens[2]), Long.parseLong(tokens[3]), Long.parseLong(tokens[4]),
+                        Long.parseLong(tokens[5])));
+            }
+            return new ExportManifest(exportFileSize, exportFileModified, sections);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // A missing or damaged manifest only costs a full export.
+            return empty;
+        }
+    }
+
+    void save(File manifestFile) throws IOException
+    {
+        File tempFile = new File(manifestFile.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new FileWriter(tempFile)))
+        {
+            out.println(EXPORT_FILE_RECORD + DELIMITER + exportFileSize + DELIMITER + exportFileModified);
+            out.println(HEADER);
+            sections.forEach((date, section) -> out.println(date.format(OrdersFiles.FILE_DATE_FORMAT) + DELIMITER
+                    + section.size + DELIMITER + section.modified + DELIMITER + section.checksum + DELIMITER
+                    + section.offset + DELIMITER + section.length));
+            if (out.checkError())
+            {
+                throw new IOException("Could not write the export manifest.");
+            }
+        }
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Section getSection(LocalDate date)
+    {
+        return sections.get(date);
+    }
+
+    /**
+     * Where the orders of one date are in the export file, and the state of its Orders file when they were written there.
+     */
+    static final class Section
+    {
+        final long size;
+        final long modified;
+        final long checksum;
+        final long offset;
+        final long length;
+
+        Section(long size, long modified, long checksum, long offset, long length)
+        {
+            this.size = size;
+            this.modified = modified;
+            this.checksum = checksum;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
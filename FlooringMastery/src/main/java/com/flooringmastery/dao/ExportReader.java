@@ -0,0 +1,150 @@
+package com.flooringmastery.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Reads back an export file written by {@link OrdersExporter}, plain or compressed with GZIP in either of its modes; the
+ * two are told apart by the GZIP magic number, not by the name of the file. The file is streamed through a large buffer
+ * and handed over one date at a time, so reading it never holds more than the orders of one date.
+ */
+final class ExportReader
+{
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+    private static final DateTimeFormatter EXPORT_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    private final String header;
+    private final String delimiter;
+    private final OrderMarshaller marshaller;
+
+    ExportReader(String header, String delimiter, OrderMarshaller marshaller)
+    {
+        this.header = header;
+        this.delimiter = delimiter;
+        this.marshaller = marshaller;
+    }
+
+    /**
+     * Receives the orders of one date of an export file.
+     */
+    interface DateSection
+    {
+        /**
+         * @param firstLineNumber the line of the file the first order of the date was read from, counting the header as 1
+         */
+        void accept(LocalDate date, long firstLineNumber, List<Order> orders) throws FlooringMasteryPersistenceException;
+    }
+
+    /**
+     * @return true if the file starts with the header of an export file, once uncompressed
+     */
+    boolean isExportFile(File file)
+    {
+        try (BufferedReader reader = open(file))
+        {
+            String firstLine = reader.readLine();
+            return firstLine != null && firstLine.equals(header);
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Reads every order of an export file, in the order of the file. The orders of a date are handed over when the next
+     * date starts; a date found in two places of the file is handed over twice.
+     *
+     * @return the number of lines read after the header
+     */
+    long read(File file, DateSection dateSection) throws IOException, FlooringMasteryPersistenceException
+    {
+        try (BufferedReader reader = open(file))
+        {
+            String firstLine = reader.readLine();
+            if (firstLine == null || !firstLine.equals(header))
+            {
+                throw new IOException(file + " is not an export file.");
+            }
+
+            long lineNumber = 1;
+            LocalDate sectionDate = null;
+            long sectionFirstLine = 0;
+            List<Order> sectionOrders = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                if (line.isEmpty())
+                {
+                    continue;
+                }
+                // Every line is the order as in its Orders file, then the delimiter, a space and the date.
+                int dateStart = line.lastIndexOf(delimiter);
+                LocalDate date;
+                Order order;
+                try
+                {
+                    date = LocalDate.parse(line.substring(dateStart + delimiter.length()).trim(), EXPORT_DATE_FORMAT);
+                    order = marshaller.unmarshallOrder(line.substring(0, dateStart));
+                }
+                catch (RuntimeException e)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + file + " is not an exported order.", e);
+                }
+
+                if (!date.equals(sectionDate))
+                {
+                    if (sectionDate != null)
+                    {
+                        dateSection.accept(sectionDate, sectionFirstLine, sectionOrders);
+                    }
+                    sectionDate = date;
+                    sectionFirstLine = lineNumber;
+                    sectionOrders = new ArrayList<>();
+                }
+                sectionOrders.add(order);
+            }
+            if (sectionDate != null)
+            {
+                dateSection.accept(sectionDate, sectionFirstLine, sectionOrders);
+            }
+            return lineNumber - 1;
+        }
+    }
+
+    private BufferedReader open(File file) throws IOException
+    {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+        try
+        {
+            in.mark(2);
+            boolean compressed = in.read() == GZIP_MAGIC_FIRST_BYTE && in.read() == GZIP_MAGIC_SECOND_BYTE;
+            in.reset();
+            // GZIPInputStream reads every member of a file written in blocks, one after the other.
+            InputStream text = compressed ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+            return new BufferedReader(new InputStreamReader(text), BUFFER_SIZE);
+        }
+        catch (IOException e)
+        {
+            in.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Size and last-modified time of an Orders file and its journal, taken together so we can tell whether either of them has
+ * changed since the orders were read, e.g. because the file was edited outside the program.
+ */
+final class FileStamp
+{
+
+    private final long ordersFileSize;
+    private final long ordersFileModified;
+    private final long journalSize;
+    private final long journalModified;
+
+    private FileStamp(long ordersFileSize, long ordersFileModified, long journalSize, long journalModified)
+    {
+        this.ordersFileSize = ordersFileSize;
+        this.ordersFileModified = ordersFileModified;
+        this.journalSize = journalSize;
+        this.journalModified = journalModified;
+    }
+
+    static FileStamp of(File ordersFile)
+    {
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+        return new FileStamp(ordersFile.length(), ordersFile.lastModified(), journalFile.length(), journalFile.lastModified());
+    }
+
+    /**
+     * Reads a stamp written by {@link #format(String)}.
+     *
+     * @throws NumberFormatException if the text is not a stamp
+     */
+    static FileStamp parse(String text, String delimiter)
+    {
+        String[] tokens = text.split(delimiter);
+        if (tokens.length != 4)
+        {
+            throw new NumberFormatException("Not a file stamp: " + text);
+        }
+        return new FileStamp(Long.parseLong(tokens[0]), Long.parseLong(tokens[1]), Long.parseLong(tokens[2]),
+                Long.parseLong(tokens[3]));
+    }
+
+    /**
+     * Writes the stamp as its four numbers separated by the delimiter, so it can be stored and compared in a later run.
+     */
+    String format(String delimiter)
+    {
+        return ordersFileSize + delimiter + ordersFileModified + delimiter + journalSize + delimiter + journalModified;
+    }
+
+    /**
+     * Computes a CRC-32 checksum over the contents of an Orders file followed by its journal, if it has one.
+     */
+    static long checksum(File ordersFile) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        for (File file : new File[] {ordersFile, OrderJournal.journalFileFor(ordersFile)})
+        {
+            if (!file.exists())
+            {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(file))
+            {
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                {
+                    crc.update(buffer, 0, read);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Most recent modification time of the Orders file and its journal.
+     */
+    long lastModified()
+    {
+        return Math.max(ordersFileModified, journalModified);
+    }
+
+    /**
+     * Number of bytes on disk behind the orders, used to estimate how much memory the parsed orders take.
+     */
+    long totalSize()
+    {
+        return ordersFileSize + journalSize;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileStamp stamp = (FileStamp) o;
+        return ordersFileSize == stamp.ordersFileSize && ordersFileModified == stamp.ordersFileModified
+                && journalSize == stamp.journalSize && journalModified == stamp.journalModified;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(ordersFileSize, ordersFileModified, journalSize, journalModified);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FileStamp{" +
+                "ordersFileSize=" + ordersFileSize +
+                ", ordersFileModified=" + ordersFileModified +
+                ", journalSize=" + journalSize +
+                ", journalModified=" + journalModified +
+                '}';
+    }
+}
@@ -1,50 +1,281 @@
 package com.flooringmastery.dao;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Component;
 
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 
+/**
+ * Audit entries are put on a bounded lock-free ring buffer and written by a single audit writer thread, so placing, editing
+ * or removing an order does not wait for the audit file. The writer keeps the audit files of recent dates open and flushes
+ * them once enough entries are waiting or enough time has passed, then forces the flushed files to disk through the
+ * {@link GroupCommit} shared with the order journals, so the audit entries of concurrent changes share the fsyncs of the
+ * orders. In {@link AuditDurability#SYNC_ON_COMMIT} mode writeAuditEntry returns only once its entry is on disk. Closing
+ * the application context drains every queued entry before the files are closed.
+ */
 @Component
-public class FlooringMasteryAuditDaoImpl implements FlooringMasteryAuditDao 
+public class FlooringMasteryAuditDaoImpl implements FlooringMasteryAuditDao, InitializingBean, DisposableBean
 {
 
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_FLUSH_BATCH_SIZE = 64;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final int MAX_OPEN_AUDIT_FILES = 16;
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AuditDurability durability;
+    private final int flushBatchSize;
+    private final long flushIntervalNanos;
+    private final AuditRingBuffer<AuditEntry> buffer;
+    private volatile Thread writerThread;
+    // Written only by the audit writer thread.
+    private final Map<String, Writer> openAuditFiles = new LinkedHashMap<>(16, 0.75f, true);
+    // The audit files written since the last flush, and whether the write created them.
+    private final Map<String, Boolean> unsyncedAuditFiles = new LinkedHashMap<>();
+    private final GroupCommit groupCommit = GroupCommit.SHARED;
+    private volatile long flushedEntries; // every entry at a position below this one has been flushed and forced to disk
+    private volatile IOException writeFailure;
+    private volatile boolean closed;
+
+    public FlooringMasteryAuditDaoImpl()
+    {
+        this(AuditDurability.ASYNC, DEFAULT_CAPACITY, DEFAULT_FLUSH_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public FlooringMasteryAuditDaoImpl(AuditDurability durability, int capacity, int flushBatchSize, long flushIntervalMillis)
+    {
+        this.durability = durability;
+        this.flushBatchSize = flushBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.buffer = new AuditRingBuffer<>(capacity);
+    }
+
+    /**
+     * Starts the audit writer once the bean is set up. An instance made without Spring starts it with its first entry.
+     */
     @Override
-    public void writeAuditEntry(String message, String fileName) throws FlooringMasteryPersistenceException 
+    public void afterPropertiesSet()
     {
-        File currentAuditFile = new File(fileName);
+        startWriter();
+    }
+
+    @Override
+    public void writeAuditEntry(String message, String fileName) throws FlooringMasteryPersistenceException
+    {
+        checkWriterIsHealthy();
+        Thread writer = writerThread != null ? writerThread : startWriter();
+
+        // When the buffer is full, waits for the audit writer to make room rather than dropping the entry.
+        AuditEntry entry = new AuditEntry(message, fileName);
+        long position;
+        while ((position = buffer.offer(entry)) < 0)
+        {
+            checkWriterIsHealthy();
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+        LockSupport.unpark(writer);
+
+        if (durability == AuditDurability.SYNC_ON_COMMIT)
+        {
+            while (flushedEntries <= position)
+            {
+                checkWriterIsHealthy();
+                LockSupport.parkNanos(WAIT_NANOS);
+            }
+        }
+    }
 
-        // If this is the first order being added to a date, we need to create a new audit file for that date.
-        if (!currentAuditFile.exists()) 
+    /**
+     * Stops accepting entries, waits for the audit writer to write and flush every queued entry, and closes the audit files.
+     */
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        closed = true;
+        Thread writer = writerThread;
+        if (writer != null)
         {
-            createNewAuditFile(currentAuditFile);
+            LockSupport.unpark(writer);
+            writer.join();
         }
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(currentAuditFile, true))) 
+    private synchronized Thread startWriter()
+    {
+        if (writerThread == null)
         {
-            writer.println(message);
-            writer.flush();
-        } 
-        catch (IOException e) 
+            Thread writer = new Thread(this::writeEntries, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+            writerThread = writer;
+        }
+        return writerThread;
+    }
+
+    private void checkWriterIsHealthy() throws FlooringMasteryPersistenceException
+    {
+        // A failure is reported once; the audit writer keeps going, so a file that comes back can be written again.
+        IOException failure = writeFailure;
+        if (failure != null)
         {
+            writeFailure = null;
             throw new FlooringMasteryPersistenceException("Error, could not write to audit file. The file may have been moved " +
-                    "or deleted.", e);
+                    "or deleted.", failure);
+        }
+        if (closed)
+        {
+            throw new FlooringMasteryPersistenceException("Error, the audit log has already been closed.");
         }
     }
 
-    private void createNewAuditFile(File newAuditFile) throws FlooringMasteryPersistenceException 
+    private void writeEntries()
     {
-        try 
+        long writtenEntries = flushedEntries;
+        long oldestUnflushed = 0;
+        while (true)
         {
-            newAuditFile.createNewFile();
-        } 
-        catch (IOException e) 
+            boolean closing = closed;
+            AuditEntry entry;
+            while ((entry = buffer.poll()) != null)
+            {
+                if (writtenEntries == flushedEntries)
+                {
+                    oldestUnflushed = System.nanoTime();
+                }
+                write(entry);
+                writtenEntries++;
+                if (writtenEntries - flushedEntries >= flushBatchSize)
+                {
+                    flush(writtenEntries);
+                }
+            }
+
+            // Someone waiting on the entry, or entries waiting long enough, are reasons to flush a partial batch.
+            boolean unflushed = writtenEntries > flushedEntries;
+            if (unflushed && (durability == AuditDurability.SYNC_ON_COMMIT || closing
+                    || System.nanoTime() - oldestUnflushed >= flushIntervalNanos))
+            {
+                flush(writtenEntries);
+                unflushed = false;
+            }
+
+            if (closing && buffer.isEmpty())
+            {
+                closeAuditFiles();
+                return;
+            }
+            LockSupport.parkNanos(this, unflushed ? flushIntervalNanos : TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private void write(AuditEntry entry)
+    {
+        try
+        {
+            Writer writer = openAuditFiles.get(entry.fileName);
+            unsyncedAuditFiles.putIfAbsent(entry.fileName, !new File(entry.fileName).exists());
+            if (writer == null)
+            {
+                writer = new BufferedWriter(new FileWriter(entry.fileName, true));
+                openAuditFiles.put(entry.fileName, writer);
+                closeLeastRecentlyUsedAuditFiles();
+            }
+            writer.write(entry.message);
+            writer.write(System.lineSeparator());
+        }
+        catch (IOException e)
+        {
+            writeFailure = e;
+        }
+    }
+
+    // Blocks the audit writer until the files are on disk; the entries queued meanwhile go into the next, larger batch.
+    private void flush(long writtenEntries)
+    {
+        for (Writer writer : openAuditFiles.values())
+        {
+            try
+            {
+                writer.flush();
+            }
+            catch (IOException e)
+            {
+                writeFailure = e;
+            }
+        }
+
+        List<GroupCommit.Commit> commits = new ArrayList<>(unsyncedAuditFiles.size());
+        for (Map.Entry<String, Boolean> auditFile : unsyncedAuditFiles.entrySet())
+        {
+            commits.add(groupCommit.request(Paths.get(auditFile.getKey()), auditFile.getValue()));
+        }
+        unsyncedAuditFiles.clear();
+        for (GroupCommit.Commit commit : commits)
+        {
+            try
+            {
+                groupCommit.await(commit);
+            }
+            catch (IOException e)
+            {
+                writeFailure = e;
+            }
+        }
+        flushedEntries = writtenEntries;
+    }
+
+    private void closeLeastRecentlyUsedAuditFiles() throws IOException
+    {
+        Iterator<Writer> leastRecentlyUsedFirst = openAuditFiles.values().iterator();
+        while (openAuditFiles.size() > MAX_OPEN_AUDIT_FILES)
+        {
+            Writer writer = leastRecentlyUsedFirst.next();
+            leastRecentlyUsedFirst.remove();
+            writer.close();
+        }
+    }
+
+    private void closeAuditFiles()
+    {
+        for (Writer writer : openAuditFiles.values())
+        {
+            try
+            {
+                writer.close();
+            }
+            catch (IOException e)
+            {
+                writeFailure = e;
+            }
+        }
+        openAuditFiles.clear();
+    }
+
+    private static final class AuditEntry
+    {
+        private final String message;
+        private final String fileName;
+
+        private AuditEntry(String message, String fileName)
         {
-            throw new FlooringMasteryPersistenceException("Error creating new audit file.");
+            this.message = message;
+            this.fileName = fileName;
         }
     }
 }
\ No newline at end of file
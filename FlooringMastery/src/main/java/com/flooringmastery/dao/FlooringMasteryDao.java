@@ -5,8 +5,17 @@ import org.springframework.stereotype.Component;
 
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.CacheStatistics;
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.CommitStatistics;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
+import com.flooringmastery.dto.LockStatistics;
 import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderLocation;
+import com.flooringmastery.dto.RecoveryResult;
 import com.flooringmastery.dto.Product;
 import com.flooringmastery.dto.State;
 
@@ -15,6 +24,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import java.time.LocalDate;
 import java.util.List;
 
 
@@ -23,62 +33,234 @@ public interface FlooringMasteryDao
 {
 
     /**
-     * Reads the Products and Taxes files when the program starts up to populate the productsList and statesLists.
+     * Reads the Products and Taxes files when the program starts up to populate the productsList and statesLists, and
+     * builds the catalog indexing them by state abbreviation and product type. From then on both files are watched, and a
+     * new catalog is published whenever they change and still pass validation.
      *
-     * @throws FlooringMasteryPersistenceException if it cannot read the files
+     * @throws FlooringMasteryPersistenceException if it cannot read the files, or they have no states or products, or a
+     *                                             negative rate or cost
      */
     void loadStatesAndProductsLists() throws FlooringMasteryPersistenceException;
 
     /**
-     * Adds a new order to the ordersList and writes the ordersList to the current Orders file.
+     * Adds a new order to the orders of a date and appends it to the journal of its Orders file, creating the file if there
+     * is none. Changes to the same date are made one at a time; changes to other dates, and reads, go on meanwhile.
      *
+     * @param date  the date of the order
      * @param order the order to be added
      * @throws FlooringMasteryPersistenceException if there is a problem writing to the desired Orders file.
      */
     
-    void addOrder(Order order) throws FlooringMasteryPersistenceException;
+    void addOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException;
 
     /**
-     * Writes the ordersList containing the edited order to the current Orders file.
+     * Adds several new orders to the orders of a date, creating its Orders file if there is none, with a single write of
+     * its journal, order index entry and rollup.
      *
+     * @param date      the date of the orders
+     * @param newOrders the orders to be added, in the order they should be listed
      * @throws FlooringMasteryPersistenceException if there is a problem writing to the desired Orders file.
      */
     
-    void editOrder() throws FlooringMasteryPersistenceException;
+    void addOrders(LocalDate date, List<Order> newOrders) throws FlooringMasteryPersistenceException;
 
     /**
-     * Removes the order from the ordersList and writes the ordersList to the current Orders file.
+     * Replaces the order with the same order number among the orders of a date and appends the edit to the journal of its
+     * Orders file. The edit is only made if the order is still as it was read, even if another running copy of the program
+     * shares the orders folder.
      *
-     * @param order order number to be associated with the order.
+     * @param date          the date of the order
+     * @param originalOrder the order as it was read, before the edit
+     * @param editedOrder   the edited order
      * @throws FlooringMasteryPersistenceException if there is a problem writing to the desired Orders file.
+     * @throws StaleOrdersFileException            if the order was changed or removed since it was read; nothing is written
      */
     
-    void removeOrder(Order order) throws FlooringMasteryPersistenceException;
+    void editOrder(LocalDate date, Order originalOrder, Order editedOrder) throws FlooringMasteryPersistenceException,
+            StaleOrdersFileException;
 
     /**
-     * Clears ordersList and loads orders from currently selected Orders file into ordersList.
+     * Removes the order from the orders of a date and appends the removal to the journal of its Orders file.
      *
-     * @throws FlooringMasteryPersistenceException if there is a problem reading from the desired Orders file.
+     * @param date  the date of the order
+     * @param order the order to be removed, as it was read
+     * @throws FlooringMasteryPersistenceException if there is a problem writing to the desired Orders file.
+     * @throws StaleOrdersFileException            if the order was changed or removed since it was read; nothing is written
+     */
+    
+    void removeOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException, StaleOrdersFileException;
+
+    /**
+     * Takes the next order number for a date. Numbers come from a high-water mark stored for each date, so a number is never
+     * given out twice, even after its order was removed or on a restart.
+     *
+     * @param date the date of the new order
+     * @return the order number for a new order
+     * @throws FlooringMasteryPersistenceException if the stored high-water mark cannot be read or written.
+     */
+    int nextOrderNumber(LocalDate date) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Takes a block of consecutive order numbers for a date, as {@link #nextOrderNumber(LocalDate)} does for one number.
+     *
+     * @param date  the date of the new orders
+     * @param count how many order numbers to take
+     * @return the first order number of the block
+     * @throws FlooringMasteryPersistenceException if the stored high-water mark cannot be read or written.
      */
-    void loadOrdersFile() throws FlooringMasteryPersistenceException;
+    int nextOrderNumbers(LocalDate date, int count) throws FlooringMasteryPersistenceException;
 
     /**
-     * Deleted the currently loaded Orders file.
-     * We only run this in cases where the file is empty, like when the user began adding the first order for a specific date,
+     * Deletes the Orders file of a date, its journal and its rollup, if the date has no orders left.
+     * We run this in cases where the file is empty, like when the user began adding the first order for a specific date,
      * but then decided to abort order placement. In this case if we do not delete the created Orders file we would be left
      * with an empty file for that date in the program.
      * We also run this method in case the user removed all orders for a specific date so we do not leave an empty orders file.
+     *
+     * @param date the date of the Orders file
+     * @return true if the file was deleted, false if there is no file or another order was added to the date meanwhile
+     * @throws FlooringMasteryPersistenceException if the orders of the date cannot be read.
      */
     
-    void deleteFile();
+    boolean deleteFileIfEmpty(LocalDate date) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Puts right what writes interrupted by a crash left in the orders folder, before anything reads it: a compaction or
+     * archive that was stopped is finished or discarded, and a journal ending in a half-written record is cut back to its
+     * last whole record. The folder is listed once, and only the dates with a journal or compaction file next to their
+     * Orders file are looked at, in parallel; each of them reads no more than the end of its journal. Temp files of an
+     * interrupted rollup write are left as they are: nothing reads them, and the next write of the rollup replaces them.
+     *
+     * @return how many dates were checked and recovered, and how long it took
+     * @throws FlooringMasteryPersistenceException if the files of a date cannot be recovered.
+     */
+    RecoveryResult recoverOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Loads the index of orders across every date, reading again only the Orders files that changed since it was saved.
+     *
+     * @throws FlooringMasteryPersistenceException if an Orders file cannot be read or the index cannot be saved.
+     */
+    void loadOrderIndex() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Rewrites the Orders files of every date before the cutoff in the compact binary format used for order history. The
+     * files keep their names and are read as before; only writeToExportFile still produces the orders as text. A date
+     * with an amount the format cannot hold is left as it is.
+     *
+     * @param cutoffDate the first date that is not archived
+     * @return the number of Orders files archived
+     * @throws FlooringMasteryPersistenceException if an Orders file cannot be read or rewritten.
+     */
+    int archiveOrdersBefore(LocalDate cutoffDate) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Finds every order with the given number, on any date, using the order index.
+     *
+     * @param orderNumber the number of the orders
+     * @return the date, number and customer of each order, in date order
+     */
+    List<OrderLocation> findOrdersByNumber(int orderNumber);
+
+    /**
+     * Finds every order of a customer, on any date, using the order index. The name is matched ignoring case.
+     *
+     * @param customerName the name of the customer
+     * @return the date, number and customer of each order, in date order
+     */
+    List<OrderLocation> findOrdersByCustomer(String customerName);
+
+    /**
+     * Runs a scan over the orders of every Orders file from one date to another, both included, reading the files in
+     * parallel. Only the names of the files outside the range are looked at.
+     *
+     * @param fromDate first date to scan, or null to start at the first Orders file
+     * @param toDate   last date to scan, or null to end at the last Orders file
+     * @param scan     the work to do on the orders of each date
+     * @return the result of the scan of each date, in date order
+     * @throws FlooringMasteryPersistenceException if an Orders file cannot be read.
+     */
+    <T> List<T> scanOrders(LocalDate fromDate, LocalDate toDate, OrdersScan<T> scan) throws FlooringMasteryPersistenceException;
 
     /**
-     * Returns a List of all Orders.
+     * Runs a scan over the daily rollups of every Orders file from one date to another, both included, in parallel. A
+     * rollup holds the count and sums of the orders of its date per state and product and is kept up to date as orders are
+     * added, edited and removed; a date whose rollup is missing or out of date is read from its Orders file instead, and
+     * its rollup is written again.
      *
-     * @return Order List containing all orders from current Orders file.
+     * @param fromDate first date to scan, or null to start at the first Orders file
+     * @param toDate   last date to scan, or null to end at the last Orders file
+     * @param scan     the work to do on the totals of each date
+     * @return the result of the scan of each date, in date order
+     * @throws FlooringMasteryPersistenceException if an Orders file needed to build a rollup cannot be read.
+     */
+    <T> List<T> scanDailyTotals(LocalDate fromDate, LocalDate toDate, DailyTotalsScan<T> scan)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Returns how many times the lock of a date was taken for a change, and how long callers waited for it because another
+     * thread was working on the date.
+     *
+     * @return the current statistics of the date locks
+     */
+    LockStatistics getDateLockStatistics();
+
+    /**
+     * Returns how many times an Orders file was locked, and how long callers waited for the lock because another thread or
+     * another running copy of the program was working on the file.
+     *
+     * @return the current statistics of the Orders file locks
+     */
+    LockStatistics getFileLockStatistics();
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache holding the orders of recently used dates.
+     *
+     * @return the current statistics of the orders cache
+     */
+    CacheStatistics getOrdersCacheStatistics();
+
+    /**
+     * Returns how the writes of orders and audit entries were made durable: how many fsyncs and group commits they took and
+     * the percentiles of the time a write waited to be on disk.
+     *
+     * @return the statistics of the group commit shared by the orders and the audit
+     */
+    CommitStatistics getCommitStatistics();
+
+    /**
+     * Returns the orders of a date. Orders of recently used dates are kept in a cache and only read again if their files have
+     * changed. If the user is adding orders for a particular date, and that date does not exist, it creates a file for them.
+     * This will only happen when the user is ADDING orders, not when DISPLAYING, EDITING or REMOVING orders.
+     *
+     * @param date   the date of the orders
+     * @param action the action the user is taking (displaying, adding, editing, or removing orders); we need this to know
+     *               when to create a new Orders file for a particular date
+     * @return a copy of the orders of the date, which other changes to the date do not affect
+     * @throws FlooringMasteryPersistenceException if we cannot access the Orders file with the date the user is specifying
+     * @throws NoOrdersOnDateException             if the date the user is specifying does not have a corresponding Orders file
      */
     
-    List<Order> getOrdersList();
+    List<Order> getOrders(LocalDate date, Action action) throws FlooringMasteryPersistenceException,
+            NoOrdersOnDateException;
+
+    /**
+     * Looks up an order of a date by its order number, without scanning the orders.
+     *
+     * @param date        the date of the order
+     * @param orderNumber the number of the order
+     * @return the first order with that number, or null if the date has none
+     * @throws FlooringMasteryPersistenceException if the orders of the date cannot be read.
+     */
+    Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Returns the catalog of states and products, for looking them up by state abbreviation or product type. Callers
+     * doing several lookups for one calculation should hold on to the returned catalog, as it may be replaced at any time.
+     *
+     * @return the Catalog built from the Taxes and Products files
+     */
+    Catalog getCatalog();
 
     /**
      * Returns a List of all States.
@@ -96,28 +278,41 @@ public interface FlooringMasteryDao
     List<Product> getProductsList();
 
     /**
-     * Sets the correct name of file to use for the orders, as well as populate the ordersList with orders from that file, if
-     * it contains any.
-     * If the user is adding orders for a particular date, and that date does not exist, it creates a file for them. This will
-     * only happen when the user is ADDING orders, not when DISPLAYING, EDITING or REMOVING orders.
+     * Writes all active orders to the DataExport.txt file under backup folder, in date order. The Orders files are read in
+     * parallel, without holding up changes to the orders. Only the Orders files that changed since the
+     * last export, according to the ExportManifest.txt file under backup folder, are read again; the orders of every other
+     * date are copied from the previous DataExport.txt file.
      *
-     * @param fileName the name of the file we want to use for the orders
-     * @param action   the action the user is taking (displaying, adding, editing, or removing orders); we need this to know when
-     *                 to create a new Orders file for a particular date
-     * @throws FlooringMasteryPersistenceException if we cannot access the Orders file with the date the user is specifying
-     * @throws NoOrdersOnDateException             if the date the user is specifying does not have a corresponding Orders file
+     * @throws FlooringMasteryPersistenceException if we cannot read an Orders file or write the DataExport file
      */
-    void setCurrentOrdersFile(String fileName, Action action) throws FlooringMasteryPersistenceException,
-            NoOrdersOnDateException;
+    void writeToExportFile() throws FlooringMasteryPersistenceException;
 
     /**
-     * Writes all active orders to the DataExport.txt file under backup folder.
+     * Writes the export like {@link #writeToExportFile()}, compressed with GZIP to DataExport.txt.gz under backup folder
+     * unless the compression is NONE. With PARALLEL_GZIP the dates are compressed in parallel and the dates that did not
+     * change are copied from the previous DataExport.txt.gz, according to CompressedExportManifest.txt.
      *
-     * @throws FlooringMasteryPersistenceException if we cannot access the Orders file with the date the user is specifying
-     * @throws NoOrdersOnDateException             if the date the user is specifying does not have a corresponding Orders file
-     *                                             (this should not ever happen in this method the way the program is
-     *                                             structured, and is only needed because this method uses the
-     *                                             setCurrentOrdersFile method, which can throw this exception)
+     * @param compression how the export file is written
+     * @throws FlooringMasteryPersistenceException if we cannot read an Orders file or write the export file
+     */
+    void writeToExportFile(ExportCompression compression) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Tells whether a file is an export file written by writeToExportFile, compressed or not.
+     *
+     * @param file the file to look at
+     * @return true if the file starts with the header of an export file
+     */
+    boolean isExportFile(File file);
+
+    /**
+     * Restores the orders of an export file, compressed or not, with the order numbers and prices they were exported with.
+     * Only dates that have no Orders file are restored; every other date is left as it is and reported as an error at the
+     * line its orders start on.
+     *
+     * @param exportFile the export file to restore from
+     * @return the number of lines read, orders restored and dates restored, and the dates that were not restored
+     * @throws FlooringMasteryPersistenceException if the export file cannot be read or an Orders file cannot be written.
      */
-    void writeToExportFile() throws FlooringMasteryPersistenceException, NoOrdersOnDateException;
+    ImportResult restoreFromExportFile(File exportFile) throws FlooringMasteryPersistenceException;
 }
\ No newline at end of file
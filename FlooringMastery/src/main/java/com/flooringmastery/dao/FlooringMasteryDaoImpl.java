@@ -1,58 +1,186 @@
 package com.flooringmastery.dao;
 
 import java.io.*;
-import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.CacheStatistics;
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.CommitStatistics;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
+import com.flooringmastery.dto.ImportRowError;
+import com.flooringmastery.dto.LockStatistics;
 import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderLocation;
+import com.flooringmastery.dto.RecoveryResult;
 import com.flooringmastery.dto.Product;
 import com.flooringmastery.dto.State;
 
 @Component
-public class FlooringMasteryDaoImpl implements FlooringMasteryDao 
+public class FlooringMasteryDaoImpl implements FlooringMasteryDao, DisposableBean 
 {
 
 	    private final File STATE_FILE;
 	    private final File PRODUCT_FILE;
 	    private final File EXPORT_FILE;
+	    private final File EXPORT_MANIFEST_FILE;
+	    private final File COMPRESSED_EXPORT_FILE;
+	    private final File COMPRESSED_EXPORT_MANIFEST_FILE;
+	    private final File ORDER_INDEX_FILE;
+	    private final File ORDERS_FOLDER;
 	    private final String DELIMITER = ",";
-	    private File currentOrdersFile; // not final, as this file changes
-	    private List<Order> ordersList = new ArrayList<>();
-	    private List<State> statesList = new ArrayList<>();
-	    private List<Product> productsList = new ArrayList<>();
+	    private final String ORDERS_FILE_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot," +
+	            "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+	    private final String EXPORT_FILE_HEADER = ORDERS_FILE_HEADER + ",Date";
+	    private final OrdersFileLocks fileLocks = new OrdersFileLocks();
+	    private final OrderJournal journal = new OrderJournal(ORDERS_FILE_HEADER, DELIMITER, fileLocks);
+	    private final OrderMarshaller marshaller = new OrderMarshaller(DELIMITER);
+	    private final OrdersExporter exporter = new OrdersExporter(journal, marshaller, DELIMITER);
+	    private final OrdersScanner scanner = new OrdersScanner(journal, fileLocks);
+	    private final ExportReader exportReader = new ExportReader(EXPORT_FILE_HEADER, DELIMITER, marshaller);
+	    private final OrdersCache ordersCache;
+	    private final OrderNumberSequencer sequencer;
+	    private volatile OrderIndex orderIndex = new OrderIndex();
+	    private final StripedDateLocks dateLocks = new StripedDateLocks();
+	    private final LockWaits dateLockWaits = new LockWaits();
+	    // Replaced as a whole when the Taxes or Products file changes; volatile so every thread sees the newest catalog.
+	    private volatile Catalog catalog = new Catalog(new ArrayList<>(), new ArrayList<>());
+	    private final AtomicLong catalogVersion = new AtomicLong();
+	    private CatalogReloader catalogReloader;
 
 	    public FlooringMasteryDaoImpl() 
 	    {
-	        STATE_FILE = new File(".\\data\\Taxes.txt");
-	        PRODUCT_FILE = new File(".\\data\\Products.txt");
-	        EXPORT_FILE = new File(".\\backup\\DataExport.txt");
+	        this(OrdersCache.DEFAULT_MAX_ENTRIES, OrdersCache.DEFAULT_MAX_BYTES);
+	    }
+
+	    public FlooringMasteryDaoImpl(int maxCachedDates, long maxCachedBytes) 
+	    {
+	        this(maxCachedDates, maxCachedBytes, false);
+	    }
+
+	    // With globalOrderNumbers, order numbers are unique across all dates instead of only within each date.
+	    public FlooringMasteryDaoImpl(int maxCachedDates, long maxCachedBytes, boolean globalOrderNumbers) 
+	    {
+	        this(new File(".\\orders\\"), new File(".\\data\\Taxes.txt"), new File(".\\data\\Products.txt"),
+	                new File(".\\backup\\DataExport.txt"), new File(".\\backup\\ExportManifest.txt"),
+	                new File(".\\sequences\\"), new File(".\\index\\OrderIndex.txt"), maxCachedDates, maxCachedBytes,
+	                globalOrderNumbers);
+	    }
+
+	    // This Constructor used for testing, keeps every file under the given folder.
+	    public FlooringMasteryDaoImpl(File testFolder) 
+	    {
+	        this(new File(testFolder, "orders"), new File(new File(testFolder, "data"), "Taxes.txt"),
+	                new File(new File(testFolder, "data"), "Products.txt"), new File(new File(testFolder, "backup"),
+	                "DataExport.txt"), new File(new File(testFolder, "backup"), "ExportManifest.txt"),
+	                new File(testFolder, "sequences"), new File(new File(testFolder, "index"), "OrderIndex.txt"),
+	                OrdersCache.DEFAULT_MAX_ENTRIES, OrdersCache.DEFAULT_MAX_BYTES, false);
 	    }
 
-	    // This Constructor used for testing.
-	    public FlooringMasteryDaoImpl(File testFile) 
+	    private FlooringMasteryDaoImpl(File ordersFolder, File stateFile, File productFile, File exportFile,
+	            File exportManifestFile, File sequencesFolder, File orderIndexFile, int maxCachedDates, long maxCachedBytes,
+	            boolean globalOrderNumbers) 
 	    {
-	        currentOrdersFile = testFile;
-	        STATE_FILE = new File(".\\data\\Taxes.txt");
-	        PRODUCT_FILE = new File(".\\data\\Products.txt");
-	        EXPORT_FILE = new File(".\\backup\\DataExport.txt");
+	        ORDERS_FOLDER = ordersFolder;
+	        STATE_FILE = stateFile;
+	        PRODUCT_FILE = productFile;
+	        EXPORT_FILE = exportFile;
+	        EXPORT_MANIFEST_FILE = exportManifestFile;
+	        COMPRESSED_EXPORT_FILE = new File(exportFile.getPath() + ".gz");
+	        COMPRESSED_EXPORT_MANIFEST_FILE = new File(exportManifestFile.getParentFile(), "CompressedExportManifest.txt");
+	        ORDER_INDEX_FILE = orderIndexFile;
+	        ordersCache = new OrdersCache(maxCachedDates, maxCachedBytes);
+	        sequencer = new OrderNumberSequencer(sequencesFolder, globalOrderNumbers);
 	    }
 
 	    @Override
 	    public void loadStatesAndProductsLists() throws FlooringMasteryPersistenceException 
 	    {
-	        loadStateFile();
-	        loadProductFile();
+	        catalog = loadCatalog();
+	        watchStatesAndProductsFiles();
 	    }
 
-	    private void loadProductFile() throws FlooringMasteryPersistenceException 
+	    private Catalog loadCatalog() throws FlooringMasteryPersistenceException 
 	    {
+	        List<State> statesList;
+	        List<Product> productsList;
+	        try 
+	        {
+	            statesList = loadStateFile();
+	            productsList = loadProductFile();
+	        } 
+	        catch (RuntimeException e) 
+	        {
+	            throw new FlooringMasteryPersistenceException("Error. The Taxes or Products file has a line that could not be " +
+	                    "read.", e);
+	        }
+
+	        if (statesList.isEmpty() || productsList.isEmpty()) 
+	        {
+	            throw new FlooringMasteryPersistenceException("Error. The Taxes and Products files must list at least one state " +
+	                    "and one product.");
+	        }
+	        for (State state : statesList) 
+	        {
+	            if (state.getTaxRate().signum() < 0) 
+	            {
+	                throw new FlooringMasteryPersistenceException("Error. The tax rate of " + state.getStateName() +
+	                        " cannot be negative.");
+	            }
+	        }
+	        for (Product product : productsList) 
+	        {
+	            if (product.getCostPerSquareFoot().signum() < 0 || product.getLaborCostPerSquareFoot().signum() < 0) 
+	            {
+	                throw new FlooringMasteryPersistenceException("Error. The costs of " + product.getProductType() +
+	                        " cannot be negative.");
+	            }
+	        }
+	        return new Catalog(statesList, productsList, catalogVersion.incrementAndGet());
+	    }
+
+	    // Changes to the Taxes and Products files are picked up while the program runs, without a restart.
+	    private synchronized void watchStatesAndProductsFiles() 
+	    {
+	        if (catalogReloader != null) 
+	        {
+	            return;
+	        }
+
+	        Path dataFolder = STATE_FILE.getAbsoluteFile().getParentFile().toPath();
+	        Set<String> watchedFileNames = new HashSet<>(Arrays.asList(STATE_FILE.getName(), PRODUCT_FILE.getName()));
+	        try 
+	        {
+	            catalogReloader = new CatalogReloader(dataFolder, watchedFileNames, this::loadCatalog,
+	                    newCatalog -> catalog = newCatalog);
+	        } 
+	        catch (IOException e) 
+	        {
+	            // The program still works with the catalog it loaded; only changes made while it runs are not picked up.
+	            Logger.getLogger(FlooringMasteryDaoImpl.class.getName()).log(Level.WARNING, "Could not watch " + dataFolder +
+	                    " for changes to the Taxes and Products files.", e);
+	        }
+	    }
+
+	    private List<Product> loadProductFile() throws FlooringMasteryPersistenceException 
+	    {
+	        List<Product> productsList = new ArrayList<>();
 	        try (Scanner scanner = new Scanner(new BufferedReader(new FileReader(PRODUCT_FILE)))) 
 	        {
 	            // Getting rid of the Products file header, so we do not add it to the productsList
@@ -61,9 +189,10 @@ public class FlooringMasteryDaoImpl implements FlooringMasteryDao
 	            while (scanner.hasNextLine()) 
 	            {
 	                String currentLine = scanner.nextLine();
-	                Product currentProduct = unmarshallProduct(currentLine);
+	                Product currentProduct = marshaller.unmarshallProduct(currentLine);
 	                productsList.add(currentProduct);
 	            }
+	            return productsList;
 	        } 
 	        catch (FileNotFoundException e) 
 	        {
@@ -72,8 +201,9 @@ public class FlooringMasteryDaoImpl implements FlooringMasteryDao
 	        }
 	    }
 
-	    private void loadStateFile() throws FlooringMasteryPersistenceException 
+	    private List<State> loadStateFile() throws FlooringMasteryPersistenceException 
 	    {
+	        List<State> statesList = new ArrayList<>();
 	        try (Scanner scanner = new Scanner(new BufferedReader(new FileReader(STATE_FILE)))) 
 	        {
 	            // Getting rid of the State file header, so we do not add it to the statesList
@@ -82,9 +212,10 @@ public class FlooringMasteryDaoImpl implements FlooringMasteryDao
 	            while (scanner.hasNextLine()) 
 	            {
 	                String currentLine = scanner.nextLine();
-	                State currentState = unmarshallState(currentLine);
+	                State currentState = marshaller.unmarshallState(currentLine);
 	                statesList.add(currentState);
 	            }
+	            return statesList;
 	        } 
 	        catch (FileNotFoundException e) 
 	        {
@@ -94,25 +225,245 @@ public class FlooringMasteryDaoImpl implements FlooringMasteryDao
 	    }
 
 	    @Override
-	    public void setCurrentOrdersFile(String fileName, Action action) throws FlooringMasteryPersistenceException,
+	    public RecoveryResult recoverOrders() throws FlooringMasteryPersistenceException 
+	    {
+	        long start = System.nanoTime();
+	        String[] fileNames = ORDERS_FOLDER.list();
+	        if (fileNames == null) 
+	        {
+	            return new RecoveryResult(0, 0, 0, 0, 0, 0, System.nanoTime() - start);
+	        }
+
+	        // A date needs recovering only if a journal or compaction file was left next to its Orders file.
+	        Set<String> namesInFolder = new HashSet<>(Arrays.asList(fileNames));
+	        int datesChecked = 0;
+	        List<Future<Set<OrderJournal.Repair>>> recoveries = new ArrayList<>();
+	        for (String fileName : fileNames) 
+	        {
+	            if (!OrdersFiles.isOrdersFile(fileName)) 
+	            {
+	                continue;
+	            }
+	            datesChecked++;
+	            File ordersFile = new File(ORDERS_FOLDER, fileName);
+	            if (namesInFolder.contains(OrderJournal.journalFileFor(ordersFile).getName())
+	                    || namesInFolder.contains(OrderJournal.compactionFileFor(ordersFile).getName())) 
+	            {
+	                recoveries.add(ForkJoinPool.commonPool().submit(() -> recoverDate(OrdersFiles.dateOf(ordersFile))));
+	            }
+	        }
+
+	        int datesRecovered = 0;
+	        Map<OrderJournal.Repair, Integer> repairCounts = new EnumMap<>(OrderJournal.Repair.class);
+	        try 
+	        {
+	            for (Future<Set<OrderJournal.Repair>> recovery : recoveries) 
+	            {
+	                Set<OrderJournal.Repair> repairs = recovery.get();
+	                if (!repairs.isEmpty()) 
+	                {
+	                    datesRecovered++;
+	                }
+	                repairs.forEach(repair -> repairCounts.merge(repair, 1, Integer::sum));
+	            }
+	        } 
+	        catch (InterruptedException e) 
+	        {
+	            Thread.currentThread().interrupt();
+	            throw new FlooringMasteryPersistenceException("Error. Recovering the orders was interrupted.", e);
+	        } 
+	        catch (ExecutionException e) 
+	        {
+	            if (e.getCause() instanceof FlooringMasteryPersistenceException) 
+	            {
+	                throw (FlooringMasteryPersistenceException) e.getCause();
+	            }
+	            throw new FlooringMasteryPersistenceException("Error. Could not recover order data.", e.getCause());
+	        } 
+	        finally 
+	        {
+	            recoveries.forEach(recovery -> recovery.cancel(true));
+	        }
+	        if (datesRecovered > 0) 
+	        {
+	            // Once for every file renamed or deleted in the folder.
+	            try 
+	            {
+	                GroupCommit.forceFolder(ORDERS_FOLDER.toPath());
+	            } 
+	            catch (IOException e) 
+	            {
+	                throw new FlooringMasteryPersistenceException("Error. Could not recover order data.", e);
+	            }
+	        }
+	        return new RecoveryResult(datesChecked, datesRecovered,
+	                repairCounts.getOrDefault(OrderJournal.Repair.COMPACTION_FINISHED, 0),
+	                repairCounts.getOrDefault(OrderJournal.Repair.COMPACTION_DISCARDED, 0),
+	                repairCounts.getOrDefault(OrderJournal.Repair.JOURNAL_TRUNCATED, 0),
+	                repairCounts.getOrDefault(OrderJournal.Repair.EMPTY_JOURNAL_REMOVED, 0), System.nanoTime() - start);
+	    }
+
+	    private Set<OrderJournal.Repair> recoverDate(LocalDate date) throws FlooringMasteryPersistenceException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        lockForWriting(handle);
+	        try 
+	        {
+	            return journal.recover(handle.getOrdersFile());
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
+	        }
+	    }
+
+	    @Override
+	    public void loadOrderIndex() throws FlooringMasteryPersistenceException 
+	    {
+	        OrderIndex loadedIndex = OrderIndex.load(ORDER_INDEX_FILE);
+	        loadedIndex.refresh(ORDERS_FOLDER, scanner::read, ForkJoinPool.commonPool());
+	        loadedIndex.save(ORDER_INDEX_FILE);
+	        orderIndex = loadedIndex;
+	    }
+
+	    @Override
+	    public int archiveOrdersBefore(LocalDate cutoffDate) throws FlooringMasteryPersistenceException 
+	    {
+	        int archivedFiles = 0;
+	        for (File ordersFile : OrdersFiles.listByDate(ORDERS_FOLDER)) 
+	        {
+	            LocalDate date = OrdersFiles.dateOf(ordersFile);
+	            if (!date.isBefore(cutoffDate)) 
+	            {
+	                break;
+	            }
+	            // Held like any change to the date; the cache, index and rollup of the date notice the new file by its stamp.
+	            DateHandle handle = handleFor(date);
+	            lockForWriting(handle);
+	            try 
+	            {
+	                if (journal.archive(ordersFile)) 
+	                {
+	                    archivedFiles++;
+	                }
+	            } 
+	            catch (IOException e) 
+	            {
+	                throw new FlooringMasteryPersistenceException("Error. Could not archive the orders of " + date + ".", e);
+	            } 
+	            finally 
+	            {
+	                unlockForWriting(handle);
+	            }
+	        }
+	        return archivedFiles;
+	    }
+
+	    @Override
+	    public List<Order> getOrders(LocalDate date, Action action) throws FlooringMasteryPersistenceException,
 	            NoOrdersOnDateException 
 	    {
-	        currentOrdersFile = new File(fileName);
+	        DateHandle handle = handleFor(date);
 
 	        // If the user wants to add an order, and the Orders file for that date doesn't exist, creates it.
-	        if (action == Action.ADD) 
+	        if (action == Action.ADD && !handle.getOrdersFile().exists()) 
+	        {
+	            lockForWriting(handle);
+	            try 
+	            {
+	                // Another program may have created it meanwhile.
+	                if (!handle.getOrdersFile().exists()) 
+	                {
+	                    createNewOrdersFile(handle.getOrdersFile());
+	                }
+	            } 
+	            finally 
+	            {
+	                unlockForWriting(handle);
+	            }
+	        }
+
+	        handle.getLock().readLock().lock();
+	        try 
 	        {
-	            if (!currentOrdersFile.exists()) 
+	            if (!handle.getOrdersFile().exists()) 
 	            {
-	                createNewOrdersFile(currentOrdersFile);
+	                throw new NoOrdersOnDateException("There are no orders for the specified date.");
 	            }
+	            // A copy, so the caller can go through the orders while other callers change the date.
+	            return new ArrayList<>(ordersOf(handle));
+	        } 
+	        finally 
+	        {
+	            handle.getLock().readLock().unlock();
+	        }
+	    }
+
+	    @Override
+	    public Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        handle.getLock().readLock().lock();
+	        try 
+	        {
+	            return handle.getOrdersFile().exists() ? ordersOf(handle).find(orderNumber) : null;
+	        } 
+	        finally 
+	        {
+	            handle.getLock().readLock().unlock();
+	        }
+	    }
+
+	    private DateHandle handleFor(LocalDate date) 
+	    {
+	        return new DateHandle(date, OrdersFiles.fileFor(ORDERS_FOLDER, date), dateLocks.forDate(date));
+	    }
+
+	    // Changes to a date hold its write lock, against other threads, and the lock of its Orders file, against other running
+	    // copies of the program. Under both, ordersOf sees every change made before, as a change by another program alters the
+	    // stamp of the files. Must be followed by unlockForWriting in a finally block.
+	    private void lockForWriting(DateHandle handle) throws FlooringMasteryPersistenceException 
+	    {
+	        long start = System.nanoTime();
+	        handle.getLock().writeLock().lock();
+	        dateLockWaits.record(System.nanoTime() - start);
+	        try 
+	        {
+	            fileLocks.lock(handle.getOrdersFile());
 	        } 
-	        else if (!currentOrdersFile.exists()) 
+	        catch (FlooringMasteryPersistenceException e) 
 	        {
-	            throw new NoOrdersOnDateException("There are no orders for the specified date.");
+	            handle.getLock().writeLock().unlock();
+	            throw e;
 	        }
+	    }
 
-	        loadOrdersFile();
+	    private void unlockForWriting(DateHandle handle) 
+	    {
+	        fileLocks.unlock(handle.getOrdersFile());
+	        handle.getLock().writeLock().unlock();
+	    }
+
+	    // Must be called holding the read or write lock of the date. Reuses the orders parsed the last time the date was used,
+	    // unless its files have changed since then.
+	    private OrderBook ordersOf(DateHandle handle) throws FlooringMasteryPersistenceException 
+	    {
+	        // The stamp is taken before reading, so a change made outside the program while we read is noticed next time.
+	        FileStamp stamp = FileStamp.of(handle.getOrdersFile());
+	        OrderBook cachedOrders = ordersCache.get(handle.getDate(), stamp);
+	        if (cachedOrders != null) 
+	        {
+	            return cachedOrders;
+	        }
+
+	        // The journal replays every add, edit and removal made since the Orders file was last compacted.
+	        OrderBook orders = new OrderBook();
+	        for (Order currentOrder : journal.readOrders(handle.getOrdersFile())) 
+	        {
+	            orders.add(currentOrder);
+	        }
+	        ordersCache.put(handle.getDate(), stamp, orders);
+	        return orders;
 	    }
 
 	    private void createNewOrdersFile(File newOrdersFile) throws FlooringMasteryPersistenceException 
@@ -128,189 +479,424 @@ public class FlooringMasteryDaoImpl implements FlooringMasteryDao
 	    }
 
 	    @Override
-	    public void loadOrdersFile() throws FlooringMasteryPersistenceException 
+	    public void addOrder(LocalDate date, Order newOrder) throws FlooringMasteryPersistenceException 
 	    {
-	        // Clearing list, so it can be populated with current information as we changed Orders file or edited its contents.
-	        ordersList.clear();
-
-	        try (Scanner scanner = new Scanner(new BufferedReader(new FileReader(currentOrdersFile)))) 
+	        DateHandle handle = handleFor(date);
+	        GroupCommit.Commit commit;
+	        lockForWriting(handle);
+	        try 
 	        {
-	            // Getting rid of the Orders file header, so we do not add it to the ordersList
-	            if (scanner.hasNextLine()) 
+	            // The empty file may have been deleted by a session that cancelled its own first order for the date.
+	            if (!handle.getOrdersFile().exists()) 
 	            {
-	                scanner.nextLine();
+	                createNewOrdersFile(handle.getOrdersFile());
 	            }
+	            OrderBook orders = ordersOf(handle);
+	            FileStamp before = FileStamp.of(handle.getOrdersFile());
+	            commit = journal.appendAdd(handle.getOrdersFile(), marshaller.marshallOrder(newOrder));
+	            orders.add(newOrder);
+	            ordersChanged(handle, orders, before, List.of(), List.of(newOrder));
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
+	        }
+	        journal.awaitDurable(commit);
+	    }
 
-	            while (scanner.hasNextLine()) 
+	    @Override
+	    public void addOrders(LocalDate date, List<Order> newOrders) throws FlooringMasteryPersistenceException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        GroupCommit.Commit commit;
+	        lockForWriting(handle);
+	        try 
+	        {
+	            if (!handle.getOrdersFile().exists()) 
 	            {
-	                String currentLine = scanner.nextLine();
-	                Order currentOrder = unmarshallOrder(currentLine);
-	                ordersList.add(currentOrder);
+	                createNewOrdersFile(handle.getOrdersFile());
 	            }
+	            commit = appendOrders(handle, newOrders);
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
 	        }
-	        
-	        catch (FileNotFoundException e) 
+	        journal.awaitDurable(commit);
+	    }
+
+	    // Must be called holding the write lock of the date, with its Orders file in place. The returned commit is waited for
+	    // once the locks are released.
+	    private GroupCommit.Commit appendOrders(DateHandle handle, List<Order> newOrders) 
+	            throws FlooringMasteryPersistenceException 
+	    {
+	        OrderBook orders = ordersOf(handle);
+	        FileStamp before = FileStamp.of(handle.getOrdersFile());
+	        List<String> ordersAsText = new ArrayList<>(newOrders.size());
+	        for (Order newOrder : newOrders) 
 	        {
-	            throw new FlooringMasteryPersistenceException("Could not load file into memory.");
+	            ordersAsText.add(marshaller.marshallOrder(newOrder));
 	        }
+	        // One write of the journal, the order index and the rollup, however many orders there are.
+	        GroupCommit.Commit commit = journal.appendAdds(handle.getOrdersFile(), ordersAsText);
+	        orders.addAll(newOrders);
+	        ordersChanged(handle, orders, before, List.of(), newOrders);
+	        return commit;
+	    }
+
+	    @Override
+	    public int nextOrderNumber(LocalDate date) throws FlooringMasteryPersistenceException 
+	    {
+	        return nextOrderNumbers(date, 1);
 	    }
 
 	    @Override
-	    public void addOrder(Order newOrder) throws FlooringMasteryPersistenceException 
+	    public int nextOrderNumbers(LocalDate date, int count) throws FlooringMasteryPersistenceException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        handle.getLock().readLock().lock();
+	        try 
+	        {
+	            // The orders are only scanned the first time a date, or the global sequence, gets a number from the sequencer.
+	            return sequencer.next(date, count, () -> highestOrderNumberOf(handle), this::highestOrderNumberOfAnyDate);
+	        } 
+	        finally 
+	        {
+	            handle.getLock().readLock().unlock();
+	        }
+	    }
+
+	    private int highestOrderNumberOf(DateHandle handle) throws FlooringMasteryPersistenceException 
+	    {
+	        int maxOrderNumber = 0;
+	        if (handle.getOrdersFile().exists()) 
+	        {
+	            for (Order order : ordersOf(handle)) 
+	            {
+	                maxOrderNumber = Math.max(maxOrderNumber, order.getOrderNumber());
+	            }
+	        }
+	        return maxOrderNumber;
+	    }
+
+	    private int highestOrderNumberOfAnyDate() throws FlooringMasteryPersistenceException 
 	    {
-	        ordersList.add(newOrder);
-	        writeOrdersFile(ordersList);
+	        int maxOrderNumber = 0;
+	        for (File ordersFile : OrdersFiles.listByDate(ORDERS_FOLDER)) 
+	        {
+	            for (Order order : journal.readOrders(ordersFile)) 
+	            {
+	                maxOrderNumber = Math.max(maxOrderNumber, order.getOrderNumber());
+	            }
+	        }
+	        return maxOrderNumber;
 	    }
 
 	    @Override
-	    public void editOrder() throws FlooringMasteryPersistenceException 
+	    public void editOrder(LocalDate date, Order originalOrder, Order editedOrder) throws FlooringMasteryPersistenceException,
+	            StaleOrdersFileException 
 	    {
-	        writeOrdersFile(ordersList);
+	        DateHandle handle = handleFor(date);
+	        GroupCommit.Commit commit;
+	        lockForWriting(handle);
+	        try 
+	        {
+	            // The order as it is now serves as its version: the edit only goes ahead if nobody changed the order since the
+	            // caller read it.
+	            OrderBook orders = handle.getOrdersFile().exists() ? ordersOf(handle) : new OrderBook();
+	            if (!originalOrder.equals(orders.find(editedOrder.getOrderNumber()))) 
+	            {
+	                throw new StaleOrdersFileException("Order number " + editedOrder.getOrderNumber() + " was changed or " +
+	                        "removed by someone else since it was loaded. Please load the order again and retry the edit.");
+	            }
+
+	            FileStamp before = FileStamp.of(handle.getOrdersFile());
+	            commit = journal.appendEdit(handle.getOrdersFile(), marshaller.marshallOrder(editedOrder));
+	            orders.replace(editedOrder);
+	            ordersChanged(handle, orders, before, List.of(originalOrder), List.of(editedOrder));
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
+	        }
+	        journal.awaitDurable(commit);
 	    }
 
 	    @Override
-	    public void removeOrder(Order order) throws FlooringMasteryPersistenceException 
+	    public void removeOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException,
+	            StaleOrdersFileException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        GroupCommit.Commit commit;
+	        lockForWriting(handle);
+	        try 
+	        {
+	            // Only an order that is still there as it was read is removed, so two sessions removing the same order remove
+	            // it once, and an order someone else just edited is not removed unseen.
+	            OrderBook orders = handle.getOrdersFile().exists() ? ordersOf(handle) : new OrderBook();
+	            if (!orders.contains(order)) 
+	            {
+	                throw new StaleOrdersFileException("Order number " + order.getOrderNumber() + " was changed or removed " +
+	                        "by someone else since it was loaded. Please load the order again and retry.");
+	            }
+
+	            FileStamp before = FileStamp.of(handle.getOrdersFile());
+	            commit = journal.appendRemove(handle.getOrdersFile(), marshaller.marshallOrder(order));
+	            orders.remove(order);
+	            ordersChanged(handle, orders, before, List.of(order), List.of());
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
+	        }
+	        journal.awaitDurable(commit);
+	    }
+
+	    // Must be called holding the locks taken by lockForWriting. The cached orders already hold our own change, so they stay valid
+	    // for the files we just wrote, and the order index and the rollup only need the change itself.
+	    private void ordersChanged(DateHandle handle, OrderBook orders, FileStamp before, List<Order> removed,
+	            List<Order> added) 
 	    {
-	        ordersList.remove(order);
-	        writeOrdersFile(ordersList);
+	        FileStamp after = FileStamp.of(handle.getOrdersFile());
+	        ordersCache.restamp(handle.getDate(), after);
+	        orderIndex.update(handle.getDate(), before, after, removed, added, orders);
+	        updateRollup(handle, orders, before, after, removed, added);
 	    }
 
-	    private void writeOrdersFile(List<Order> orderList) throws FlooringMasteryPersistenceException 
+	    // The rollup only needs the change, unless it was already out of date; it is then built again from the orders.
+	    private void updateRollup(DateHandle handle, OrderBook orders, FileStamp before, FileStamp after, List<Order> removed,
+	            List<Order> added) 
 	    {
-	        try (PrintWriter out = new PrintWriter(new FileWriter(currentOrdersFile))) 
+	        File ordersFile = handle.getOrdersFile();
+	        DailyRollup rollup = DailyRollup.read(ordersFile);
+	        if (rollup == null || !rollup.getStamp().equals(before)) 
 	        {
-	            String ordersFileHeader = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot," +
-	                    "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
-	            out.println(ordersFileHeader);
+	            rollup = DailyRollup.of(after, orders);
+	        } 
+	        else 
+	        {
+	            removed.forEach(rollup::remove);
+	            added.forEach(rollup::add);
+	            rollup.setStamp(after);
+	        }
 
-	            orderList.forEach(order -> {
-	                String orderAsText = marshallOrder(order);
-	                out.println(orderAsText);
-	                out.flush();
-	            });
+	        try 
+	        {
+	            rollup.write(ordersFile);
 	        } 
 	        catch (IOException e) 
 	        {
-	            throw new FlooringMasteryPersistenceException("Error. Could not write order data to file.");
+	            // The order itself was saved; a rollup that is missing or out of date is built again by the next report.
+	            DailyRollup.delete(ordersFile);
+	            Logger.getLogger(FlooringMasteryDaoImpl.class.getName()).log(Level.WARNING, "Could not update the rollup of " +
+	                    ordersFile + ".", e);
+	        }
+	    }
+
+	    @Override
+	    public boolean deleteFileIfEmpty(LocalDate date) throws FlooringMasteryPersistenceException 
+	    {
+	        DateHandle handle = handleFor(date);
+	        lockForWriting(handle);
+	        try 
+	        {
+	            // Checked under the lock, as another session may have just added an order to the date.
+	            if (!handle.getOrdersFile().exists() || !ordersOf(handle).isEmpty()) 
+	            {
+	                return false;
+	            }
+	            journal.deleteOrdersFile(handle.getOrdersFile());
+	            ordersCache.invalidate(date);
+	            orderIndex.removeDate(date);
+	            DailyRollup.delete(handle.getOrdersFile());
+	            return true;
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
 	        }
 	    }
 
 	    @Override
-	    public void deleteFile() 
+	    public LockStatistics getDateLockStatistics() 
 	    {
-	        currentOrdersFile.delete();
+	        return dateLockWaits.getStatistics();
 	    }
 
 	    @Override
-	    public List<Order> getOrdersList() 
+	    public LockStatistics getFileLockStatistics() 
 	    {
-	        return ordersList;
+	        return fileLocks.getStatistics();
 	    }
 
 	    @Override
-	    public List<State> getStatesList() 
+	    public CacheStatistics getOrdersCacheStatistics() 
 	    {
-	        return statesList;
+	        return ordersCache.getStatistics();
 	    }
 
 	    @Override
-	    public List<Product> getProductsList() 
+	    public CommitStatistics getCommitStatistics() 
 	    {
-	        return productsList;
+	        return GroupCommit.SHARED.getStatistics();
 	    }
 
-	    private String getDateAsString(File orderFile) 
+	    @Override
+	    public List<OrderLocation> findOrdersByNumber(int orderNumber) 
 	    {
-	        String[] fileTokens = orderFile.getName().split("_|\\.");
-	        String unformattedDate = fileTokens[1];
-	        LocalDate ld = LocalDate.parse(unformattedDate, DateTimeFormatter.ofPattern("MMddyyyy"));
-	        return ld.format(DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+	        return orderIndex.findByOrderNumber(orderNumber);
 	    }
 
-	    public void writeToExportFile() throws FlooringMasteryPersistenceException, NoOrdersOnDateException 
+	    @Override
+	    public List<OrderLocation> findOrdersByCustomer(String customerName) 
 	    {
-	        try (PrintWriter out = new PrintWriter(new FileWriter(EXPORT_FILE))) 
-	        {
-	            String exportFileHeader = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot," +
-	                    "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,Date";
-	            out.println(exportFileHeader);
+	        return orderIndex.findByCustomer(customerName);
+	    }
+
+	    @Override
+	    public <T> List<T> scanOrders(LocalDate fromDate, LocalDate toDate, OrdersScan<T> scan) 
+	            throws FlooringMasteryPersistenceException 
+	    {
+	        return scanner.scan(ORDERS_FOLDER, fromDate, toDate, scan);
+	    }
 
-	            //collects files from the orders folder
-	            File folder = new File(".\\orders\\");
-	            File[] orderFiles = folder.listFiles();
+	    @Override
+	    public <T> List<T> scanDailyTotals(LocalDate fromDate, LocalDate toDate, DailyTotalsScan<T> scan) 
+	            throws FlooringMasteryPersistenceException 
+	    {
+	        return scanner.scanTotals(ORDERS_FOLDER, fromDate, toDate, scan);
+	    }
 
-	            //for each file under orders folder
-	            for (File file : orderFiles) {
-	                setCurrentOrdersFile(".\\orders\\" + file.getName(), Action.DISPLAY);
+	    @Override
+	    public Catalog getCatalog() 
+	    {
+	        return catalog;
+	    }
 
-	                //write each order to EXPORT_FILE
-	                ordersList.forEach(order -> 
-	                {
-	                    String orderAsText = marshallOrder(order) + ", " + getDateAsString(file);
-	                    out.println(orderAsText);
-	                    out.flush();
-	                });
-	            }
+	    @Override
+	    public List<State> getStatesList() 
+	    {
+	        return catalog.getStates();
+	    }
+
+	    @Override
+	    public List<Product> getProductsList() 
+	    {
+	        return catalog.getProducts();
+	    }
+
+	    @Override
+	    public void writeToExportFile() throws FlooringMasteryPersistenceException 
+	    {
+	        writeToExportFile(ExportCompression.NONE);
+	    }
+
+	    @Override
+	    public void writeToExportFile(ExportCompression compression) throws FlooringMasteryPersistenceException 
+	    {
+	        // The exporter reads the Orders files on its own, through their journals, without holding any date's lock.
+	        if (compression == ExportCompression.NONE) 
+	        {
+	            exporter.export(ORDERS_FOLDER, EXPORT_FILE, EXPORT_MANIFEST_FILE, EXPORT_FILE_HEADER, compression);
 	        } 
-	        catch (IOException e) 
+	        else 
 	        {
-	            throw new FlooringMasteryPersistenceException("Error. Could not write data to file.");
+	            exporter.export(ORDERS_FOLDER, COMPRESSED_EXPORT_FILE, COMPRESSED_EXPORT_MANIFEST_FILE, EXPORT_FILE_HEADER,
+	                    compression);
 	        }
 	    }
 
-	    private String marshallOrder(Order order) 
+	    @Override
+	    public boolean isExportFile(File file) 
 	    {
-	        String orderAsText = order.getOrderNumber() + DELIMITER;
-	        orderAsText += order.getCustomerName() + DELIMITER;
-	        orderAsText += order.getState() + DELIMITER;
-	        orderAsText += order.getTaxRate() + DELIMITER;
-	        orderAsText += order.getProductType() + DELIMITER;
-	        orderAsText += order.getArea() + DELIMITER;
-	        orderAsText += order.getCostPerSquareFoot() + DELIMITER;
-	        orderAsText += order.getLaborCostPerSquareFoot() + DELIMITER;
-	        orderAsText += order.getMaterialCost() + DELIMITER;
-	        orderAsText += order.getLaborCost() + DELIMITER;
-	        orderAsText += order.getTax() + DELIMITER;
-	        orderAsText += order.getTotal();
-	        return orderAsText;
+	        return exportReader.isExportFile(file);
 	    }
 
-	    private Order unmarshallOrder(String orderAsText) 
+	    @Override
+	    public ImportResult restoreFromExportFile(File exportFile) throws FlooringMasteryPersistenceException 
 	    {
-	        String[] orderTokens = orderAsText.split(DELIMITER);
-	        Order currentOrder = new Order();
-	        currentOrder.setOrderNumber(Integer.parseInt(orderTokens[0]));
-	        currentOrder.setCustomerName(orderTokens[1]);
-	        currentOrder.setState(orderTokens[2]);
-	        currentOrder.setTaxRate(new BigDecimal(orderTokens[3]));
-	        currentOrder.setProductType(orderTokens[4]);
-	        currentOrder.setArea(new BigDecimal(orderTokens[5]));
-	        currentOrder.setCostPerSquareFoot(new BigDecimal(orderTokens[6]));
-	        currentOrder.setLaborCostPerSquareFoot(new BigDecimal(orderTokens[7]));
-	        currentOrder.setMaterialCost(new BigDecimal(orderTokens[8]));
-	        currentOrder.setLaborCost(new BigDecimal(orderTokens[9]));
-	        currentOrder.setTax(new BigDecimal(orderTokens[10]));
-	        currentOrder.setTotal(new BigDecimal(orderTokens[11]));
-	        return currentOrder;
+	        long start = System.nanoTime();
+	        long[] ordersRestored = new long[1];
+	        int[] datesRestored = new int[1];
+	        List<ImportRowError> skippedDates = new ArrayList<>();
+	        long linesRead;
+	        try 
+	        {
+	            linesRead = exportReader.read(exportFile, (date, firstLineNumber, orders) -> 
+	            {
+	                if (restoreDate(date, orders)) 
+	                {
+	                    ordersRestored[0] += orders.size();
+	                    datesRestored[0]++;
+	                } 
+	                else 
+	                {
+	                    skippedDates.add(new ImportRowError(firstLineNumber, "The " + orders.size() + " orders of " + date
+	                            + " were not restored because the date already has orders."));
+	                }
+	            });
+	        } 
+	        catch (IOException e) 
+	        {
+	            throw new FlooringMasteryPersistenceException("Error. Could not read the export file " + exportFile.getName()
+	                    + ".", e);
+	        }
+	        return new ImportResult(linesRead, ordersRestored[0], datesRestored[0], skippedDates, System.nanoTime() - start);
 	    }
 
-	    private State unmarshallState(String stateAsText) 
+	    // Only a date without an Orders file is restored, so a restore never mixes exported orders with newer ones.
+	    private boolean restoreDate(LocalDate date, List<Order> orders) throws FlooringMasteryPersistenceException 
 	    {
-	        String[] stateTokens = stateAsText.split(DELIMITER);
-	        State currentState = new State();
-	        currentState.setStateAbbreviation(stateTokens[0]);
-	        currentState.setStateName(stateTokens[1]);
-	        currentState.setTaxRate(new BigDecimal(stateTokens[2]));
-	        return currentState;
+	        DateHandle handle = handleFor(date);
+	        GroupCommit.Commit commit;
+	        lockForWriting(handle);
+	        try 
+	        {
+	            if (handle.getOrdersFile().exists()) 
+	            {
+	                return false;
+	            }
+	            createNewOrdersFile(handle.getOrdersFile());
+	            commit = appendOrders(handle, orders);
+	        } 
+	        finally 
+	        {
+	            unlockForWriting(handle);
+	        }
+	        journal.awaitDurable(commit);
+	        return true;
 	    }
-
-	    private Product unmarshallProduct(String productAsText)
+	
+	    /**
+	     * Saves the order index and stops watching the Taxes and Products files. An index left unsaved, e.g. after a crash,
+	     * is still safe: the dates changed since it was last saved no longer match their stamps and are read again.
+	     */
+	    @Override
+	    public void destroy() throws FlooringMasteryPersistenceException, IOException 
 	    {
-	        String[] productToken = productAsText.split(DELIMITER);
-	        Product product = new Product();
-	        product.setProductType(productToken[0]);
-	        product.setCostPerSquareFoot(new BigDecimal(productToken[1]));
-	        product.setLaborCostPerSquareFoot(new BigDecimal(productToken[2]));
-	        return product;
+	        if (catalogReloader != null) 
+	        {
+	            catalogReloader.close();
+	        }
+	        orderIndex.save(ORDER_INDEX_FILE);
+
+	        LockStatistics dateLockStatistics = getDateLockStatistics();
+	        LockStatistics fileLockStatistics = getFileLockStatistics();
+	        Logger.getLogger(FlooringMasteryDaoImpl.class.getName()).info(() -> "Waited " +
+	                TimeUnit.NANOSECONDS.toMillis(dateLockStatistics.getTotalWaitNanos()) + " ms in total for " +
+	                dateLockStatistics.getAcquisitions() + " date locks (longest " +
+	                TimeUnit.NANOSECONDS.toMillis(dateLockStatistics.getMaxWaitNanos()) + " ms) and " +
+	                TimeUnit.NANOSECONDS.toMillis(fileLockStatistics.getTotalWaitNanos()) + " ms for " +
+	                fileLockStatistics.getAcquisitions() + " Orders file locks (longest " +
+	                TimeUnit.NANOSECONDS.toMillis(fileLockStatistics.getMaxWaitNanos()) + " ms).");
+
+	        CommitStatistics commitStatistics = getCommitStatistics();
+	        Logger.getLogger(FlooringMasteryDaoImpl.class.getName()).info(() -> commitStatistics.getCommits() +
+	                " writes made durable by " + commitStatistics.getFsyncs() + " fsyncs in " +
+	                commitStatistics.getBatches() + " group commits; commit latency p50 " +
+	                TimeUnit.NANOSECONDS.toMicros(commitStatistics.getP50Nanos()) + " us, p90 " +
+	                TimeUnit.NANOSECONDS.toMicros(commitStatistics.getP90Nanos()) + " us, p99 " +
+	                TimeUnit.NANOSECONDS.toMicros(commitStatistics.getP99Nanos()) + " us, max " +
+	                TimeUnit.NANOSECONDS.toMicros(commitStatistics.getMaxNanos()) + " us.");
 	    }
 	}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.flooringmastery.dao;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.flooringmastery.dto.CommitStatistics;
+
+/**
+ * Makes written files durable with as few fsyncs as possible. A writer hands over the file it wrote and later waits for
+ * its commit; a single committer thread takes every file handed over since its last round and forces each of them to disk
+ * once, then releases every writer of the round together. While one round is on disk the next one fills up, so the more
+ * writers there are at the same time, the more writes share an fsync, and a lone writer waits for a single one.
+ * <p>
+ * The order journals and the audit files share one committer, {@link #SHARED}, so an order and its audit entry are made
+ * durable by the same rounds. A file created by a write also has its folder forced, so the new file is still there after
+ * a crash. A file deleted before its round, like a journal folded into its Orders file by a compaction, which forces its
+ * own output, needs no fsync.
+ */
+final class GroupCommit
+{
+
+    static final GroupCommit SHARED = new GroupCommit("group-commit");
+
+    private final Object lock = new Object();
+    private Round openRound = new Round();
+    private final LatencyHistogram commitLatencies = new LatencyHistogram();
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+
+    GroupCommit(String threadName)
+    {
+        Thread committer = new Thread(this::commitRounds, threadName);
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * A write waiting to be durable.
+     */
+    static final class Commit
+    {
+        private final Round round;
+        private final long requestedNanos;
+
+        private Commit(Round round, long requestedNanos)
+        {
+            this.round = round;
+            this.requestedNanos = requestedNanos;
+        }
+    }
+
+    /**
+     * Adds a written file to the next round, without waiting for it.
+     *
+     * @param created true if the write created the file, so its folder has to be forced as well
+     */
+    Commit request(Path file, boolean created)
+    {
+        long requestedNanos = System.nanoTime();
+        synchronized (lock)
+        {
+            openRound.files.add(file);
+            if (created && file.getParent() != null)
+            {
+                openRound.folders.add(file.getParent());
+            }
+            openRound.commits++;
+            lock.notifyAll();
+            return new Commit(openRound, requestedNanos);
+        }
+    }
+
+    /**
+     * Waits until the round of the commit has forced its file to disk.
+     *
+     * @throws IOException if a file of the round could not be forced
+     */
+    void await(Commit commit) throws IOException
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                commit.round.done.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                // The write has already happened; only its durability is left to wait for.
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        commitLatencies.record(System.nanoTime() - commit.requestedNanos);
+        if (commit.round.failure != null)
+        {
+            throw new IOException("Could not force the written files to disk.", commit.round.failure);
+        }
+    }
+
+    void sync(Path file, boolean created) throws IOException
+    {
+        await(request(file, created));
+    }
+
+    CommitStatistics getStatistics()
+    {
+        return new CommitStatistics(commitLatencies.count(), rounds.sum(), fsyncs.sum(),
+                commitLatencies.percentileNanos(0.50), commitLatencies.percentileNanos(0.90),
+                commitLatencies.percentileNanos(0.99), commitLatencies.maxNanos());
+    }
+
+    private void commitRounds()
+    {
+        while (true)
+        {
+            Round round;
+            synchronized (lock)
+            {
+                while (openRound.commits == 0)
+                {
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // The committer runs for as long as the program does.
+                    }
+                }
+                round = openRound;
+                openRound = new Round();
+            }
+            commit(round);
+        }
+    }
+
+    private void commit(Round round)
+    {
+        for (Path file : round.files)
+        {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+            {
+                channel.force(false);
+                fsyncs.increment();
+            }
+            catch (NoSuchFileException e)
+            {
+                // Deleted since it was written; whatever replaced it was forced by whoever replaced it.
+            }
+            catch (IOException e)
+            {
+                round.failure = e;
+            }
+        }
+        for (Path folder : round.folders)
+        {
+            try
+            {
+                forceFolder(folder);
+            }
+            catch (IOException e)
+            {
+                round.failure = e;
+            }
+        }
+        rounds.increment();
+        round.done.countDown();
+    }
+
+    /**
+     * Forces the entries of a folder to disk, so the files created, renamed or deleted in it stay that way after a crash.
+     * Not every platform can open a folder for this, e.g. Windows, where the file system keeps its entries itself; there
+     * it does nothing.
+     *
+     * @throws IOException if the folder was opened but could not be forced, so its entries may not be on disk
+     */
+    static void forceFolder(Path folder) throws IOException
+    {
+        FileChannel channel;
+        try
+        {
+            channel = FileChannel.open(folder, StandardOpenOption.READ);
+        }
+        catch (IOException e)
+        {
+            // Folders cannot be opened here.
+            return;
+        }
+        try (channel)
+        {
+            channel.force(true);
+        }
+    }
+
+    private static final class Round
+    {
+        private final Set<Path> files = new LinkedHashSet<>();
+        private final Set<Path> folders = new LinkedHashSet<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int commits;
+        // Written by the committer before done is counted down.
+        private volatile IOException failure;
+    }
+}
@@ -0,0 +1,98 @@
+package com.flooringmastery.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Counts latencies in buckets that grow with the latency, four buckets for every power of two, so a percentile is known to
+ * within a fifth of its value with a fixed, small amount of memory. Recording does not lock.
+ */
+class LatencyHistogram
+{
+
+    private static final int BUCKETS_PER_POWER_OF_TWO = 4;
+    private static final int BUCKETS = 64 * BUCKETS_PER_POWER_OF_TWO;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos)
+    {
+        long latency = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(latency));
+        maxNanos.accumulate(latency);
+    }
+
+    long count()
+    {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    long maxNanos()
+    {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param fraction the share of latencies that are at most the returned one, e.g. 0.99
+     * @return the upper bound of the bucket the percentile falls in, never more than the largest latency recorded
+     */
+    long percentileNanos(double fraction)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += snapshot[bucket];
+            if (seen >= rank)
+            {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    // Latencies below four have a bucket each; above, the power of two and the two bits after the highest one pick it.
+    private static int bucketOf(long nanos)
+    {
+        if (nanos < BUCKETS_PER_POWER_OF_TWO)
+        {
+            return (int) nanos;
+        }
+        int powerOfTwo = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) ((nanos >>> (powerOfTwo - 2)) & (BUCKETS_PER_POWER_OF_TWO - 1));
+        return powerOfTwo * BUCKETS_PER_POWER_OF_TWO + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket)
+    {
+        if (bucket < BUCKETS_PER_POWER_OF_TWO)
+        {
+            return bucket;
+        }
+        int powerOfTwo = bucket / BUCKETS_PER_POWER_OF_TWO;
+        int subBucket = bucket % BUCKETS_PER_POWER_OF_TWO;
+        if (powerOfTwo >= 62 && subBucket == BUCKETS_PER_POWER_OF_TWO - 1)
+        {
+            return Long.MAX_VALUE;
+        }
+        return ((long) (BUCKETS_PER_POWER_OF_TWO + subBucket + 1) << (powerOfTwo - 2)) - 1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.flooringmastery.dao;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.flooringmastery.dto.LockStatistics;
+
+/**
+ * Counts how often a kind of lock was taken and how long callers waited for it. Recording does not lock, so it adds nothing
+ * to the waits it measures.
+ */
+class LockWaits
+{
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    void record(long waitNanos)
+    {
+        acquisitions.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+    }
+
+    LockStatistics getStatistics()
+    {
+        return new LockStatistics(acquisitions.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+}
@@ -0,0 +1,122 @@
+package com.flooringmastery.dao;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * The orders of one date in the order of their Orders file, indexed by order number so an order can be found, edited or
+ * removed without scanning the whole date. Order numbers are not unique in older files, so a number can map to several
+ * orders; as with the list this replaces, looking up or editing a number acts on the first order with that number, and
+ * removing an order removes the first one equal to it. The book is itself a read-only list, so it can be shown as before,
+ * and it reflects every later change made to the book. A book is not synchronized: it is changed only while holding the
+ * write lock of its date, and read only while holding its read or write lock.
+ */
+class OrderBook extends AbstractList<Order>
+{
+
+    // Every order gets an increasing slot number when it is added, so slots keep the orders in file order.
+    private final LinkedHashMap<Long, Order> ordersBySlot = new LinkedHashMap<>();
+    private final Map<Integer, List<Long>> slotsByOrderNumber = new HashMap<>();
+    private long nextSlot;
+    // The orders in order for get(int), null after a change until it is needed again. Readers of a date may build it at the
+    // same time, each from the same unchanged orders, so it is published as one volatile field.
+    private volatile Order[] snapshot;
+
+    /**
+     * @return the first order with the given order number, or null if there is none
+     */
+    Order find(int orderNumber)
+    {
+        List<Long> slots = slotsByOrderNumber.get(orderNumber);
+        return slots == null ? null : ordersBySlot.get(slots.get(0));
+    }
+
+    /**
+     * Replaces the first order with the same order number as the edited order, keeping its place in the book.
+     *
+     * @return false if there is no order with that number
+     */
+    boolean replace(Order editedOrder)
+    {
+        List<Long> slots = slotsByOrderNumber.get(editedOrder.getOrderNumber());
+        if (slots == null)
+        {
+            return false;
+        }
+        ordersBySlot.put(slots.get(0), editedOrder);
+        snapshot = null;
+        return true;
+    }
+
+    @Override
+    public boolean add(Order order)
+    {
+        long slot = nextSlot++;
+        ordersBySlot.put(slot, order);
+        slotsByOrderNumber.computeIfAbsent(order.getOrderNumber(), orderNumber -> new ArrayList<>(1)).add(slot);
+        changed();
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        if (!(o instanceof Order))
+        {
+            return false;
+        }
+        Order order = (Order) o;
+        List<Long> slots = slotsByOrderNumber.get(order.getOrderNumber());
+        if (slots == null)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < slots.size(); i++)
+        {
+            Long slot = slots.get(i);
+            if (ordersBySlot.get(slot).equals(order))
+            {
+                ordersBySlot.remove(slot);
+                slots.remove(i);
+                if (slots.isEmpty())
+                {
+                    slotsByOrderNumber.remove(order.getOrderNumber());
+                }
+                changed();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Order get(int index)
+    {
+        Order[] orders = snapshot;
+        if (orders == null)
+        {
+            orders = ordersBySlot.values().toArray(new Order[0]);
+            snapshot = orders;
+        }
+        return orders[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return ordersBySlot.size();
+    }
+
+    private void changed()
+    {
+        modCount++;
+        snapshot = null;
+    }
+}
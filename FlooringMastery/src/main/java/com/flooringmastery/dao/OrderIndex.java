@@ -0,0 +1,369 @@
+package com.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderLocation;
+
+/**
+ * Finds the dates of orders across every Orders file, by order number or by customer name, without reading any Orders
+ * file. The index is saved to a file together with the {@link FileStamp} of every date it covers; on startup only the
+ * dates whose files changed since then, or that are new, are read again, in parallel. Changes the program makes to the
+ * orders update the index as they happen. If the index file is missing or damaged the whole index is rebuilt from the
+ * orders folder.
+ */
+class OrderIndex
+{
+
+    private static final Logger LOGGER = Logger.getLogger(OrderIndex.class.getName());
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderIndex";
+    private static final String DATE_RECORD = "D";
+    private static final String ORDER_RECORD = "O";
+
+    /**
+     * Reads the orders of an Orders file, with its journal replayed.
+     */
+    interface OrdersReader
+    {
+        List<Order> read(File ordersFile) throws FlooringMasteryPersistenceException;
+    }
+
+    private final Map<LocalDate, DateEntry> dates = new TreeMap<>();
+    // An order number or customer can have several orders, even on the same date, so these hold one location per order.
+    private final Map<Integer, List<OrderLocation>> locationsByOrderNumber = new HashMap<>();
+    private final Map<String, List<OrderLocation>> locationsByCustomer = new HashMap<>();
+
+    /**
+     * Reads a saved index. Returns an empty index, meaning every date is read again, if there is no index file or it cannot
+     * be read.
+     */
+    static OrderIndex load(File indexFile)
+    {
+        OrderIndex index = new OrderIndex();
+        if (!indexFile.exists())
+        {
+            return index;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(indexFile)))
+        {
+            if (!HEADER.equals(reader.readLine()))
+            {
+                return new OrderIndex();
+            }
+
+            LocalDate date = null;
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                // The customer name comes last, as it is the only field that may hold the delimiter.
+                String[] tokens = line.split(DELIMITER, 3);
+                if (tokens[0].equals(DATE_RECORD))
+                {
+                    date = LocalDate.parse(tokens[1], OrdersFiles.FILE_DATE_FORMAT);
+                    index.dates.put(date, new DateEntry(FileStamp.parse(tokens[2], DELIMITER)));
+                }
+                else if (tokens[0].equals(ORDER_RECORD) && date != null)
+                {
+                    index.add(new OrderLocation(date, Integer.parseInt(tokens[1]), tokens[2]));
+                }
+                else
+                {
+                    return new OrderIndex();
+                }
+            }
+            return index;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // A missing or damaged index only costs reading every Orders file once.
+            return new OrderIndex();
+        }
+    }
+
+    synchronized void save(File indexFile) throws FlooringMasteryPersistenceException
+    {
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try
+        {
+            File folder = indexFile.getAbsoluteFile().getParentFile();
+            if (folder != null)
+            {
+                folder.mkdirs();
+            }
+            try (PrintWriter out = new PrintWriter(new FileWriter(tempFile)))
+            {
+                out.println(HEADER);
+                for (Map.Entry<LocalDate, DateEntry> entry : dates.entrySet())
+                {
+                    out.println(DATE_RECORD + DELIMITER + entry.getKey().format(OrdersFiles.FILE_DATE_FORMAT) + DELIMITER
+                            + entry.getValue().stamp.format(DELIMITER));
+                    for (Map.Entry<OrderLocation, Integer> counted : entry.getValue().counts.entrySet())
+                    {
+                        OrderLocation location = counted.getKey();
+                        for (int i = 0; i < counted.getValue(); i++)
+                        {
+                            out.println(ORDER_RECORD + DELIMITER + location.getOrderNumber() + DELIMITER
+                                    + location.getCustomerName());
+                        }
+                    }
+                }
+                if (out.checkError())
+                {
+                    throw new IOException("Could not write the order index.");
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            throw new FlooringMasteryPersistenceException("Error. Could not save the order index.", e);
+        }
+    }
+
+    /**
+     * Brings the index up to date with the orders folder: dates whose Orders file is gone are dropped, and dates whose files
+     * changed since they were indexed, or that were never indexed, are read again in parallel on the pool.
+     */
+    void refresh(File ordersFolder, OrdersReader reader, ForkJoinPool pool) throws FlooringMasteryPersistenceException
+    {
+        long start = System.nanoTime();
+        List<File> staleFiles = new ArrayList<>();
+        synchronized (this)
+        {
+            Set<LocalDate> datesOnDisk = new HashSet<>();
+            for (File ordersFile : OrdersFiles.listByDate(ordersFolder))
+            {
+                LocalDate date = OrdersFiles.dateOf(ordersFile);
+                datesOnDisk.add(date);
+                DateEntry entry = dates.get(date);
+                if (entry == null || !entry.stamp.equals(FileStamp.of(ordersFile)))
+                {
+                    staleFiles.add(ordersFile);
+                }
+            }
+            for (LocalDate date : new ArrayList<>(dates.keySet()))
+            {
+                if (!datesOnDisk.contains(date))
+                {
+                    removeDate(date);
+                }
+            }
+        }
+
+        List<Future<ReadDate>> reads = new ArrayList<>();
+        for (File ordersFile : staleFiles)
+        {
+            // The stamp is taken before reading, so a change made while the file is read is picked up on the next refresh.
+            reads.add(pool.submit(() -> new ReadDate(OrdersFiles.dateOf(ordersFile), FileStamp.of(ordersFile),
+                    reader.read(ordersFile))));
+        }
+        int indexedOrders = 0;
+        for (Future<ReadDate> read : reads)
+        {
+            ReadDate readDate = await(read, reads);
+            indexDate(readDate.date, readDate.stamp, readDate.orders);
+            indexedOrders += readDate.orders.size();
+        }
+
+        int readOrders = indexedOrders;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info(() -> "Order index covers " + dates.size() + " dates; read " + staleFiles.size()
+                + " changed dates with " + readOrders + " orders in " + elapsedMillis + " ms.");
+    }
+
+    /**
+     * Replaces everything indexed for a date with the given orders.
+     */
+    synchronized void indexDate(LocalDate date, FileStamp stamp, Collection<Order> orders)
+    {
+        removeDate(date);
+        dates.put(date, new DateEntry(stamp));
+        for (Order order : orders)
+        {
+            add(new OrderLocation(date, order.getOrderNumber(), order.getCustomerName()));
+        }
+    }
+
+    synchronized void removeDate(LocalDate date)
+    {
+        DateEntry entry = dates.remove(date);
+        if (entry == null)
+        {
+            return;
+        }
+        for (Map.Entry<OrderLocation, Integer> counted : entry.counts.entrySet())
+        {
+            for (int i = 0; i < counted.getValue(); i++)
+            {
+                removeFromLookups(counted.getKey());
+            }
+        }
+    }
+
+    /**
+     * Records a change the program made to the orders of a date: the removed orders, the added orders, or both for an
+     * edit. If the index did not match the files before the change, e.g. because they were edited outside the program, the
+     * whole date is indexed again from its orders instead.
+     *
+     * @param before       stamp of the date's files before the change
+     * @param after        stamp of the date's files after the change
+     * @param ordersOfDate every order of the date after the change
+     */
+    synchronized void update(LocalDate date, FileStamp before, FileStamp after, Collection<Order> removed,
+            Collection<Order> added, Collection<Order> ordersOfDate)
+    {
+        DateEntry entry = dates.get(date);
+        if (entry == null || !entry.stamp.equals(before))
+        {
+            indexDate(date, after, ordersOfDate);
+            return;
+        }
+
+        for (Order order : removed)
+        {
+            OrderLocation location = new OrderLocation(date, order.getOrderNumber(), order.getCustomerName());
+            if (entry.counts.containsKey(location))
+            {
+                entry.counts.computeIfPresent(location, (key, count) -> count == 1 ? null : count - 1);
+                removeFromLookups(location);
+            }
+        }
+        for (Order order : added)
+        {
+            add(new OrderLocation(date, order.getOrderNumber(), order.getCustomerName()));
+        }
+        entry.stamp = after;
+    }
+
+    /**
+     * @return the locations of every order with the given number, in date order
+     */
+    synchronized List<OrderLocation> findByOrderNumber(int orderNumber)
+    {
+        return sortedCopy(locationsByOrderNumber.get(orderNumber));
+    }
+
+    /**
+     * @return the locations of every order of the customer, ignoring case and surrounding spaces, in date order
+     */
+    synchronized List<OrderLocation> findByCustomer(String customerName)
+    {
+        return sortedCopy(locationsByCustomer.get(customerKey(customerName)));
+    }
+
+    private void add(OrderLocation location)
+    {
+        dates.get(location.getDate()).counts.merge(location, 1, Integer::sum);
+        locationsByOrderNumber.computeIfAbsent(location.getOrderNumber(), orderNumber -> new ArrayList<>(1)).add(location);
+        locationsByCustomer.computeIfAbsent(customerKey(location.getCustomerName()), key -> new ArrayList<>(1))
+                .add(location);
+    }
+
+    private void removeFromLookups(OrderLocation location)
+    {
+        removeOne(locationsByOrderNumber, location.getOrderNumber(), location);
+        removeOne(locationsByCustomer, customerKey(location.getCustomerName()), location);
+    }
+
+    private static <K> void removeOne(Map<K, List<OrderLocation>> lookup, K key, OrderLocation location)
+    {
+        List<OrderLocation> locations = lookup.get(key);
+        if (locations != null && locations.remove(location) && locations.isEmpty())
+        {
+            lookup.remove(key);
+        }
+    }
+
+    private static String customerKey(String customerName)
+    {
+        return customerName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<OrderLocation> sortedCopy(List<OrderLocation> locations)
+    {
+        if (locations == null)
+        {
+            return new ArrayList<>();
+        }
+        List<OrderLocation> copy = new ArrayList<>(locations);
+        copy.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        return copy;
+    }
+
+    private static ReadDate await(Future<ReadDate> read, List<Future<ReadDate>> reads) throws FlooringMasteryPersistenceException
+    {
+        try
+        {
+            return read.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            reads.forEach(other -> other.cancel(true));
+            throw new FlooringMasteryPersistenceException("Error. Building the order index was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            reads.forEach(other -> other.cancel(true));
+            if (e.getCause() instanceof FlooringMasteryPersistenceException)
+            {
+                throw (FlooringMasteryPersistenceException) e.getCause();
+            }
+            throw new FlooringMasteryPersistenceException("Error. Could not read order data for the order index.",
+                    e.getCause());
+        }
+    }
+
+    private static final class DateEntry
+    {
+        private FileStamp stamp;
+        // How many orders of the date have each number and customer; identical pairs are counted rather than listed.
+        private final Map<OrderLocation, Integer> counts = new HashMap<>();
+
+        private DateEntry(FileStamp stamp)
+        {
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class ReadDate
+    {
+        private final LocalDate date;
+        private final FileStamp stamp;
+        private final List<Order> orders;
+
+        private ReadDate(LocalDate date, FileStamp stamp, List<Order> orders)
+        {
+            this.date = date;
+            this.stamp = stamp;
+            this.orders = orders;
+        }
+    }
+}
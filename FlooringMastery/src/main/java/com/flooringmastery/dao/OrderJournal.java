@@ -0,0 +1,674 @@
+package com.flooringmastery.dao;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Append-only journal of the changes made to an Orders file.
+ * Instead of rewriting a whole Orders file every time one of its orders is added, edited or removed, each change is
+ * appended as a single record to a journal file kept next to it (Orders_MMddyyyy.journal). Reading an Orders file replays
+ * its journal over the base file, and once a journal grows past the compaction threshold a background task folds it back
+ * into the base file. Appends are forced to disk through the {@link GroupCommit}, and a compaction writes the new base
+ * file to a side file that is forced to disk before it replaces the old one, so a crash never loses a saved change.
+ * Orders files of older dates may be archived in the {@link ColumnarOrders} format instead of text; their journals and
+ * compactions work the same way, and every read tells the two formats apart.
+ * Every read and change of an Orders file and its journal, compaction and archiving included, holds the
+ * {@link OrdersFileLocks} lock of the Orders file, so other threads and other running copies of the program never see the
+ * files half changed. What a write interrupted by a crash leaves behind is put right by {@link #recover(File)}.
+ */
+class OrderJournal
+{
+
+    private static final Logger LOGGER = Logger.getLogger(OrderJournal.class.getName());
+
+    static final String JOURNAL_EXTENSION = ".journal";
+    static final String COMPACTION_EXTENSION = ".compacting";
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+    // Far longer than any record, so the last records of a journal are always within it.
+    private static final int RECOVERY_TAIL_SIZE = 64 * 1024;
+    private static final String ADD = "A";
+    private static final String EDIT = "E";
+    private static final String REMOVE = "R";
+
+    private final String header;
+    private final String delimiter;
+    private final long compactionThreshold;
+    private final OrdersFileLocks fileLocks;
+    private final OrderMarshaller marshaller;
+    private final GroupCommit groupCommit = GroupCommit.SHARED;
+    private final Set<String> scheduledCompactions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "orders-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    OrderJournal(String header, String delimiter)
+    {
+        this(header, delimiter, new OrdersFileLocks());
+    }
+
+    OrderJournal(String header, String delimiter, OrdersFileLocks fileLocks)
+    {
+        this(header, delimiter, fileLocks, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    OrderJournal(String header, String delimiter, OrdersFileLocks fileLocks, long compactionThreshold)
+    {
+        this.header = header;
+        this.delimiter = delimiter;
+        this.fileLocks = fileLocks;
+        this.compactionThreshold = compactionThreshold;
+        this.marshaller = new OrderMarshaller(delimiter);
+    }
+
+    GroupCommit.Commit appendAdd(File ordersFile, String orderAsText) throws FlooringMasteryPersistenceException
+    {
+        return append(ordersFile, ADD, List.of(orderAsText));
+    }
+
+    /**
+     * Appends several new orders with a single write of the journal.
+     */
+    GroupCommit.Commit appendAdds(File ordersFile, List<String> ordersAsText) throws FlooringMasteryPersistenceException
+    {
+        return append(ordersFile, ADD, ordersAsText);
+    }
+
+    GroupCommit.Commit appendEdit(File ordersFile, String orderAsText) throws FlooringMasteryPersistenceException
+    {
+        return append(ordersFile, EDIT, List.of(orderAsText));
+    }
+
+    GroupCommit.Commit appendRemove(File ordersFile, String orderAsText) throws FlooringMasteryPersistenceException
+    {
+        return append(ordersFile, REMOVE, List.of(orderAsText));
+    }
+
+    /**
+     * Waits until an append is on disk. Called after the locks held for the append are released, so the appends made to
+     * the same date meanwhile can share its fsync.
+     */
+    void awaitDurable(GroupCommit.Commit commit) throws FlooringMasteryPersistenceException
+    {
+        try
+        {
+            groupCommit.await(commit);
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Error. Could not save order data to disk.", e);
+        }
+    }
+
+    /**
+     * Reads the orders of an Orders file, in either format, with its journal replayed over them.
+     */
+    List<Order> readOrders(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            finishInterruptedCompaction(ordersFile);
+            if (ColumnarOrders.isColumnar(ordersFile) && !journalFileFor(ordersFile).exists())
+            {
+                return ColumnarOrders.readOrders(ordersFile);
+            }
+
+            List<Order> orders = new ArrayList<>();
+            for (CharSequence line : readOrderLines(ordersFile))
+            {
+                orders.add(marshaller.unmarshallOrder(line));
+            }
+            return orders;
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Could not load file into memory.", e);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    /**
+     * Reads some columns of an archived Orders file that has no journal, without reading the other columns.
+     *
+     * @return the columns, or null if the file is in the text format or has changes in its journal
+     */
+    ColumnarOrders.Columns readColumns(File ordersFile, Set<ColumnarOrders.Column> columns)
+            throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            finishInterruptedCompaction(ordersFile);
+            if (!ColumnarOrders.isColumnar(ordersFile) || journalFileFor(ordersFile).exists())
+            {
+                return null;
+            }
+            return ColumnarOrders.read(ordersFile, columns);
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Could not load file into memory.", e);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    /**
+     * Reads the order lines of an Orders file (without its header) with its journal replayed over them. The lines of a
+     * text Orders file are read with {@link ByteLines}, so they are only turned into Strings where a caller asks for it.
+     */
+    List<CharSequence> readOrderLines(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            finishInterruptedCompaction(ordersFile);
+
+            List<CharSequence> orderLines;
+            if (ColumnarOrders.isColumnar(ordersFile))
+            {
+                // The journal of an archived date holds its orders as text, like any other journal.
+                orderLines = new ArrayList<>();
+                for (Order order : ColumnarOrders.readOrders(ordersFile))
+                {
+                    orderLines.add(marshaller.marshallOrder(order));
+                }
+            }
+            else
+            {
+                // The header is left out, so we do not add it to the order lines.
+                orderLines = ByteLines.read(ordersFile, true);
+            }
+
+            File journalFile = journalFileFor(ordersFile);
+            if (journalFile.exists())
+            {
+                for (CharSequence record : ByteLines.read(journalFile, false))
+                {
+                    replay(orderLines, record);
+                }
+            }
+            return orderLines;
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Could not load file into memory.", e);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    /**
+     * What {@link #recover(File)} did to the files of an Orders file.
+     */
+    enum Repair
+    {
+        COMPACTION_FINISHED,
+        COMPACTION_DISCARDED,
+        JOURNAL_TRUNCATED,
+        EMPTY_JOURNAL_REMOVED
+    }
+
+    /**
+     * Brings the files of an Orders file back to a consistent state after the program stopped in the middle of a write.
+     * An interrupted compaction or archive is finished or discarded, a half-written record at the end of the journal, the
+     * only place an interrupted append can leave one, is cut off, and a journal left empty is removed. Only the end of the
+     * journal is read, so a date takes about as long to recover however long its journal grew. The folder is not forced;
+     * the caller forces it once after recovering every date of it.
+     *
+     * @return what was repaired, nothing if the files were consistent
+     */
+    Set<Repair> recover(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            Set<Repair> repairs = EnumSet.noneOf(Repair.class);
+            // The side file goes first: it is only complete once the journal is gone, so an empty journal is removed after.
+            Repair compaction = finishInterruptedCompaction(ordersFile);
+            if (compaction != null)
+            {
+                repairs.add(compaction);
+            }
+
+            File journalFile = journalFileFor(ordersFile);
+            if (journalFile.exists())
+            {
+                try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE))
+                {
+                    long consistentSize = consistentJournalSize(channel);
+                    if (consistentSize < channel.size())
+                    {
+                        channel.truncate(consistentSize);
+                        channel.force(false);
+                        repairs.add(Repair.JOURNAL_TRUNCATED);
+                    }
+                }
+                if (journalFile.length() == 0)
+                {
+                    Files.delete(journalFile.toPath());
+                    repairs.add(Repair.EMPTY_JOURNAL_REMOVED);
+                }
+            }
+            return repairs;
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Error. Could not recover the orders file " + ordersFile + ".", e);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    /**
+     * Deletes an Orders file together with its journal.
+     */
+    void deleteOrdersFile(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            journalFileFor(ordersFile).delete();
+            compactionFileFor(ordersFile).delete();
+            ordersFile.delete();
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    static File journalFileFor(File ordersFile)
+    {
+        String path = ordersFile.getPath();
+        return new File(path.substring(0, path.lastIndexOf('.')) + JOURNAL_EXTENSION);
+    }
+
+    static File compactionFileFor(File ordersFile)
+    {
+        return new File(ordersFile.getPath() + COMPACTION_EXTENSION);
+    }
+
+    // The records are written, not yet forced to disk; the returned commit is waited for with awaitDurable.
+    private GroupCommit.Commit append(File ordersFile, String recordType, List<String> ordersAsText)
+            throws FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            File journalFile = journalFileFor(ordersFile);
+            boolean created = !journalFile.exists();
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(journalFile, true))))
+            {
+                for (String orderAsText : ordersAsText)
+                {
+                    out.println(recordType + delimiter + orderAsText);
+                }
+                if (out.checkError())
+                {
+                    throw new FlooringMasteryPersistenceException("Error. Could not write order data to file.");
+                }
+            }
+            catch (IOException e)
+            {
+                throw new FlooringMasteryPersistenceException("Error. Could not write order data to file.", e);
+            }
+
+            if (journalFile.length() >= compactionThreshold)
+            {
+                scheduleCompaction(ordersFile);
+            }
+            return groupCommit.request(journalFile.toPath(), created);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    // Appends only ever add whole lines at the end, so the journal is consistent up to the last line break, less any lines
+    // before it that are not records, such as the zeros a crash can leave in the last block written. Only the end of the
+    // journal is looked at; if not even one line break is found there, the journal is left as it is.
+    private long consistentJournalSize(FileChannel channel) throws IOException
+    {
+        long size = channel.size();
+        long tailStart = Math.max(0, size - RECOVERY_TAIL_SIZE);
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - tailStart));
+        while (tail.hasRemaining() && channel.read(tail, tailStart + tail.position()) >= 0)
+        {
+            // Reading until the buffer is full or the file ends.
+        }
+        byte[] bytes = tail.array();
+
+        int end = lastLineBreak(bytes, tail.position()) + 1;
+        if (end == 0 && tailStart > 0)
+        {
+            return size;
+        }
+        while (end > 0)
+        {
+            int start = lastLineBreak(bytes, end - 1) + 1;
+            if (start == 0 && tailStart > 0)
+            {
+                // The first line of the tail may have started before it.
+                break;
+            }
+            if (isRecord(bytes, start, end))
+            {
+                break;
+            }
+            end = start;
+        }
+        return tailStart + end;
+    }
+
+    private static int lastLineBreak(byte[] bytes, int before)
+    {
+        for (int i = before - 1; i >= 0; i--)
+        {
+            if (bytes[i] == '\n')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The line runs from start to end, line break included.
+    private boolean isRecord(byte[] bytes, int start, int end)
+    {
+        String record = new String(bytes, start, end - start, Charset.defaultCharset()).stripTrailing();
+        int recordTypeEnd = record.indexOf(delimiter);
+        if (recordTypeEnd < 0)
+        {
+            return false;
+        }
+        String recordType = record.substring(0, recordTypeEnd);
+        if (!recordType.equals(ADD) && !recordType.equals(EDIT) && !recordType.equals(REMOVE))
+        {
+            return false;
+        }
+        try
+        {
+            marshaller.unmarshallOrder(record.substring(recordTypeEnd + delimiter.length()));
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private void replay(List<CharSequence> orderLines, CharSequence record)
+    {
+        int recordTypeEnd = indexOfDelimiter(record);
+        String recordType = record.subSequence(0, recordTypeEnd).toString();
+        CharSequence orderAsText = record.subSequence(recordTypeEnd + delimiter.length(), record.length());
+
+        switch (recordType)
+        {
+            case ADD:
+                orderLines.add(orderAsText);
+                break;
+            case EDIT:
+                int editedNumber = marshaller.unmarshallOrderNumber(orderAsText);
+                for (int i = 0; i < orderLines.size(); i++)
+                {
+                    if (hasOrderNumber(orderLines.get(i), editedNumber))
+                    {
+                        orderLines.set(i, orderAsText);
+                        break;
+                    }
+                }
+                break;
+            case REMOVE:
+                // Records are written as marshallOrder writes them, but a line of the base file may be written another way
+                // and still hold the same order, e.g. with a trailing delimiter. Such lines are compared as orders, like
+                // OrderBook does, and only when their order number matches, so most lines are never parsed.
+                int removedNumber = marshaller.unmarshallOrderNumber(orderAsText);
+                Order removed = null;
+                for (int i = 0; i < orderLines.size(); i++)
+                {
+                    CharSequence orderLine = orderLines.get(i);
+                    boolean same = CharSequence.compare(orderLine, orderAsText) == 0;
+                    if (!same && hasOrderNumber(orderLine, removedNumber))
+                    {
+                        removed = removed != null ? removed : marshaller.unmarshallOrder(orderAsText);
+                        same = holdsOrder(orderLine, removed);
+                    }
+                    if (same)
+                    {
+                        orderLines.remove(i);
+                        break;
+                    }
+                }
+                break;
+        }
+    }
+
+    // A line that cannot be read holds no order; it fails when the orders are read, not here.
+    private boolean hasOrderNumber(CharSequence orderLine, int orderNumber)
+    {
+        try
+        {
+            return marshaller.unmarshallOrderNumber(orderLine) == orderNumber;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    private boolean holdsOrder(CharSequence orderLine, Order order)
+    {
+        try
+        {
+            return order.equals(marshaller.unmarshallOrder(orderLine));
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    private int indexOfDelimiter(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) == delimiter.charAt(0))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void scheduleCompaction(File ordersFile)
+    {
+        if (scheduledCompactions.add(ordersFile.getAbsolutePath()))
+        {
+            compactor.execute(() -> {
+                scheduledCompactions.remove(ordersFile.getAbsolutePath());
+                try
+                {
+                    compact(ordersFile);
+                }
+                catch (IOException | FlooringMasteryPersistenceException e)
+                {
+                    // The journal is left in place, so no data is lost; compaction is tried again on the next append.
+                    LOGGER.log(Level.WARNING, "Could not compact the journal of " + ordersFile + ".", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Folds the journal of an Orders file back into the base file, keeping the format the base file is in. The compacted
+     * orders are written to a side file first, then the journal is deleted and the side file renamed over the base file, so
+     * an interrupted compaction can always be finished or discarded by {@link #finishInterruptedCompaction(File)}.
+     */
+    void compact(File ordersFile) throws IOException, FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            File journalFile = journalFileFor(ordersFile);
+            if (!journalFile.exists() || !ordersFile.exists())
+            {
+                return;
+            }
+            rewrite(ordersFile, ColumnarOrders.isColumnar(ordersFile));
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    /**
+     * Rewrites an Orders file in the {@link ColumnarOrders} format, folding its journal into it, the same way as a
+     * compaction.
+     *
+     * @return true if the file was archived, false if it already was, or it has an amount the format cannot hold
+     */
+    boolean archive(File ordersFile) throws IOException, FlooringMasteryPersistenceException
+    {
+        fileLocks.lock(ordersFile);
+        try
+        {
+            File journalFile = journalFileFor(ordersFile);
+            if (!ordersFile.exists() || (ColumnarOrders.isColumnar(ordersFile) && !journalFile.exists()))
+            {
+                return false;
+            }
+            // An empty journal marks the side file as unfinished until it is complete, exactly as in a compaction.
+            boolean journalCreated = journalFile.createNewFile();
+            try
+            {
+                rewrite(ordersFile, true);
+                return true;
+            }
+            catch (IllegalArgumentException e)
+            {
+                compactionFileFor(ordersFile).delete();
+                if (journalCreated)
+                {
+                    journalFile.delete();
+                }
+                return false;
+            }
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+    }
+
+    // Must be called holding the lock of the Orders file, with its journal in place.
+    private void rewrite(File ordersFile, boolean columnar) throws IOException, FlooringMasteryPersistenceException
+    {
+        List<CharSequence> orderLines = readOrderLines(ordersFile);
+        File compactionFile = compactionFileFor(ordersFile);
+        if (columnar)
+        {
+            List<Order> orders = new ArrayList<>(orderLines.size());
+            for (CharSequence line : orderLines)
+            {
+                orders.add(marshaller.unmarshallOrder(line));
+            }
+            byte[] archivedOrders = ColumnarOrders.encode(orders);
+            try (FileOutputStream stream = new FileOutputStream(compactionFile))
+            {
+                stream.write(archivedOrders);
+                stream.getFD().sync();
+            }
+        }
+        else
+        {
+            try (FileOutputStream stream = new FileOutputStream(compactionFile);
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(stream)))
+            {
+                out.println(header);
+                orderLines.forEach(out::println);
+                out.flush();
+                if (out.checkError())
+                {
+                    throw new IOException("Could not write compacted orders to " + compactionFile);
+                }
+                stream.getFD().sync();
+            }
+        }
+
+        Files.delete(journalFileFor(ordersFile).toPath());
+        Files.move(compactionFile.toPath(), ordersFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        GroupCommit.forceFolder(ordersFile.getAbsoluteFile().getParentFile().toPath());
+    }
+
+    /**
+     * A compaction side file left next to an Orders file means the program stopped in the middle of a compaction. If the
+     * journal is still there the side file may be incomplete and is discarded; otherwise it holds every order and replaces
+     * the base file.
+     *
+     * @return what was done with the side file, or null if there was none
+     */
+    private Repair finishInterruptedCompaction(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        File compactionFile = compactionFileFor(ordersFile);
+        if (!compactionFile.exists())
+        {
+            return null;
+        }
+
+        try
+        {
+            if (journalFileFor(ordersFile).exists())
+            {
+                Files.delete(compactionFile.toPath());
+                return Repair.COMPACTION_DISCARDED;
+            }
+            Files.move(compactionFile.toPath(), ordersFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return Repair.COMPACTION_FINISHED;
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Could not load file into memory.", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.flooringmastery.dao;
+
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.State;
+
+/**
+ * Converts orders, states and products to and from the lines of the Orders, Taxes and Products files. It keeps no state
+ * between calls, so the same instance can be shared by the DAO and the export tasks running in parallel. Lines are read
+ * with a {@link CsvCursor} rather than String.split, so no array or substring is created for the numeric fields.
+ */
+class OrderMarshaller
+{
+
+    private final String DELIMITER;
+    // Every thread parsing lines keeps its own cursor, so parsing allocates nothing but the parsed objects themselves.
+    private final ThreadLocal<CsvCursor> cursors;
+
+    OrderMarshaller(String delimiter)
+    {
+        DELIMITER = delimiter;
+        cursors = ThreadLocal.withInitial(() -> new CsvCursor(delimiter.charAt(0)));
+    }
+
+    String marshallOrder(Order order)
+    {
+        String orderAsText = order.getOrderNumber() + DELIMITER;
+        orderAsText += order.getCustomerName() + DELIMITER;
+        orderAsText += order.getState() + DELIMITER;
+        orderAsText += order.getTaxRate() + DELIMITER;
+        orderAsText += order.getProductType() + DELIMITER;
+        orderAsText += order.getArea() + DELIMITER;
+        orderAsText += order.getCostPerSquareFoot() + DELIMITER;
+        orderAsText += order.getLaborCostPerSquareFoot() + DELIMITER;
+        orderAsText += order.getMaterialCost() + DELIMITER;
+        orderAsText += order.getLaborCost() + DELIMITER;
+        orderAsText += order.getTax() + DELIMITER;
+        orderAsText += order.getTotal();
+        return orderAsText;
+    }
+
+    Order unmarshallOrder(CharSequence orderAsText)
+    {
+        CsvCursor cursor = cursors.get().reset(orderAsText);
+        Order currentOrder = new Order();
+        currentOrder.setOrderNumber(cursor.nextInt());
+        currentOrder.setCustomerName(cursor.nextString());
+        currentOrder.setState(cursor.nextRepeatedString());
+        currentOrder.setTaxRate(cursor.nextDecimal());
+        currentOrder.setProductType(cursor.nextRepeatedString());
+        currentOrder.setArea(cursor.nextDecimal());
+        currentOrder.setCostPerSquareFoot(cursor.nextDecimal());
+        currentOrder.setLaborCostPerSquareFoot(cursor.nextDecimal());
+        currentOrder.setMaterialCost(cursor.nextDecimal());
+        currentOrder.setLaborCost(cursor.nextDecimal());
+        currentOrder.setTax(cursor.nextDecimal());
+        currentOrder.setTotal(cursor.nextDecimal());
+        return currentOrder;
+    }
+
+    /**
+     * Reads only the order number, the first field of an order line.
+     */
+    int unmarshallOrderNumber(CharSequence orderAsText)
+    {
+        return cursors.get().reset(orderAsText).nextInt();
+    }
+
+    State unmarshallState(CharSequence stateAsText)
+    {
+        CsvCursor cursor = cursors.get().reset(stateAsText);
+        State currentState = new State();
+        currentState.setStateAbbreviation(cursor.nextString());
+        currentState.setStateName(cursor.nextString());
+        currentState.setTaxRate(cursor.nextDecimal());
+        return currentState;
+    }
+
+    Product unmarshallProduct(CharSequence productAsText)
+    {
+        CsvCursor cursor = cursors.get().reset(productAsText);
+        Product product = new Product();
+        product.setProductType(cursor.nextString());
+        product.setCostPerSquareFoot(cursor.nextDecimal());
+        product.setLaborCostPerSquareFoot(cursor.nextDecimal());
+        return product;
+    }
+}
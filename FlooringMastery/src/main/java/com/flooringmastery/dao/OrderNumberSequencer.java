@@ -0,0 +1,170 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+
+/**
+ * Hands out order numbers from a high-water mark persisted per date (Sequence_MMddyyyy.txt), so a new number never needs
+ * the orders of the date, and a number is never given out twice, even after its order was removed or the program was
+ * restarted. A number is only returned once its mark is on disk, through the shared {@link GroupCommit}. Optionally every
+ * number also comes from one global sequence (Sequence_Global.txt), which makes order numbers unique across all dates.
+ * Each sequence is locked through its own lock file (Sequence_MMddyyyy.lock) while a number is taken from it, so several
+ * programs sharing the folder never hand out the same number.
+ */
+class OrderNumberSequencer
+{
+
+    /**
+     * Supplies the starting high-water mark of a sequence that has no file yet, i.e. the highest order number in use.
+     */
+    interface Seed
+    {
+        int highestOrderNumber() throws FlooringMasteryPersistenceException;
+    }
+
+    private interface LockedTake
+    {
+        int take() throws IOException, FlooringMasteryPersistenceException;
+    }
+
+    private final File sequencesFolder;
+    private final boolean globalNumbers;
+    private final GroupCommit groupCommit = GroupCommit.SHARED;
+
+    OrderNumberSequencer(File sequencesFolder, boolean globalNumbers)
+    {
+        this.sequencesFolder = sequencesFolder;
+        this.globalNumbers = globalNumbers;
+    }
+
+    /**
+     * Takes the next order number for a date.
+     *
+     * @param dateSeed   highest order number of the date, used the first time the date gets a number from the sequencer
+     * @param globalSeed highest order number of any date, used the first time a global number is taken
+     */
+    int next(LocalDate date, Seed dateSeed, Seed globalSeed) throws FlooringMasteryPersistenceException
+    {
+        return next(date, 1, dateSeed, globalSeed);
+    }
+
+    /**
+     * Takes a block of consecutive order numbers for a date, with one write of each sequence file.
+     *
+     * @param count how many numbers to take
+     * @return the first number of the block
+     */
+    int next(LocalDate date, int count, Seed dateSeed, Seed globalSeed) throws FlooringMasteryPersistenceException
+    {
+        List<GroupCommit.Commit> commits = new ArrayList<>(2);
+        int next = take(date, count, dateSeed, globalSeed, commits);
+        // The marks must be on disk before the numbers are used, or a crash could hand them out again. They are waited for
+        // outside the lock, so numbers taken at the same time share an fsync.
+        try
+        {
+            for (GroupCommit.Commit commit : commits)
+            {
+                groupCommit.await(commit);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Error. Could not generate an order number.", e);
+        }
+        return next;
+    }
+
+    private synchronized int take(LocalDate date, int count, Seed dateSeed, Seed globalSeed,
+            List<GroupCommit.Commit> commits) throws FlooringMasteryPersistenceException
+    {
+        sequencesFolder.mkdirs();
+        File dateSequence = new File(sequencesFolder, "Sequence_" + date.format(OrdersFiles.FILE_DATE_FORMAT) + ".txt");
+        if (!globalNumbers)
+        {
+            return advance(dateSequence, dateSeed, 0, count, commits);
+        }
+
+        // The date's block is taken while the global sequence is locked, and the global mark then moves to the block's last
+        // number. The block starts past both marks, so numbers stay unique within the date even for dates that had orders
+        // before global numbering was turned on, and a date ahead of the global mark takes no number another date can get.
+        File globalSequence = new File(sequencesFolder, "Sequence_Global.txt");
+        return locked(globalSequence, () ->
+        {
+            int globalMark = readMark(globalSequence, globalSeed);
+            int next = advance(dateSequence, dateSeed, globalMark, count, commits);
+            writeMark(globalSequence, next + count - 1, commits);
+            return next;
+        });
+    }
+
+    private int advance(File sequenceFile, Seed seed, int atLeast, int count, List<GroupCommit.Commit> commits)
+            throws FlooringMasteryPersistenceException
+    {
+        return locked(sequenceFile, () ->
+        {
+            int next = Math.addExact(Math.max(readMark(sequenceFile, seed), atLeast), 1);
+            writeMark(sequenceFile, Math.addExact(next, count - 1), commits);
+            return next;
+        });
+    }
+
+    // The sequence is locked through a file of its own, as the sequence file is replaced on every write.
+    private int locked(File sequenceFile, LockedTake take) throws FlooringMasteryPersistenceException
+    {
+        String path = sequenceFile.getPath();
+        File lockFile = new File(path.substring(0, path.lastIndexOf('.')) + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE))
+        {
+            FileLock lock = lockChannel.lock();
+            try
+            {
+                return take.take();
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        catch (IOException | NumberFormatException | ArithmeticException e)
+        {
+            throw new FlooringMasteryPersistenceException("Error. Could not generate an order number.", e);
+        }
+    }
+
+    private static int readMark(File sequenceFile, Seed seed) throws IOException, FlooringMasteryPersistenceException
+    {
+        String mark = sequenceFile.exists()
+                ? new String(Files.readAllBytes(sequenceFile.toPath()), StandardCharsets.US_ASCII).trim() : "";
+        return mark.isEmpty() ? seed.highestOrderNumber() : Integer.parseInt(mark);
+    }
+
+    // The new mark is written to a temp file, forced to disk and renamed over the sequence file, so after a crash the file
+    // holds either the old mark or the new one, never nothing. The rename itself is made durable by forcing the folder,
+    // which the caller waits for through the group commit.
+    private void writeMark(File sequenceFile, int mark, List<GroupCommit.Commit> commits) throws IOException
+    {
+        File tempFile = new File(sequenceFile.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            out.write(ByteBuffer.wrap(Integer.toString(mark).getBytes(StandardCharsets.US_ASCII)));
+            out.force(false);
+        }
+        Files.move(tempFile.toPath(), sequenceFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        commits.add(groupCommit.request(sequenceFile.toPath(), true));
+    }
+}
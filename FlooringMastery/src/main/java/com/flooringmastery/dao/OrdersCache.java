@@ -0,0 +1,128 @@
+package com.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.flooringmastery.dto.CacheStatistics;
+
+/**
+ * Keeps the parsed orders of the most recently used dates in memory, so switching back to a date does not read its Orders
+ * file again. Entries are evicted least recently used first once the cache holds more dates, or more bytes of Orders files,
+ * than its budget allows. Every entry remembers the {@link FileStamp} of the files it was read from, and is dropped when the
+ * files on disk no longer match it.
+ */
+class OrdersCache
+{
+
+    static final int DEFAULT_MAX_ENTRIES = 32;
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<LocalDate, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    OrdersCache()
+    {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    OrdersCache(int maxEntries, long maxBytes)
+    {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached orders for a date, or null if they are not cached or the files changed since they were read.
+     */
+    synchronized OrderBook get(LocalDate date, FileStamp stamp)
+    {
+        Entry entry = entries.get(date);
+        if (entry != null && entry.stamp.equals(stamp))
+        {
+            hits++;
+            return entry.orders;
+        }
+
+        if (entry != null)
+        {
+            remove(date);
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(LocalDate date, FileStamp stamp, OrderBook orders)
+    {
+        remove(date);
+        entries.put(date, new Entry(stamp, orders));
+        cachedBytes += stamp.totalSize();
+        evictOverBudget(date);
+    }
+
+    /**
+     * Records the new state of the files after the program itself wrote the changes already made to the cached orders.
+     */
+    synchronized void restamp(LocalDate date, FileStamp stamp)
+    {
+        Entry entry = entries.get(date);
+        if (entry != null)
+        {
+            put(date, stamp, entry.orders);
+        }
+    }
+
+    synchronized void invalidate(LocalDate date)
+    {
+        remove(date);
+    }
+
+    synchronized CacheStatistics getStatistics()
+    {
+        return new CacheStatistics(hits, misses, evictions, entries.size(), cachedBytes);
+    }
+
+    private void remove(LocalDate date)
+    {
+        Entry removed = entries.remove(date);
+        if (removed != null)
+        {
+            cachedBytes -= removed.stamp.totalSize();
+        }
+    }
+
+    private void evictOverBudget(LocalDate newestDate)
+    {
+        Iterator<Map.Entry<LocalDate, Entry>> eldestFirst = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedBytes > maxBytes) && eldestFirst.hasNext())
+        {
+            Map.Entry<LocalDate, Entry> eldest = eldestFirst.next();
+            // The date that was just put in stays cached even if it is bigger than the whole budget on its own.
+            if (eldest.getKey().equals(newestDate))
+            {
+                continue;
+            }
+            cachedBytes -= eldest.getValue().stamp.totalSize();
+            eldestFirst.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final FileStamp stamp;
+        private final OrderBook orders;
+
+        private Entry(FileStamp stamp, OrderBook orders)
+        {
+            this.stamp = stamp;
+            this.orders = orders;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.flooringmastery.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Writes the orders of every Orders file to the export file. The Orders files are read and formatted in parallel on a
+ * ForkJoinPool, each into its own buffer, and the buffers are written in date order through a single buffered writer, so
+ * the export comes out the same no matter which task finishes first.
+ * The export is incremental: an {@link ExportManifest} kept next to the export file records the state of every Orders file
+ * at the last export and where its section was written. Dates whose Orders file is unchanged are copied over from the
+ * previous export file instead of being read again, so an export only costs what changed since the last one.
+ * <p>
+ * The export can be compressed with GZIP, either as one stream written by the writer thread through a large buffer, or as
+ * separate GZIP members compressed by the tasks that format each date, in blocks of at most {@link #GZIP_BLOCK_SIZE}
+ * bytes of text. GZIP readers read concatenated members as a single stream, so both give the same text when read back by
+ * {@link ExportReader}; only the members of the second can still be copied from the previous export.
+ */
+class OrdersExporter
+{
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // How many Orders files may be read ahead of the writer per worker thread, so the export never holds every file in memory.
+    private static final int TASKS_IN_FLIGHT_PER_THREAD = 4;
+    static final int GZIP_BLOCK_SIZE = 1024 * 1024;
+    private static final int GZIP_STREAM_BUFFER_SIZE = 1024 * 1024;
+
+    private final OrderJournal journal;
+    private final OrderMarshaller marshaller;
+    private final String delimiter;
+    private final ForkJoinPool pool;
+
+    OrdersExporter(OrderJournal journal, OrderMarshaller marshaller, String delimiter)
+    {
+        this(journal, marshaller, delimiter, ForkJoinPool.commonPool());
+    }
+
+    OrdersExporter(OrderJournal journal, OrderMarshaller marshaller, String delimiter, ForkJoinPool pool)
+    {
+        this.journal = journal;
+        this.marshaller = marshaller;
+        this.delimiter = delimiter;
+        this.pool = pool;
+    }
+
+    void export(File ordersFolder, File exportFile, File manifestFile, String exportFileHeader,
+            ExportCompression compression) throws FlooringMasteryPersistenceException
+    {
+        List<File> orderFiles = OrdersFiles.listByDate(ordersFolder);
+        // Part of a single GZIP stream cannot be copied on its own, so a streamed export formats every date again.
+        boolean streamed = compression == ExportCompression.GZIP;
+        ExportManifest previousManifest = streamed ? new ExportManifest(0, 0, new TreeMap<>())
+                : ExportManifest.load(manifestFile, exportFile);
+        Map<LocalDate, ExportManifest.Section> writtenSections = new TreeMap<>();
+        int maxTasksInFlight = pool.getParallelism() * TASKS_IN_FLIGHT_PER_THREAD;
+        Deque<Future<PreparedSection>> sections = new ArrayDeque<>();
+
+        // The new export is written next to the old one, which we may still be copying sections from, and replaces it at
+        // the end, so a failed export leaves the previous export and its manifest as they were.
+        File tempFile = new File(exportFile.getPath() + ".tmp");
+        try
+        {
+            try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel previousExport = exportFile.exists()
+                         ? FileChannel.open(exportFile.toPath(), StandardOpenOption.READ) : null)
+            {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+                // The stream is finished, not closed, so the channel is closed only once, by the try.
+                GZIPOutputStream gzip = streamed
+                        ? new GZIPOutputStream(Channels.newOutputStream(out), GZIP_STREAM_BUFFER_SIZE) : null;
+                byte[] header = encode((exportFileHeader + System.lineSeparator()).getBytes(), compression);
+                long position = gzip != null ? write(gzip, header) : write(out, buffer, header);
+
+                int nextFile = 0;
+                while (nextFile < orderFiles.size() || !sections.isEmpty())
+                {
+                    while (nextFile < orderFiles.size() && sections.size() < maxTasksInFlight)
+                    {
+                        File ordersFile = orderFiles.get(nextFile++);
+                        sections.addLast(pool.submit(() -> prepareSection(ordersFile, previousManifest, compression)));
+                    }
+
+                    PreparedSection section = awaitSection(sections.removeFirst());
+                    long length;
+                    if (section.bytes != null)
+                    {
+                        length = gzip != null ? write(gzip, section.bytes) : write(out, buffer, section.bytes);
+                    }
+                    else
+                    {
+                        flush(out, buffer);
+                        length = copy(previousExport, section.previous, out);
+                    }
+                    writtenSections.put(section.date, new ExportManifest.Section(section.stamp.totalSize(),
+                            section.stamp.lastModified(), section.checksum, position, length));
+                    position += length;
+                }
+                if (gzip != null)
+                {
+                    gzip.finish();
+                }
+                flush(out, buffer);
+                // On disk before it replaces the previous export, so a crash leaves one complete export or the other.
+                out.force(false);
+            }
+
+            Files.move(tempFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            if (streamed)
+            {
+                manifestFile.delete();
+            }
+            else
+            {
+                new ExportManifest(exportFile.length(), exportFile.lastModified(), writtenSections).save(manifestFile);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FlooringMasteryPersistenceException("Error. Could not write data to file.", e);
+        }
+        finally
+        {
+            sections.forEach(section -> section.cancel(true));
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Decides whether the section of one Orders file can be copied from the previous export, and formats it otherwise.
+     * The size and modification time are compared first; only when they differ is the checksum computed, since a file
+     * whose checksum still matches holds the same orders.
+     */
+    private PreparedSection prepareSection(File ordersFile, ExportManifest previousManifest, ExportCompression compression)
+            throws IOException, FlooringMasteryPersistenceException
+    {
+        LocalDate date = OrdersFiles.dateOf(ordersFile);
+        FileStamp stamp = FileStamp.of(ordersFile);
+        ExportManifest.Section previous = previousManifest.getSection(date);
+
+        if (previous != null && previous.size == stamp.totalSize() && previous.modified == stamp.lastModified())
+        {
+            return new PreparedSection(date, stamp, previous.checksum, null, previous);
+        }
+
+        long checksum = FileStamp.checksum(ordersFile);
+        if (previous != null && previous.checksum == checksum)
+        {
+            return new PreparedSection(date, stamp, checksum, null, previous);
+        }
+        return new PreparedSection(date, stamp, checksum, encode(formatSection(ordersFile).getBytes(), compression), null);
+    }
+
+    // Compresses the text in the task that formatted it when the export is written in GZIP blocks.
+    private static byte[] encode(byte[] text, ExportCompression compression) throws IOException
+    {
+        if (compression != ExportCompression.PARALLEL_GZIP)
+        {
+            return text;
+        }
+        ByteArrayOutputStream members = new ByteArrayOutputStream(text.length / 4 + 64);
+        for (int blockStart = 0; blockStart < text.length; blockStart += GZIP_BLOCK_SIZE)
+        {
+            try (GZIPOutputStream member = new GZIPOutputStream(members))
+            {
+                member.write(text, blockStart, Math.min(GZIP_BLOCK_SIZE, text.length - blockStart));
+            }
+        }
+        return members.toByteArray();
+    }
+
+    /**
+     * Formats the orders of one Orders file as export lines, each one ending with the date of the file.
+     */
+    String formatSection(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        String date = OrdersFiles.dateOf(ordersFile).format(DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        StringBuilder section = new StringBuilder();
+        for (Order order : journal.readOrders(ordersFile))
+        {
+            section.append(marshaller.marshallOrder(order))
+                    .append(delimiter).append(' ').append(date)
+                    .append(System.lineSeparator());
+        }
+        return section.toString();
+    }
+
+    private long write(FileChannel out, ByteBuffer buffer, byte[] bytes) throws IOException
+    {
+        int written = 0;
+        while (written < bytes.length)
+        {
+            if (!buffer.hasRemaining())
+            {
+                flush(out, buffer);
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, chunk);
+            written += chunk;
+        }
+        return bytes.length;
+    }
+
+    private long write(OutputStream gzip, byte[] bytes) throws IOException
+    {
+        gzip.write(bytes);
+        return bytes.length;
+    }
+
+    private void flush(FileChannel out, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private long copy(FileChannel previousExport, ExportManifest.Section previous, FileChannel out) throws IOException
+    {
+        long copied = 0;
+        while (copied < previous.length)
+        {
+            long transferred = previousExport.transferTo(previous.offset + copied, previous.length - copied, out);
+            if (transferred <= 0)
+            {
+                throw new IOException("The previous export file is shorter than its manifest says.");
+            }
+            copied += transferred;
+        }
+        return copied;
+    }
+
+    private PreparedSection awaitSection(Future<PreparedSection> section) throws FlooringMasteryPersistenceException
+    {
+        try
+        {
+            return section.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Error. The export was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof FlooringMasteryPersistenceException)
+            {
+                throw (FlooringMasteryPersistenceException) e.getCause();
+            }
+            throw new FlooringMasteryPersistenceException("Error. Could not read order data for the export.", e.getCause());
+        }
+    }
+
+    /**
+     * The section of one date, either formatted from its Orders file or pointing at the section of the previous export.
+     */
+    private static final class PreparedSection
+    {
+        private final LocalDate date;
+        private final FileStamp stamp;
+        private final long checksum;
+        // The formatted orders, compressed if the export is written in GZIP blocks.
+        private final byte[] bytes;
+        private final ExportManifest.Section previous;
+
+        private PreparedSection(LocalDate date, FileStamp stamp, long checksum, byte[] bytes, ExportManifest.Section previous)
+        {
+            this.date = date;
+            this.stamp = stamp;
+            this.checksum = checksum;
+            this.bytes = bytes;
+            this.previous = previous;
+        }
+    }
+}
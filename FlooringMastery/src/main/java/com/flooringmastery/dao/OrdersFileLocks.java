@@ -0,0 +1,113 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.LockStatistics;
+
+/**
+ * Exclusive locks on the files of a date that also hold off other programs using the same orders folder. Locking an
+ * Orders file takes a {@link FileLock} on a lock file kept next to it (Orders_MMddyyyy.lock), which other running copies of
+ * the program take as well before they read or change the date's files. The lock file is never deleted, as another program
+ * may be waiting on it.
+ * <p>
+ * A FileLock is held by the whole Java process, so threads of the same process first queue on a lock shared by every
+ * instance of this class; the lock is reentrant, and the file itself is only locked by the outermost lock of a thread.
+ * Every call to {@link #lock(File)} must be followed by a call to {@link #unlock(File)} in a finally block.
+ */
+class OrdersFileLocks
+{
+
+    static final String LOCK_EXTENSION = ".lock";
+
+    // Keyed by the absolute path of the lock file; shared by every instance, as file locks are held per process.
+    private static final Map<String, FileLockEntry> LOCKS = new ConcurrentHashMap<>();
+
+    private final LockWaits waits = new LockWaits();
+
+    static File lockFileFor(File ordersFile)
+    {
+        String path = ordersFile.getPath();
+        return new File(path.substring(0, path.lastIndexOf('.')) + LOCK_EXTENSION);
+    }
+
+    /**
+     * Waits until no other thread or program holds the lock of the Orders file, then takes it.
+     *
+     * @throws FlooringMasteryPersistenceException if the lock file cannot be opened or locked
+     */
+    void lock(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        File lockFile = lockFileFor(ordersFile);
+        FileLockEntry entry = LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), path -> new FileLockEntry());
+        long start = System.nanoTime();
+        entry.threadLock.lock();
+        if (entry.threadLock.getHoldCount() > 1)
+        {
+            return;
+        }
+
+        FileChannel channel = null;
+        try
+        {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            entry.fileLock = channel.lock();
+            waits.record(System.nanoTime() - start);
+        }
+        catch (IOException e)
+        {
+            closeQuietly(channel);
+            entry.threadLock.unlock();
+            throw new FlooringMasteryPersistenceException("Error. Could not lock the orders file " + ordersFile + ".", e);
+        }
+    }
+
+    void unlock(File ordersFile)
+    {
+        FileLockEntry entry = LOCKS.get(lockFileFor(ordersFile).getAbsolutePath());
+        if (entry.threadLock.getHoldCount() == 1)
+        {
+            // Closing the channel releases the file lock.
+            closeQuietly(entry.fileLock.channel());
+            entry.fileLock = null;
+        }
+        entry.threadLock.unlock();
+    }
+
+    /**
+     * Returns how many times the files were locked, not counting reentrant locks, and how long it took to get the locks.
+     */
+    LockStatistics getStatistics()
+    {
+        return waits.getStatistics();
+    }
+
+    private static void closeQuietly(FileChannel channel)
+    {
+        if (channel == null)
+        {
+            return;
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            // The process lets go of the file lock when it exits, at the latest.
+        }
+    }
+
+    private static final class FileLockEntry
+    {
+        private final ReentrantLock threadLock = new ReentrantLock();
+        private FileLock fileLock; // held while a thread holds threadLock
+    }
+}
@@ -0,0 +1,54 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Naming rules of the Orders_MMddyyyy.txt files shared by the DAO and the components reading the orders folder directly.
+ */
+final class OrdersFiles
+{
+
+    static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private OrdersFiles()
+    {
+
+    }
+
+    static boolean isOrdersFile(String fileName)
+    {
+        return fileName.startsWith("Orders_") && fileName.endsWith(".txt");
+    }
+
+    static File fileFor(File ordersFolder, LocalDate date)
+    {
+        return new File(ordersFolder, "Orders_" + date.format(FILE_DATE_FORMAT) + ".txt");
+    }
+
+    static LocalDate dateOf(File ordersFile)
+    {
+        // Taking the date between the last '_' and '.', so it works whether or not the path was split into folders.
+        String fileName = ordersFile.getName();
+        String unformattedDate = fileName.substring(fileName.lastIndexOf('_') + 1, fileName.lastIndexOf('.'));
+        return LocalDate.parse(unformattedDate, FILE_DATE_FORMAT);
+    }
+
+    /**
+     * Lists the Orders files of a folder, sorted by the date in their names.
+     */
+    static List<File> listByDate(File ordersFolder)
+    {
+        File[] orderFiles = ordersFolder.listFiles((dir, name) -> isOrdersFile(name));
+        if (orderFiles == null)
+        {
+            return List.of();
+        }
+        Arrays.sort(orderFiles, Comparator.comparing(OrdersFiles::dateOf));
+        return Arrays.asList(orderFiles);
+    }
+}
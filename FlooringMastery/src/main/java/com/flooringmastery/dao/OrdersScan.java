@@ -0,0 +1,18 @@
+package com.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * Work done on the orders of one date during {@link FlooringMasteryDao#scanOrders}. Dates are scanned in parallel, so a
+ * scan must not share state between dates; each returns its own result, and the results are combined afterwards.
+ *
+ * @param <T> the result of scanning one date
+ */
+public interface OrdersScan<T>
+{
+
+    T scan(LocalDate date, List<Order> orders);
+}
@@ -0,0 +1,153 @@
+package com.flooringmastery.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Runs an {@link OrdersScan} over the Orders files of a range of dates, or a {@link DailyTotalsScan} over their rollups.
+ * Files outside the range are skipped by the date in their names without being opened, and the remaining dates are read
+ * and scanned in parallel on a ForkJoinPool.
+ */
+class OrdersScanner
+{
+
+    private static final Logger LOGGER = Logger.getLogger(OrdersScanner.class.getName());
+
+    /**
+     * Work done on the Orders file of one date.
+     */
+    private interface DateTask<T>
+    {
+        T run(LocalDate date, File ordersFile) throws FlooringMasteryPersistenceException;
+    }
+
+    private final OrderJournal journal;
+    private final OrdersFileLocks fileLocks;
+    private final ForkJoinPool pool;
+
+    OrdersScanner(OrderJournal journal, OrdersFileLocks fileLocks)
+    {
+        this(journal, fileLocks, ForkJoinPool.commonPool());
+    }
+
+    OrdersScanner(OrderJournal journal, OrdersFileLocks fileLocks, ForkJoinPool pool)
+    {
+        this.journal = journal;
+        this.fileLocks = fileLocks;
+        this.pool = pool;
+    }
+
+    /**
+     * @param fromDate first date to scan, or null to start at the first Orders file
+     * @param toDate   last date to scan, or null to end at the last Orders file
+     * @return the result of every scanned date, in date order
+     */
+    <T> List<T> scan(File ordersFolder, LocalDate fromDate, LocalDate toDate, OrdersScan<T> scan)
+            throws FlooringMasteryPersistenceException
+    {
+        return runOnDates(ordersFolder, fromDate, toDate, (date, ordersFile) -> scan.scan(date, read(ordersFile)));
+    }
+
+    /**
+     * Same as {@link #scan}, but reads the rollup of each date instead of its orders. The orders of a date are only read
+     * when its rollup is missing or out of date, and the rollup is then written again for the next scan.
+     */
+    <T> List<T> scanTotals(File ordersFolder, LocalDate fromDate, LocalDate toDate, DailyTotalsScan<T> scan)
+            throws FlooringMasteryPersistenceException
+    {
+        return runOnDates(ordersFolder, fromDate, toDate, (date, ordersFile) -> scan.scan(date,
+                readRollup(ordersFile).toAggregates()));
+    }
+
+    private DailyRollup readRollup(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        DailyRollup rollup = DailyRollup.read(ordersFile);
+        if (rollup != null)
+        {
+            return rollup;
+        }
+
+        // The stamp is taken before reading, so a change made while the file is read makes the new rollup out of date. An
+        // archived date is added up from only the columns the rollup needs.
+        FileStamp stamp = FileStamp.of(ordersFile);
+        ColumnarOrders.Columns columns = journal.readColumns(ordersFile, ColumnarOrders.TOTALS_COLUMNS);
+        rollup = columns != null ? DailyRollup.of(stamp, columns) : DailyRollup.of(stamp, read(ordersFile));
+
+        // Written under the lock of the Orders file, which the DAO holds while it updates a rollup, so the two never write
+        // the rollup at the same time; and only if the orders did not change meanwhile, as the DAO then wrote a newer one.
+        fileLocks.lock(ordersFile);
+        try
+        {
+            if (stamp.equals(FileStamp.of(ordersFile)))
+            {
+                rollup.write(ordersFile);
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Could not write the rollup of " + ordersFile + "; it is built again next time.", e);
+        }
+        finally
+        {
+            fileLocks.unlock(ordersFile);
+        }
+        return rollup;
+    }
+
+    private <T> List<T> runOnDates(File ordersFolder, LocalDate fromDate, LocalDate toDate, DateTask<T> task)
+            throws FlooringMasteryPersistenceException
+    {
+        List<Future<T>> scans = new ArrayList<>();
+        for (File ordersFile : OrdersFiles.listByDate(ordersFolder))
+        {
+            LocalDate date = OrdersFiles.dateOf(ordersFile);
+            if ((fromDate == null || !date.isBefore(fromDate)) && (toDate == null || !date.isAfter(toDate)))
+            {
+                scans.add(pool.submit(() -> task.run(date, ordersFile)));
+            }
+        }
+
+        List<T> results = new ArrayList<>(scans.size());
+        try
+        {
+            for (Future<T> dateScan : scans)
+            {
+                results.add(dateScan.get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Error. Reading the orders was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof FlooringMasteryPersistenceException)
+            {
+                throw (FlooringMasteryPersistenceException) e.getCause();
+            }
+            throw new FlooringMasteryPersistenceException("Error. Could not read order data.", e.getCause());
+        }
+        finally
+        {
+            scans.forEach(dateScan -> dateScan.cancel(true));
+        }
+    }
+
+    List<Order> read(File ordersFile) throws FlooringMasteryPersistenceException
+    {
+        return journal.readOrders(ordersFile);
+    }
+}
@@ -0,0 +1,41 @@
+package com.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A fixed set of read-write locks shared out among dates, so any number of dates can be locked without keeping a lock per
+ * date. The same date always gets the same lock; different dates usually get different locks and can then be read and
+ * written in parallel.
+ */
+class StripedDateLocks
+{
+
+    static final int DEFAULT_STRIPES = 64;
+
+    private final ReadWriteLock[] stripes;
+
+    StripedDateLocks()
+    {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes how many locks to share out, rounded up to a power of two
+     */
+    StripedDateLocks(int stripes)
+    {
+        this.stripes = new ReadWriteLock[stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int i = 0; i < this.stripes.length; i++)
+        {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    ReadWriteLock forDate(LocalDate date)
+    {
+        // Consecutive days are consecutive numbers, so they land on consecutive stripes.
+        return stripes[(int) date.toEpochDay() & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,19 @@
+package com.flooringmastery.dao.exceptions;
+
+/**
+ * Thrown when an order is changed based on a copy that is no longer current, because someone else changed or removed the
+ * order since it was read. Nothing is written; reading the order again and repeating the change succeeds.
+ */
+public class StaleOrdersFileException extends Exception 
+{
+
+    public StaleOrdersFileException(String message) 
+    {
+        super(message);
+    }
+
+    public StaleOrdersFileException(String message, Throwable cause) 
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,57 @@
+package com.flooringmastery.dto;
+
+public class CacheStatistics 
+{
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long bytes;
+
+    public CacheStatistics(long hits, long misses, long evictions, int entries, long bytes) 
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public long getHits() 
+    {
+        return hits;
+    }
+
+    public long getMisses() 
+    {
+        return misses;
+    }
+
+    public long getEvictions() 
+    {
+        return evictions;
+    }
+
+    public int getEntries() 
+    {
+        return entries;
+    }
+
+    public long getBytes() 
+    {
+        return bytes;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "CacheStatistics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", entries=" + entries +
+                ", bytes=" + bytes +
+                '}';
+    }
+}
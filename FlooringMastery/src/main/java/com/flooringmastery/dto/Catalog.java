@@ -0,0 +1,132 @@
+package com.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The states and products read from the Taxes and Products files, indexed by state abbreviation and product type so they
+ * can be looked up without scanning the lists. Each state's tax rate is also kept as the fraction used to calculate tax,
+ * and in cents for the {@link Money} pricing path, so those are worked out once when the catalog is built instead of for
+ * every order. A catalog is never changed after it is built; when the files change a new catalog with a higher version
+ * replaces it, so a calculation holding on to one catalog always sees a consistent set of rates.
+ */
+public final class Catalog
+{
+
+    private final List<State> states;
+    private final List<Product> products;
+    private final Map<String, StateTax> statesByAbbreviation;
+    private final Map<String, Product> productsByType;
+    private final long version;
+
+    public Catalog(List<State> states, List<Product> products)
+    {
+        this(states, products, 0);
+    }
+
+    public Catalog(List<State> states, List<Product> products, long version)
+    {
+        this.version = version;
+        this.states = Collections.unmodifiableList(new ArrayList<>(states));
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+
+        statesByAbbreviation = new HashMap<>();
+        // If a state or product is listed twice, the first one wins, as it did when the lists were searched in order.
+        for (State state : states)
+        {
+            statesByAbbreviation.putIfAbsent(state.getStateAbbreviation(), new StateTax(state));
+        }
+        productsByType = new HashMap<>();
+        for (Product product : products)
+        {
+            productsByType.putIfAbsent(product.getProductType(), product);
+        }
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public List<State> getStates()
+    {
+        return states;
+    }
+
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    /**
+     * @return the state with the given abbreviation, or null if there is none
+     */
+    public State findState(String stateAbbreviation)
+    {
+        StateTax stateTax = statesByAbbreviation.get(stateAbbreviation);
+        return stateTax == null ? null : stateTax.state;
+    }
+
+    /**
+     * @return the product with the given type, or null if there is none
+     */
+    public Product findProduct(String productType)
+    {
+        return productsByType.get(productType);
+    }
+
+    /**
+     * @return the tax rate of the state divided by 100 to 15 decimal places, or null if there is no such state
+     */
+    public BigDecimal findTaxFraction(String stateAbbreviation)
+    {
+        StateTax stateTax = statesByAbbreviation.get(stateAbbreviation);
+        return stateTax == null ? null : stateTax.fraction;
+    }
+
+    /**
+     * @return the tax rate of the state in cents, e.g. 925 for a rate of 9.25
+     * @throws ArithmeticException if the tax rate has more than two decimal places or the state does not exist
+     */
+    public long findTaxRateInCents(String stateAbbreviation)
+    {
+        StateTax stateTax = statesByAbbreviation.get(stateAbbreviation);
+        if (stateTax == null || !stateTax.fitsInCents)
+        {
+            throw new ArithmeticException("No tax rate in cents for state " + stateAbbreviation);
+        }
+        return stateTax.rateInCents;
+    }
+
+    private static final class StateTax
+    {
+        private final State state;
+        private final BigDecimal fraction;
+        private final boolean fitsInCents;
+        private final long rateInCents;
+
+        private StateTax(State state)
+        {
+            this.state = state;
+            this.fraction = state.getTaxRate().divide(new BigDecimal("100"), 15, RoundingMode.HALF_EVEN);
+
+            long cents = 0;
+            boolean fits = true;
+            try
+            {
+                cents = Money.toCents(state.getTaxRate());
+            }
+            catch (ArithmeticException e)
+            {
+                fits = false;
+            }
+            this.fitsInCents = fits;
+            this.rateInCents = cents;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.flooringmastery.dto;
+
+/**
+ * How the writes made durable by the group commit were batched, and how long a write waited to be durable.
+ */
+public class CommitStatistics 
+{
+
+    private final long commits;
+    private final long batches;
+    private final long fsyncs;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    public CommitStatistics(long commits, long batches, long fsyncs, long p50Nanos, long p90Nanos, long p99Nanos,
+            long maxNanos) 
+    {
+        this.commits = commits;
+        this.batches = batches;
+        this.fsyncs = fsyncs;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCommits() 
+    {
+        return commits;
+    }
+
+    public long getBatches() 
+    {
+        return batches;
+    }
+
+    public long getFsyncs() 
+    {
+        return fsyncs;
+    }
+
+    public long getP50Nanos() 
+    {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() 
+    {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() 
+    {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() 
+    {
+        return maxNanos;
+    }
+
+    public double getCommitsPerBatch() 
+    {
+        return batches == 0 ? 0 : (double) commits / batches;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "CommitStatistics{" +
+                "commits=" + commits +
+                ", batches=" + batches +
+                ", fsyncs=" + fsyncs +
+                ", p50Nanos=" + p50Nanos +
+                ", p90Nanos=" + p90Nanos +
+                ", p99Nanos=" + p99Nanos +
+                ", maxNanos=" + maxNanos +
+                '}';
+    }
+}
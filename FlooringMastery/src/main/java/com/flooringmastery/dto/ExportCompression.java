@@ -0,0 +1,26 @@
+package com.flooringmastery.dto;
+
+/**
+ * How the export file is written.
+ */
+public enum ExportCompression 
+{
+
+    /**
+     * Plain text, to DataExport.txt.
+     */
+    NONE,
+
+    /**
+     * One GZIP stream, to DataExport.txt.gz. Every date is formatted and compressed again on each export.
+     */
+    GZIP,
+
+    /**
+     * GZIP in independent blocks compressed in parallel, to DataExport.txt.gz. Any GZIP reader reads the blocks as one
+     * stream, and the blocks of dates that did not change are copied from the previous export without compressing them
+     * again.
+     */
+    PARALLEL_GZIP
+
+}
@@ -0,0 +1,9 @@
+package com.flooringmastery.dto;
+
+
+public enum GroupBy 
+{
+
+    DATE, MONTH, YEAR, STATE, PRODUCT
+    
+}
@@ -0,0 +1,70 @@
+package com.flooringmastery.dto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What an import of orders did: how many rows were read, how many orders were added to how many dates, the error of every
+ * row that was not imported, in row order, and how long it took.
+ */
+public class ImportResult 
+{
+
+    private final long rowsRead;
+    private final long ordersImported;
+    private final int datesWritten;
+    private final List<ImportRowError> errors;
+    private final long elapsedNanos;
+
+    public ImportResult(long rowsRead, long ordersImported, int datesWritten, List<ImportRowError> errors,
+            long elapsedNanos) 
+    {
+        this.rowsRead = rowsRead;
+        this.ordersImported = ordersImported;
+        this.datesWritten = datesWritten;
+        this.errors = List.copyOf(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() 
+    {
+        return rowsRead;
+    }
+
+    public long getOrdersImported() 
+    {
+        return ordersImported;
+    }
+
+    public int getDatesWritten() 
+    {
+        return datesWritten;
+    }
+
+    public List<ImportRowError> getErrors() 
+    {
+        return errors;
+    }
+
+    public long getElapsedNanos() 
+    {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() 
+    {
+        return elapsedNanos == 0 ? 0 : rowsRead * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "ImportResult{" +
+                "rowsRead=" + rowsRead +
+                ", ordersImported=" + ordersImported +
+                ", datesWritten=" + datesWritten +
+                ", errors=" + errors.size() +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
@@ -0,0 +1,33 @@
+package com.flooringmastery.dto;
+
+/**
+ * Why one row of an import file was not imported. Rows are numbered from 1, the header being row 1.
+ */
+public class ImportRowError 
+{
+
+    private final long rowNumber;
+    private final String message;
+
+    public ImportRowError(long rowNumber, String message) 
+    {
+        this.rowNumber = rowNumber;
+        this.message = message;
+    }
+
+    public long getRowNumber() 
+    {
+        return rowNumber;
+    }
+
+    public String getMessage() 
+    {
+        return message;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "Row " + rowNumber + ": " + message;
+    }
+}
@@ -0,0 +1,46 @@
+package com.flooringmastery.dto;
+
+public class LockStatistics 
+{
+
+    private final long acquisitions;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    public LockStatistics(long acquisitions, long totalWaitNanos, long maxWaitNanos) 
+    {
+        this.acquisitions = acquisitions;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public long getAcquisitions() 
+    {
+        return acquisitions;
+    }
+
+    public long getTotalWaitNanos() 
+    {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() 
+    {
+        return maxWaitNanos;
+    }
+
+    public long getAverageWaitNanos() 
+    {
+        return acquisitions == 0 ? 0 : totalWaitNanos / acquisitions;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "LockStatistics{" +
+                "acquisitions=" + acquisitions +
+                ", totalWaitNanos=" + totalWaitNanos +
+                ", maxWaitNanos=" + maxWaitNanos +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on amounts with two decimal places stored as whole numbers of hundredths in a long, used for areas, per square
+ * foot rates, tax rates, costs, taxes and totals on the pricing and aggregation paths, where creating BigDecimals for every
+ * intermediate result is the main cost. The methods work directly on those long values and round HALF_EVEN exactly
+ * like the BigDecimal calculations they replace; any result that would not fit in a long throws an ArithmeticException,
+ * so callers can fall back to BigDecimal.
+ */
+public final class Money
+{
+
+    public static final int SCALE = 2;
+    private static final long ONE = 100;
+
+    private Money()
+    {
+    }
+
+    /**
+     * Converts an amount to a number of hundredths.
+     *
+     * @throws ArithmeticException if the amount has non-zero digits past the second decimal place or does not fit in a long
+     */
+    public static long toCents(BigDecimal amount)
+    {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).scaleByPowerOfTen(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents)
+    {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Multiplies two amounts and rounds the product HALF_EVEN to two decimal places, as in
+     * {@code a.multiply(b).setScale(2, RoundingMode.HALF_EVEN)}.
+     */
+    public static long multiply(long aCents, long bCents)
+    {
+        return divideHalfEven(Math.multiplyExact(aCents, bCents), ONE);
+    }
+
+    /**
+     * Takes a percentage of an amount, e.g. the tax on a cost for a tax rate of 9.25, rounded HALF_EVEN to two decimal
+     * places, as in {@code amount.multiply(rate.divide(100)).setScale(2, RoundingMode.HALF_EVEN)}.
+     */
+    public static long percentOf(long amountCents, long ratePercentCents)
+    {
+        return divideHalfEven(Math.multiplyExact(amountCents, ratePercentCents), ONE * ONE);
+    }
+
+    /**
+     * Divides and rounds the quotient HALF_EVEN to a whole number.
+     */
+    public static long divideHalfEven(long dividend, long divisor)
+    {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0)
+        {
+            return quotient;
+        }
+
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long absoluteDivisor = Math.abs(divisor);
+        if (twiceRemainder > absoluteDivisor || (twiceRemainder == absoluteDivisor && (quotient & 1) != 0))
+        {
+            return (dividend < 0) == (divisor < 0) ? quotient + 1 : quotient - 1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,81 @@
+package com.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Count and sums of one group of orders. The group values follow the group-by keys of the query, e.g. the state and then
+ * the product type for a query grouped by STATE and PRODUCT.
+ */
+public class OrderAggregate 
+{
+
+    private final List<String> groupValues;
+    private final long orderCount;
+    private final BigDecimal area;
+    private final BigDecimal materialCost;
+    private final BigDecimal laborCost;
+    private final BigDecimal tax;
+    private final BigDecimal total;
+
+    public OrderAggregate(List<String> groupValues, long orderCount, BigDecimal area, BigDecimal materialCost,
+            BigDecimal laborCost, BigDecimal tax, BigDecimal total) 
+    {
+        this.groupValues = List.copyOf(groupValues);
+        this.orderCount = orderCount;
+        this.area = area;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    public List<String> getGroupValues() 
+    {
+        return groupValues;
+    }
+
+    public long getOrderCount() 
+    {
+        return orderCount;
+    }
+
+    public BigDecimal getArea() 
+    {
+        return area;
+    }
+
+    public BigDecimal getMaterialCost() 
+    {
+        return materialCost;
+    }
+
+    public BigDecimal getLaborCost() 
+    {
+        return laborCost;
+    }
+
+    public BigDecimal getTax() 
+    {
+        return tax;
+    }
+
+    public BigDecimal getTotal() 
+    {
+        return total;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "OrderAggregate{" +
+                "groupValues=" + groupValues +
+                ", orderCount=" + orderCount +
+                ", area=" + area +
+                ", materialCost=" + materialCost +
+                ", laborCost=" + laborCost +
+                ", tax=" + tax +
+                ", total=" + total +
+                '}';
+    }
+}
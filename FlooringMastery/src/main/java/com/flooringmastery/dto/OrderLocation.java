@@ -0,0 +1,63 @@
+package com.flooringmastery.dto;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Where an order can be found: the date of its Orders file and its order number, together with the customer's name.
+ */
+public class OrderLocation
+{
+
+    private final LocalDate date;
+    private final int orderNumber;
+    private final String customerName;
+
+    public OrderLocation(LocalDate date, int orderNumber, String customerName)
+    {
+        this.date = date;
+        this.orderNumber = orderNumber;
+        this.customerName = customerName;
+    }
+
+    public LocalDate getDate()
+    {
+        return date;
+    }
+
+    public int getOrderNumber()
+    {
+        return orderNumber;
+    }
+
+    public String getCustomerName()
+    {
+        return customerName;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderLocation that = (OrderLocation) o;
+        return orderNumber == that.orderNumber && Objects.equals(date, that.date) && Objects.equals(customerName,
+                that.customerName);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(date, orderNumber, customerName);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OrderLocation{" +
+                "date=" + date +
+                ", orderNumber=" + orderNumber +
+                ", customerName='" + customerName + '\'' +
+                '}';
+    }
+}
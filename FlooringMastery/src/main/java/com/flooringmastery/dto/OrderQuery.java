@@ -0,0 +1,79 @@
+package com.flooringmastery.dto;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A question about the orders of a range of dates: which dates to look at, which states and products to keep, and how to
+ * group the orders that are kept. An empty set of states or products keeps them all, and a null date leaves that end of
+ * the range open.
+ */
+public class OrderQuery 
+{
+
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+    private final Set<String> states;
+    private final Set<String> productTypes;
+    private final List<GroupBy> groupBy;
+
+    public OrderQuery(LocalDate fromDate, LocalDate toDate, Set<String> states, Set<String> productTypes,
+            List<GroupBy> groupBy) 
+    {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.states = Collections.unmodifiableSet(new LinkedHashSet<>(states));
+        this.productTypes = Collections.unmodifiableSet(new LinkedHashSet<>(productTypes));
+        this.groupBy = List.copyOf(groupBy);
+    }
+
+    public LocalDate getFromDate() 
+    {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() 
+    {
+        return toDate;
+    }
+
+    public Set<String> getStates() 
+    {
+        return states;
+    }
+
+    public Set<String> getProductTypes() 
+    {
+        return productTypes;
+    }
+
+    public List<GroupBy> getGroupBy() 
+    {
+        return groupBy;
+    }
+
+    public boolean coversDate(LocalDate date) 
+    {
+        return (fromDate == null || !date.isBefore(fromDate)) && (toDate == null || !date.isAfter(toDate));
+    }
+
+    public boolean keeps(String state, String productType) 
+    {
+        return (states.isEmpty() || states.contains(state)) && (productTypes.isEmpty() || productTypes.contains(productType));
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "OrderQuery{" +
+                "fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", states=" + states +
+                ", productTypes=" + productTypes +
+                ", groupBy=" + groupBy +
+                '}';
+    }
+}
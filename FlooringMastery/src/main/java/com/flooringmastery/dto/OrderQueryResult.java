@@ -0,0 +1,60 @@
+package com.flooringmastery.dto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The groups answering an {@link OrderQuery}, sorted by their group values, with how much was read to answer it.
+ */
+public class OrderQueryResult 
+{
+
+    private final List<OrderAggregate> aggregates;
+    private final int datesScanned;
+    private final long ordersScanned;
+    private final long elapsedNanos;
+
+    public OrderQueryResult(List<OrderAggregate> aggregates, int datesScanned, long ordersScanned, long elapsedNanos) 
+    {
+        this.aggregates = List.copyOf(aggregates);
+        this.datesScanned = datesScanned;
+        this.ordersScanned = ordersScanned;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<OrderAggregate> getAggregates() 
+    {
+        return aggregates;
+    }
+
+    public int getDatesScanned() 
+    {
+        return datesScanned;
+    }
+
+    public long getOrdersScanned() 
+    {
+        return ordersScanned;
+    }
+
+    public long getElapsedNanos() 
+    {
+        return elapsedNanos;
+    }
+
+    public double getOrdersPerSecond() 
+    {
+        return elapsedNanos == 0 ? 0 : ordersScanned * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "OrderQueryResult{" +
+                "aggregates=" + aggregates +
+                ", datesScanned=" + datesScanned +
+                ", ordersScanned=" + ordersScanned +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
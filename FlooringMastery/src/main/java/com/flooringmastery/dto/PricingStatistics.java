@@ -0,0 +1,67 @@
+package com.flooringmastery.dto;
+
+public class PricingStatistics 
+{
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long savedNanos;
+
+    public PricingStatistics(long hits, long misses, long evictions, int entries, long savedNanos) 
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.savedNanos = savedNanos;
+    }
+
+    public long getHits() 
+    {
+        return hits;
+    }
+
+    public long getMisses() 
+    {
+        return misses;
+    }
+
+    public long getEvictions() 
+    {
+        return evictions;
+    }
+
+    public int getEntries() 
+    {
+        return entries;
+    }
+
+    /**
+     * @return how much pricing time the hits saved: what the hits would have cost at the average time of a calculation,
+     * less the time the hits took
+     */
+    public long getSavedNanos() 
+    {
+        return savedNanos;
+    }
+
+    public double getHitRate() 
+    {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "PricingStatistics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", entries=" + entries +
+                ", savedNanos=" + savedNanos +
+                '}';
+    }
+}
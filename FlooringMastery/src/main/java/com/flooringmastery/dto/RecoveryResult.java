@@ -0,0 +1,80 @@
+package com.flooringmastery.dto;
+
+/**
+ * What the startup recovery of the Orders files found: how many dates were checked, how many had files left behind by an
+ * interrupted write, and how long it took. A finished compaction is a complete side file that replaced its Orders file
+ * (rolled forward); a discarded one might have been incomplete and was deleted (rolled back). A truncated journal ended in
+ * a half-written record, which was cut off.
+ */
+public class RecoveryResult 
+{
+
+    private final int datesChecked;
+    private final int datesRecovered;
+    private final int compactionsFinished;
+    private final int compactionsDiscarded;
+    private final int journalsTruncated;
+    private final int emptyJournalsRemoved;
+    private final long elapsedNanos;
+
+    public RecoveryResult(int datesChecked, int datesRecovered, int compactionsFinished, int compactionsDiscarded,
+            int journalsTruncated, int emptyJournalsRemoved, long elapsedNanos) 
+    {
+        this.datesChecked = datesChecked;
+        this.datesRecovered = datesRecovered;
+        this.compactionsFinished = compactionsFinished;
+        this.compactionsDiscarded = compactionsDiscarded;
+        this.journalsTruncated = journalsTruncated;
+        this.emptyJournalsRemoved = emptyJournalsRemoved;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDatesChecked() 
+    {
+        return datesChecked;
+    }
+
+    public int getDatesRecovered() 
+    {
+        return datesRecovered;
+    }
+
+    public int getCompactionsFinished() 
+    {
+        return compactionsFinished;
+    }
+
+    public int getCompactionsDiscarded() 
+    {
+        return compactionsDiscarded;
+    }
+
+    public int getJournalsTruncated() 
+    {
+        return journalsTruncated;
+    }
+
+    public int getEmptyJournalsRemoved() 
+    {
+        return emptyJournalsRemoved;
+    }
+
+    public long getElapsedNanos() 
+    {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "RecoveryResult{" +
+                "datesChecked=" + datesChecked +
+                ", datesRecovered=" + datesRecovered +
+                ", compactionsFinished=" + compactionsFinished +
+                ", compactionsDiscarded=" + compactionsDiscarded +
+                ", journalsTruncated=" + journalsTruncated +
+                ", emptyJournalsRemoved=" + emptyJournalsRemoved +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
@@ -0,0 +1,415 @@
+package com.flooringmastery.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
+import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.State;
+import com.flooringmastery.service.FlooringMasteryService;
+import com.flooringmastery.service.OrderFieldValidator;
+import com.flooringmastery.service.exception.InvalidDateException;
+import com.flooringmastery.service.exception.InvalidStateException;
+import com.flooringmastery.service.exception.NoSuchOrderException;
+import com.flooringmastery.service.exception.NoSuchProductException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Headless mode serving the orders to several store terminals over HTTP with JSON, instead of one console session. All
+ * terminals share this process, so they share its caches, indexes and locks rather than each reading the files again.
+ * Every request runs on its own virtual thread (a pooled platform thread before Java 21) and goes through the same FlooringMasteryService as the console:
+ * <pre>
+ * GET    /orders/{date}            orders of a date
+ * GET    /orders/{date}/{number}   one order
+ * POST   /orders/{date}            adds an order: {"customerName", "state", "productType", "area"}
+ * PUT    /orders/{date}/{number}   edits an order; fields left out keep their value
+ * DELETE /orders/{date}/{number}   removes an order
+ * POST   /export                   writes the DataExport file
+ * POST   /export?compression=gzip  writes DataExport.txt.gz instead, or with parallel-gzip in blocks compressed in parallel
+ * </pre>
+ * Dates are written yyyy-MM-dd. Errors come back as {"error": message} with status 400 for invalid input, 404 when there
+ * is no such date or order, 409 when the order was changed by someone else meanwhile (retrying succeeds) and 500 when the
+ * files cannot be read or written.
+ */
+@Component
+public class FlooringMasteryServer implements DisposableBean
+{
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final Logger LOGGER = Logger.getLogger(FlooringMasteryServer.class.getName());
+
+    @Autowired
+    FlooringMasteryService service;
+
+    private HttpServer server;
+    private ExecutorService requestThreads;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Recovers the Orders files and loads the states, products and order index, then serves requests until the program is shut down.
+     *
+     * @param port the port to listen on
+     * @throws IOException if the port cannot be listened on
+     */
+    public void run(int port) throws IOException, InterruptedException
+    {
+        try
+        {
+            service.recoverOrders();
+            service.loadStatesAndProducts();
+            service.archiveOldOrders();
+            service.loadOrderIndex();
+        }
+        catch (FlooringMasteryPersistenceException e)
+        {
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            return;
+        }
+
+        start(port);
+        stopped.await();
+    }
+
+    /**
+     * Starts listening on the port, without waiting. Requests are served until {@link #stop()} is called.
+     */
+    public synchronized void start(int port) throws IOException
+    {
+        requestThreads = newRequestExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requestThreads);
+        server.createContext("/orders", this::handleOrders);
+        server.createContext("/export", this::handleExport);
+        server.start();
+        LOGGER.info(() -> "Serving orders on port " + server.getAddress().getPort() + ".");
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public synchronized int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops taking requests, lets the requests already running finish, and releases {@link #run(int)}.
+     */
+    public synchronized void stop()
+    {
+        if (server != null)
+        {
+            server.stop(1);
+            requestThreads.shutdown();
+            try
+            {
+                requestThreads.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            server = null;
+        }
+        stopped.countDown();
+    }
+
+    // Virtual threads need Java 21, so they are looked up at runtime; an older runtime serves the requests from a pool of
+    // platform threads instead.
+    private static ExecutorService newRequestExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        stop();
+    }
+
+    private void handleOrders(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            // The path is /orders/{date} or /orders/{date}/{number}.
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if (path.length < 3 || path.length > 4)
+            {
+                send(exchange, 404, OrderJson.writeError("Unknown path."));
+                return;
+            }
+            LocalDate date = parseDate(path[2]);
+            Integer orderNumber = path.length == 4 ? parseOrderNumber(path[3]) : null;
+
+            String method = exchange.getRequestMethod();
+            if (orderNumber == null && method.equals("GET"))
+            {
+                send(exchange, 200, OrderJson.write(service.retrieveOrdersList(date, Action.DISPLAY)));
+            }
+            else if (orderNumber == null && method.equals("POST"))
+            {
+                send(exchange, 201, OrderJson.write(addOrder(date, readBody(exchange))));
+            }
+            else if (orderNumber != null && method.equals("GET"))
+            {
+                send(exchange, 200, OrderJson.write(service.retrieveOrder(date, orderNumber)));
+            }
+            else if (orderNumber != null && method.equals("PUT"))
+            {
+                send(exchange, 200, OrderJson.write(editOrder(date, orderNumber, readBody(exchange))));
+            }
+            else if (orderNumber != null && method.equals("DELETE"))
+            {
+                send(exchange, 200, OrderJson.write(removeOrder(date, orderNumber)));
+            }
+            else
+            {
+                send(exchange, 405, OrderJson.writeError("Method " + method + " is not supported here."));
+            }
+        }
+        catch (IllegalArgumentException | InvalidDateException | InvalidStateException | NoSuchProductException e)
+        {
+            send(exchange, 400, OrderJson.writeError(e.getMessage()));
+        }
+        catch (NoOrdersOnDateException | NoSuchOrderException e)
+        {
+            send(exchange, 404, OrderJson.writeError(e.getMessage()));
+        }
+        catch (StaleOrdersFileException e)
+        {
+            send(exchange, 409, OrderJson.writeError(e.getMessage()));
+        }
+        catch (FlooringMasteryPersistenceException e)
+        {
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            send(exchange, 500, OrderJson.writeError(e.getMessage()));
+        }
+        catch (RuntimeException e)
+        {
+            // A bug rather than a bad request; the client is answered instead of having its connection dropped.
+            LOGGER.log(Level.SEVERE, "Could not handle " + exchange.getRequestMethod() + " " + exchange.getRequestURI(),
+                    e);
+            send(exchange, 500, OrderJson.writeError("Error. Could not handle the request."));
+        }
+    }
+
+    private void handleExport(HttpExchange exchange) throws IOException
+    {
+        if (!exchange.getRequestMethod().equals("POST"))
+        {
+            send(exchange, 405, OrderJson.writeError("Method " + exchange.getRequestMethod() + " is not supported here."));
+            return;
+        }
+        ExportCompression compression = exportCompression(exchange.getRequestURI().getQuery());
+        if (compression == null)
+        {
+            send(exchange, 400, OrderJson.writeError("compression must be none, gzip or parallel-gzip."));
+            return;
+        }
+        try
+        {
+            service.exportData(compression);
+            send(exchange, 204, null);
+        }
+        catch (FlooringMasteryPersistenceException e)
+        {
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            send(exchange, 500, OrderJson.writeError(e.getMessage()));
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.log(Level.SEVERE, "Could not handle " + exchange.getRequestMethod() + " " + exchange.getRequestURI(),
+                    e);
+            send(exchange, 500, OrderJson.writeError("Error. Could not handle the request."));
+        }
+    }
+
+    // null if the query asks for a compression we do not have.
+    private static ExportCompression exportCompression(String query)
+    {
+        String compression = "none";
+        if (query != null && query.startsWith("compression="))
+        {
+            compression = query.substring("compression=".length());
+        }
+        switch (compression)
+        {
+            case "none":
+                return ExportCompression.NONE;
+            case "gzip":
+                return ExportCompression.GZIP;
+            case "parallel-gzip":
+                return ExportCompression.PARALLEL_GZIP;
+            default:
+                return null;
+        }
+    }
+
+    // Same steps as adding an order from the console, with every field checked before the Orders file is created.
+    private Order addOrder(LocalDate date, Map<String, String> fields) throws InvalidDateException,
+            InvalidStateException, NoSuchProductException, FlooringMasteryPersistenceException, NoOrdersOnDateException
+    {
+        service.validateDate(date);
+        Order newOrder = new Order();
+        newOrder.setCustomerName(OrderFieldValidator.customerName(required(fields, "customerName")));
+        setState(newOrder, required(fields, "state"));
+        setProduct(newOrder, required(fields, "productType"));
+        newOrder.setArea(OrderFieldValidator.area(required(fields, "area")));
+
+        // Creates an Orders file for the date if one does not exist.
+        service.retrieveOrdersList(date, Action.ADD);
+        newOrder.setOrderNumber(service.generateOrderNumber(date));
+        service.calculatePrices(newOrder);
+        service.enterOrder(newOrder, date);
+        return newOrder;
+    }
+
+    private Order editOrder(LocalDate date, int orderNumber, Map<String, String> fields) throws NoSuchOrderException,
+            InvalidStateException, NoSuchProductException, FlooringMasteryPersistenceException, StaleOrdersFileException
+    {
+        Order originalOrder = service.retrieveOrder(date, orderNumber);
+        // Editing a copy, so the edit can be checked against the order as it was read.
+        Order editedOrder = new Order(originalOrder.getOrderNumber(), originalOrder.getCustomerName(),
+                originalOrder.getState(), originalOrder.getTaxRate(), originalOrder.getProductType(),
+                originalOrder.getArea(), originalOrder.getCostPerSquareFoot(), originalOrder.getLaborCostPerSquareFoot(),
+                originalOrder.getMaterialCost(), originalOrder.getLaborCost(), originalOrder.getTax(),
+                originalOrder.getTotal());
+        if (fields.get("customerName") != null)
+        {
+            editedOrder.setCustomerName(OrderFieldValidator.customerName(fields.get("customerName")));
+        }
+        if (fields.get("state") != null)
+        {
+            setState(editedOrder, fields.get("state"));
+        }
+        if (fields.get("productType") != null)
+        {
+            setProduct(editedOrder, fields.get("productType"));
+        }
+        if (fields.get("area") != null)
+        {
+            editedOrder.setArea(OrderFieldValidator.area(fields.get("area")));
+        }
+
+        if (editedOrder.equals(originalOrder))
+        {
+            return originalOrder;
+        }
+        service.calculatePrices(editedOrder);
+        service.storeEditedOrder(originalOrder, editedOrder, date);
+        return editedOrder;
+    }
+
+    private Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException,
+            FlooringMasteryPersistenceException, StaleOrdersFileException
+    {
+        Order orderToRemove = service.retrieveOrder(date, orderNumber);
+        service.removeOrder(orderToRemove, date);
+        // Deletes the Orders file if that was the last order of the date.
+        service.deleteEmptyFile(date);
+        return orderToRemove;
+    }
+
+    private void setState(Order order, String stateAbbreviation) throws InvalidStateException
+    {
+        State state = service.retrieveState(stateAbbreviation);
+        order.setState(state.getStateAbbreviation());
+        order.setTaxRate(state.getTaxRate());
+    }
+
+    private void setProduct(Order order, String productType) throws NoSuchProductException
+    {
+        Product product = service.retrieveProduct(productType);
+        order.setProductType(product.getProductType());
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+    }
+
+    private static String required(Map<String, String> fields, String name)
+    {
+        String value = fields.get(name);
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Field " + name + " is required.");
+        }
+        return value;
+    }
+
+    private static LocalDate parseDate(String text)
+    {
+        try
+        {
+            return LocalDate.parse(text);
+        }
+        catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException("The date " + text + " is not in yyyy-MM-dd format.");
+        }
+    }
+
+    private static int parseOrderNumber(String text)
+    {
+        try
+        {
+            return Integer.parseInt(text);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("The order number " + text + " is not a number.");
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException
+    {
+        try (InputStream body = exchange.getRequestBody())
+        {
+            return OrderJson.readObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException
+    {
+        if (json == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.flooringmastery.server;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * Writes orders as JSON and reads the flat JSON objects clients send. Only what the server needs is supported: objects
+ * whose values are strings, numbers, booleans or null. Amounts are written as JSON numbers with their exact decimal digits.
+ */
+final class OrderJson
+{
+
+    private OrderJson()
+    {
+    }
+
+    static String write(Order order)
+    {
+        StringBuilder json = new StringBuilder(256);
+        json.append('{');
+        field(json, "orderNumber", Integer.toString(order.getOrderNumber())).append(',');
+        field(json, "customerName", quote(order.getCustomerName())).append(',');
+        field(json, "state", quote(order.getState())).append(',');
+        field(json, "taxRate", number(order.getTaxRate())).append(',');
+        field(json, "productType", quote(order.getProductType())).append(',');
+        field(json, "area", number(order.getArea())).append(',');
+        field(json, "costPerSquareFoot", number(order.getCostPerSquareFoot())).append(',');
+        field(json, "laborCostPerSquareFoot", number(order.getLaborCostPerSquareFoot())).append(',');
+        field(json, "materialCost", number(order.getMaterialCost())).append(',');
+        field(json, "laborCost", number(order.getLaborCost())).append(',');
+        field(json, "tax", number(order.getTax())).append(',');
+        field(json, "total", number(order.getTotal()));
+        return json.append('}').toString();
+    }
+
+    static String write(List<Order> orders)
+    {
+        StringBuilder json = new StringBuilder(orders.size() * 256 + 2);
+        json.append('[');
+        for (int i = 0; i < orders.size(); i++)
+        {
+            if (i > 0)
+            {
+                json.append(',');
+            }
+            json.append(write(orders.get(i)));
+        }
+        return json.append(']').toString();
+    }
+
+    static String writeError(String message)
+    {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    /**
+     * Reads a JSON object with no nested objects or arrays.
+     *
+     * @return the value of every field in the order given: strings unescaped, other values as written, null for null
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    static Map<String, String> readObject(String text)
+    {
+        Parser parser = new Parser(text);
+        Map<String, String> fields = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}'))
+        {
+            do
+            {
+                String name = parser.readString();
+                parser.expect(':');
+                fields.put(name, parser.readValue());
+            }
+            while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.expectEnd();
+        return fields;
+    }
+
+    static String quote(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                    {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, String value)
+    {
+        return json.append('"').append(name).append("\":").append(value);
+    }
+
+    private static String number(BigDecimal value)
+    {
+        return value == null ? "null" : value.toPlainString();
+    }
+
+    private static final class Parser
+    {
+        private final String text;
+        private int position;
+
+        private Parser(String text)
+        {
+            this.text = text;
+        }
+
+        private void expect(char c)
+        {
+            if (!consume(c))
+            {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + position + ".");
+            }
+        }
+
+        private boolean consume(char c)
+        {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c)
+            {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectEnd()
+        {
+            skipWhitespace();
+            if (position != text.length())
+            {
+                throw new IllegalArgumentException("Unexpected text at position " + position + ".");
+            }
+        }
+
+        private String readValue()
+        {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == '"')
+            {
+                return readString();
+            }
+
+            int start = position;
+            while (position < text.length() && ",}] \t\r\n".indexOf(text.charAt(position)) < 0)
+            {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null"))
+            {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?"))
+            {
+                return literal;
+            }
+            throw new IllegalArgumentException("Unsupported value at position " + start + "; only strings, numbers, " +
+                    "booleans and null are accepted.");
+        }
+
+        private String readString()
+        {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length())
+            {
+                char c = text.charAt(position++);
+                if (c == '"')
+                {
+                    return value.toString();
+                }
+                if (c != '\\')
+                {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length())
+                {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped)
+                {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                        {
+                            throw new IllegalArgumentException("Incomplete \\u escape at position " + position + ".");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped); // \" \\ and \/
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string.");
+        }
+
+        private void skipWhitespace()
+        {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            {
+                position++;
+            }
+        }
+    }
+}
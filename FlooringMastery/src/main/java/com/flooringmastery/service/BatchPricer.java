@@ -0,0 +1,186 @@
+package com.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.Money;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Prices many orders at once with the same whole-cent calculations as pricing one order. The tax rate of each distinct state
+ * is looked up once for the whole batch; the amounts of the orders are then copied into arrays of cents and the costs, tax
+ * and totals calculated in plain loops over those arrays, in parallel chunks on the common fork-join pool for large batches.
+ * Orders whose amounts do not fit in whole cents are handed back to be priced with BigDecimal, so the results are always
+ * the same as pricing the orders one by one.
+ */
+class BatchPricer
+{
+
+    static final int CHUNK_SIZE = 4096;
+
+    // How each order is priced.
+    private static final byte IN_CENTS = 0;
+    private static final byte IN_CENTS_NO_STATE = 1;
+    private static final byte WITH_BIG_DECIMAL = 2;
+
+    // The tax of orders in a state we do not have, as set by the single order calculation.
+    private static final BigDecimal NO_TAX = new BigDecimal("0");
+
+    private final List<Order> orders;
+    private final Consumer<Order> priceWithBigDecimal;
+    private final Map<String, Long> taxRatesInCents = new HashMap<>();
+    private final byte[] pricing;
+    private final long[] area;
+    private final long[] costPerSquareFoot;
+    private final long[] laborCostPerSquareFoot;
+    private final long[] taxRate;
+    private final long[] materialCost;
+    private final long[] laborCost;
+    private final long[] tax;
+    private final long[] total;
+
+    /**
+     * @param priceWithBigDecimal prices an order whose amounts do not fit in whole cents; may be called from several threads
+     */
+    BatchPricer(List<Order> orders, Catalog catalog, Consumer<Order> priceWithBigDecimal)
+    {
+        this.orders = orders;
+        this.priceWithBigDecimal = priceWithBigDecimal;
+        int size = orders.size();
+        pricing = new byte[size];
+        area = new long[size];
+        costPerSquareFoot = new long[size];
+        laborCostPerSquareFoot = new long[size];
+        taxRate = new long[size];
+        materialCost = new long[size];
+        laborCost = new long[size];
+        tax = new long[size];
+        total = new long[size];
+
+        // null stands for a state we do not have, Long.MIN_VALUE for a rate with more than two decimal places.
+        for (Order order : orders)
+        {
+            String state = order.getState();
+            if (!taxRatesInCents.containsKey(state))
+            {
+                taxRatesInCents.put(state, taxRateInCents(catalog, state));
+            }
+        }
+    }
+
+    void price()
+    {
+        int chunks = (orders.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1)
+        {
+            priceChunk(0, orders.size());
+        }
+        else
+        {
+            IntStream.range(0, chunks).parallel()
+                    .forEach(chunk -> priceChunk(chunk * CHUNK_SIZE, Math.min(orders.size(), (chunk + 1) * CHUNK_SIZE)));
+        }
+    }
+
+    private void priceChunk(int from, int to)
+    {
+        readAmounts(from, to);
+        calculate(from, to);
+        writePrices(from, to);
+    }
+
+    private void readAmounts(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            Order order = orders.get(i);
+            Long rate = taxRatesInCents.get(order.getState());
+            try
+            {
+                area[i] = Money.toCents(order.getArea());
+                costPerSquareFoot[i] = Money.toCents(order.getCostPerSquareFoot());
+                laborCostPerSquareFoot[i] = Money.toCents(order.getLaborCostPerSquareFoot());
+            }
+            catch (ArithmeticException e)
+            {
+                pricing[i] = WITH_BIG_DECIMAL;
+                continue;
+            }
+            if (rate == null)
+            {
+                pricing[i] = IN_CENTS_NO_STATE;
+            }
+            else if (rate == Long.MIN_VALUE)
+            {
+                pricing[i] = WITH_BIG_DECIMAL;
+            }
+            else
+            {
+                pricing[i] = IN_CENTS;
+                taxRate[i] = rate;
+            }
+        }
+    }
+
+    // The calculations of FlooringMasteryServiceImpl.calculatePricesInCents, one array element at a time.
+    private void calculate(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (pricing[i] == WITH_BIG_DECIMAL)
+            {
+                continue;
+            }
+            try
+            {
+                materialCost[i] = Money.multiply(area[i], costPerSquareFoot[i]);
+                laborCost[i] = Money.multiply(area[i], laborCostPerSquareFoot[i]);
+                long materialsPlusLabor = Math.addExact(materialCost[i], laborCost[i]);
+                tax[i] = pricing[i] == IN_CENTS ? Money.percentOf(materialsPlusLabor, taxRate[i]) : 0;
+                total[i] = Math.addExact(materialsPlusLabor, tax[i]);
+            }
+            catch (ArithmeticException e)
+            {
+                pricing[i] = WITH_BIG_DECIMAL;
+            }
+        }
+    }
+
+    private void writePrices(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            Order order = orders.get(i);
+            if (pricing[i] == WITH_BIG_DECIMAL)
+            {
+                priceWithBigDecimal.accept(order);
+                continue;
+            }
+            order.setMaterialCost(Money.toBigDecimal(materialCost[i]));
+            order.setLaborCost(Money.toBigDecimal(laborCost[i]));
+            order.setTax(pricing[i] == IN_CENTS ? Money.toBigDecimal(tax[i]) : NO_TAX);
+            order.setTotal(Money.toBigDecimal(total[i]));
+        }
+    }
+
+    private static Long taxRateInCents(Catalog catalog, String state)
+    {
+        if (catalog.findState(state) == null)
+        {
+            return null;
+        }
+        try
+        {
+            return catalog.findTaxRateInCents(state);
+        }
+        catch (ArithmeticException e)
+        {
+            return Long.MIN_VALUE;
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.flooringmastery.service;
 
 
+import java.io.File;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
 import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderLocation;
+import com.flooringmastery.dto.OrderQuery;
+import com.flooringmastery.dto.OrderQueryResult;
+import com.flooringmastery.dto.PricingStatistics;
 import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.RecoveryResult;
 import com.flooringmastery.dto.State;
 import com.flooringmastery.service.exception.InvalidDateException;
+import com.flooringmastery.service.exception.InvalidImportFileException;
 import com.flooringmastery.service.exception.InvalidStateException;
 import com.flooringmastery.service.exception.NoSuchOrderException;
 import com.flooringmastery.service.exception.NoSuchProductException;
@@ -27,15 +38,21 @@ public interface FlooringMasteryService
     Order calculatePrices(Order order);
 
     /**
-     * Sets the name of the Orders file we should use depending on the date passed in by the user.
+     * Calculates the material and labor costs, tax and total of many orders at once, with the same results as calculating
+     * them one order at a time. The catalog is looked up once per state for the whole batch, and large batches are priced
+     * in parallel.
      *
-     * @param date   the date passed in by the user
-     * @param action the action being taken by the user (DISPLAY, ADD, EDIT, or REMOVE); depending on this, the DAO will create
-     *               a new Orders file or not
-     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the current Orders file
-     * @throws NoOrdersOnDateException             if the user is trying to access Orders on a date there aren't any
+     * @param orders the orders we are calculating prices for
+     * @return the same orders with all price properties added to them
      */
-    void setOrdersFile(LocalDate date, Action action) throws FlooringMasteryPersistenceException, NoOrdersOnDateException;
+    List<Order> calculatePrices(List<Order> orders);
+
+    /**
+     * Returns how often single order prices were found already calculated, and how much pricing time that saved.
+     *
+     * @return the current statistics of the pricing memo
+     */
+    PricingStatistics getPricingStatistics();
 
     /**
      * Validates that the user's chosen date is a date in the future when adding orders.
@@ -45,11 +62,13 @@ public interface FlooringMasteryService
     void validateDate(LocalDate date) throws InvalidDateException;
 
     /**
-     * Generates an order number for the new order the user is adding.
+     * Generates an order number for the new order the user is adding. Numbers of removed orders are not given out again.
      *
+     * @param date the date of the new order
      * @return the order number
+     * @throws FlooringMasteryPersistenceException if the order number could not be stored.
      */
-    int generateOrderNumber();
+    int generateOrderNumber(LocalDate date) throws FlooringMasteryPersistenceException;
 
     /**
      * Validates that the State chosen by the user is an available state. Even though we get the State from the user by
@@ -81,16 +100,95 @@ public interface FlooringMasteryService
     void loadStatesAndProducts() throws FlooringMasteryPersistenceException;
 
     /**
-     * Retrieves a List of orders that was populated using the Orders file for the date the user specified.
+     * Finishes or rolls back the writes to the Orders files that were interrupted the last time the program stopped, so
+     * every date is consistent. Should run before anything else reads the Orders files.
+     *
+     * @return how many dates were checked and recovered, and how long it took
+     * @throws FlooringMasteryPersistenceException if the DAO cannot recover the files of a date
+     */
+    RecoveryResult recoverOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Moves the orders of dates older than the configured age into the binary archive format, which is smaller and lets
+     * reports read only the amounts they add up. Should run before {@link #loadOrderIndex()}. Does nothing unless an age
+     * was configured, so the Orders files stay text by default.
+     *
+     * @return the number of dates archived
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading or rewriting the Orders files
+     */
+    int archiveOldOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Loads the index used to find orders without knowing their date, and builds the index of revenue per day used by
+     * {@link #totalRevenue(LocalDate, LocalDate)}.
+     *
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders files or saving the index
+     */
+    void loadOrderIndex() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Adds up the totals of every order from one date to another, both included, in time that grows only with the
+     * logarithm of the number of days with orders. Orders placed, edited and removed through this service are included
+     * as soon as they are stored.
+     *
+     * @param fromDate the first date to include
+     * @param toDate   the last date to include
+     * @return the revenue of the dates, 0 if there were no orders
+     */
+    BigDecimal totalRevenue(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Finds the orders with an order number on every date.
+     *
+     * @param orderNumber the order number to look for
+     * @return the date, number and customer of each order found, in date order; empty if there are none
+     */
+    List<OrderLocation> findOrdersByNumber(int orderNumber);
+
+    /**
+     * Finds the orders of a customer on every date, ignoring case.
+     *
+     * @param customerName the name of the customer to look for
+     * @return the date, number and customer of each order found, in date order; empty if there are none
+     */
+    List<OrderLocation> findOrdersByCustomer(String customerName);
+
+    /**
+     * Answers a query over the orders of a range of dates: the orders in the states and products it keeps are counted and
+     * their area, material cost, labor cost, tax and total are added up per group. The answer is worked out from the daily
+     * rollups of the dates in the range, read in parallel; only dates whose rollup is out of date have their orders read.
+     *
+     * @param query the date range, filters and group-by keys
+     * @return one aggregate per group, with the number of orders covered and the time taken
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders files
+     */
+    OrderQueryResult queryOrders(OrderQuery query) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Answers a query like {@link #queryOrders(OrderQuery)}, but reads every order of the dates in the range instead of
+     * their rollups. Used to check that the rollups agree with the orders.
+     *
+     * @param query the date range, filters and group-by keys
+     * @return one aggregate per group, with the number of orders scanned and the time taken
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders files
+     */
+    OrderQueryResult queryOrdersByFullScan(OrderQuery query) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Retrieves a List of orders populated using the Orders file for the date the user specified. If the user is adding an
+     * order and the date has no Orders file, the DAO creates one.
      *
-     * @param action the action the user is taking
-     * @return the list of Orders for the specified date
+     * @param date   the date passed in by the user
+     * @param action the action being taken by the user (DISPLAY, ADD, EDIT, or REMOVE)
+     * @return a copy of the list of Orders for the specified date
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders file
      * @throws NoOrdersOnDateException if there are no orders for the specified date (the order's list size is 0) and the
      *                                 action being taken is not ADDING; if the action is ADDING, we do not throw an exception
      *                                 even if there are no orders for the specified date, as the user should then be able to
      *                                 add new orders for that date
      */
-    List<Order> retrieveOrdersList(Action action) throws NoOrdersOnDateException;
+    List<Order> retrieveOrdersList(LocalDate date, Action action) throws FlooringMasteryPersistenceException,
+            NoOrdersOnDateException;
 
     /**
      * Retrieves a List with State data that was populated using the Taxes file.
@@ -106,14 +204,34 @@ public interface FlooringMasteryService
      */
     List<Product> retrieveProductsList();
 
+    /**
+     * Retrieves an available state by its abbreviation, without going through the whole list of states.
+     *
+     * @param stateAbbreviation the abbreviation of the state
+     * @return the state with its tax rate
+     * @throws InvalidStateException if the state is not on the list of available states
+     */
+    State retrieveState(String stateAbbreviation) throws InvalidStateException;
+
+    /**
+     * Retrieves an available product by its type, without going through the whole list of products.
+     *
+     * @param productType the type of the product
+     * @return the product with its costs per square foot
+     * @throws NoSuchProductException if the product is not on the list of available products
+     */
+    Product retrieveProduct(String productType) throws NoSuchProductException;
+
     /**
      * Retrieves an order with the specified order number.
      *
+     * @param date        the date of the order
      * @param orderNumber the order number of the order we want to retrieve
      * @return the order with the specified order number
-     * @throws NoSuchOrderException if no order is found with the specified order number
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders file
+     * @throws NoSuchOrderException                if no order is found with the specified order number
      */
-    Order retrieveOrder(int orderNumber) throws NoSuchOrderException;
+    Order retrieveOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException, NoSuchOrderException;
 
     /**
      * Writes new order to the corresponding Orders file and writes an audit entry of the operation.
@@ -125,36 +243,63 @@ public interface FlooringMasteryService
     void enterOrder(Order newOrder, LocalDate date) throws FlooringMasteryPersistenceException;
 
     /**
-     * Writes edited order to the corresponding Orders file and writes an audit entry of the operation.
+     * Writes edited order to the corresponding Orders file and writes an audit entry of the operation. The edit is rejected
+     * if someone else changed or removed the order since it was retrieved.
      *
-     * @param order the edited order
-     * @param date  the date of the edited order
-     * @throws FlooringMasteryPersistenceException if the DAO has problems writing to the current Orders file
+     * @param originalOrder the order as it was retrieved, before the edit
+     * @param editedOrder   the edited order
+     * @param date          the date of the edited order
+     * @throws FlooringMasteryPersistenceException if the DAO has problems writing to the Orders file
+     * @throws StaleOrdersFileException            if the order is no longer as it was retrieved; retrieving it again and
+     *                                             repeating the edit succeeds
      */
-    void storeEditedOrder(Order order, LocalDate date) throws FlooringMasteryPersistenceException;
+    void storeEditedOrder(Order originalOrder, Order editedOrder, LocalDate date) throws FlooringMasteryPersistenceException,
+            StaleOrdersFileException;
 
     /**
-     * Removes an order from the current Orders file and writes an audit entry of the operation.
+     * Removes an order from the Orders file of its date and writes an audit entry of the operation.
      *
      * @param order the order to be removed
      * @param date  the date of the removed order
-     * @throws FlooringMasteryPersistenceException if the DAO has problems writing to the current Orders file
+     * @throws FlooringMasteryPersistenceException if the DAO has problems writing to the Orders file
+     * @throws StaleOrdersFileException            if the order was changed or removed since it was retrieved
+     */
+    void removeOrder(Order order, LocalDate date) throws FlooringMasteryPersistenceException, StaleOrdersFileException;
+
+    /**
+     * Calls the DAO method that deletes the Orders file of a date if there are no orders in it.
+     *
+     * @param date the date of the Orders file
+     * @throws FlooringMasteryPersistenceException if the DAO has problems reading the Orders file
      */
-    void removeOrder(Order order, LocalDate date) throws FlooringMasteryPersistenceException;
+    void deleteEmptyFile(LocalDate date) throws FlooringMasteryPersistenceException;
 
     /**
-     * Calls the DAO method that deletes the current Orders file if there are no orders in it.
+     * Imports new orders from a CSV file with the header OrderDate,CustomerName,State,ProductType,Area, dates being in
+     * MM/dd/yyyy format. Every row is checked with the same rules as an order entered at the console and priced; rows that
+     * fail are left out and reported, the others are given order numbers and written with a single write per date.
+     * An export file, compressed or not, is restored instead: the orders of every date that has no orders are written back
+     * as they were exported, and the other dates are reported as errors.
+     *
+     * @param importFile the CSV file of new orders, or an export file
+     * @return how many rows were read and imported, the error of every row left out, and the throughput
+     * @throws FlooringMasteryPersistenceException if the DAO has problems writing an Orders file
+     * @throws InvalidImportFileException if the file does not exist, cannot be read or has the wrong header
      */
-    void deleteEmptyFile();
+    ImportResult importOrders(File importFile) throws FlooringMasteryPersistenceException, InvalidImportFileException;
 
     /**
      * Calls the DAO method that exports the orders from all Orders files to the DataExport file.
      *
      * @throws FlooringMasteryPersistenceException if the DAO has problems accessing an Orders file
-     * @throws NoOrdersOnDateException             if the date the user is specifying does not have a corresponding Orders file
-     *                                             (this should not ever happen in this method the way the program is
-     *                                             structured, and is only needed because this method uses the
-     *                                             setCurrentOrdersFile method, which can throw this exception)
      */
-    void exportData() throws FlooringMasteryPersistenceException, NoOrdersOnDateException;
+    void exportData() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Calls the DAO method that exports the orders from all Orders files to the DataExport file, compressed as asked.
+     *
+     * @param compression how the export file is written
+     * @throws FlooringMasteryPersistenceException if the DAO has problems accessing an Orders file
+     */
+    void exportData(ExportCompression compression) throws FlooringMasteryPersistenceException;
 }
\ No newline at end of file
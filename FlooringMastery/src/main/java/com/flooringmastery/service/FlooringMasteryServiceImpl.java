@@ -4,59 +4,156 @@ import com.flooringmastery.dao.FlooringMasteryAuditDao;
 import com.flooringmastery.dao.FlooringMasteryDao;
 import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
 import com.flooringmastery.dao.exceptions.NoOrdersOnDateException;
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
+import com.flooringmastery.dto.Money;
 import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderAggregate;
+import com.flooringmastery.dto.OrderLocation;
+import com.flooringmastery.dto.OrderQuery;
+import com.flooringmastery.dto.OrderQueryResult;
+import com.flooringmastery.dto.PricingStatistics;
 import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.RecoveryResult;
 import com.flooringmastery.dto.State;
 import com.flooringmastery.service.exception.InvalidDateException;
+import com.flooringmastery.service.exception.InvalidImportFileException;
 import com.flooringmastery.service.exception.InvalidStateException;
 import com.flooringmastery.service.exception.NoSuchOrderException;
 import com.flooringmastery.service.exception.NoSuchProductException;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 
 @Component
-public class FlooringMasteryServiceImpl implements FlooringMasteryService 
+public class FlooringMasteryServiceImpl implements FlooringMasteryService, DisposableBean 
 {
 
+    private static final Logger LOGGER = Logger.getLogger(FlooringMasteryServiceImpl.class.getName());
+    // Archiving is off unless this system property is set, e.g. -Dflooringmastery.archiveAfterDays=365.
+    public static final String ARCHIVE_AFTER_DAYS_PROPERTY = "flooringmastery.archiveAfterDays";
+
     @Autowired
     FlooringMasteryDao dao;
     @Autowired
     FlooringMasteryAuditDao auditDao;
+    // Replaced as a whole when it is built from the rollups, so it only ever holds the revenue of one complete build.
+    private volatile RevenueIndex revenueIndex = new RevenueIndex();
+    private final PricingMemo pricingMemo = new PricingMemo();
+    private final int archiveAfterDays;
 
+    @Autowired
     public FlooringMasteryServiceImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao) 
+    {
+        this(dao, auditDao, Integer.getInteger(ARCHIVE_AFTER_DAYS_PROPERTY, 0));
+    }
+
+    // Orders older than archiveAfterDays days are kept in the binary archive format; 0 or less turns archiving off.
+    public FlooringMasteryServiceImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao, int archiveAfterDays) 
     {
         this.dao = dao;
         this.auditDao = auditDao;
+        this.archiveAfterDays = archiveAfterDays;
     }
 
     @Override
     public Order calculatePrices(Order order) 
+    {
+        // The same catalog is used for the whole calculation.
+        Catalog catalog = dao.getCatalog();
+        if (pricingMemo.price(order, catalog)) 
+        {
+            return order;
+        }
+
+        long start = System.nanoTime();
+        try 
+        {
+            calculatePricesInCents(order, catalog);
+        } 
+        catch (ArithmeticException e) 
+        {
+            // Amounts with more than two decimal places, or too large to count in cents, are priced with BigDecimal.
+            calculatePricesWithBigDecimal(order, catalog);
+        }
+        pricingMemo.remember(order, catalog, System.nanoTime() - start);
+        return order;
+    }
+
+    @Override
+    public List<Order> calculatePrices(List<Order> orders) 
+    {
+        return calculatePrices(orders, dao.getCatalog());
+    }
+
+    // Prices a whole batch with one catalog, which callers that already hold a snapshot of it pass in.
+    static List<Order> calculatePrices(List<Order> orders, Catalog catalog) 
+    {
+        new BatchPricer(orders, catalog, order -> calculatePricesWithBigDecimal(order, catalog)).price();
+        return orders;
+    }
+
+    @Override
+    public PricingStatistics getPricingStatistics() 
+    {
+        return pricingMemo.getStatistics();
+    }
+
+    // Same calculations as calculatePricesWithBigDecimal, done on whole cents; HALF_EVEN rounding gives identical results.
+    // Both are package-private so a test can compare them.
+    static void calculatePricesInCents(Order order, Catalog catalog) 
+    {
+        // Calculations for material and labor costs.
+        long area = Money.toCents(order.getArea());
+        long materialCost = Money.multiply(area, Money.toCents(order.getCostPerSquareFoot()));
+        long laborCost = Money.multiply(area, Money.toCents(order.getLaborCostPerSquareFoot()));
+        long materialsPlusLabor = Math.addExact(materialCost, laborCost);
+
+        // Orders in a state we do not have keep a tax of 0, as they always have.
+        BigDecimal tax = new BigDecimal("0");
+        long taxInCents = 0;
+        if (catalog.findState(order.getState()) != null) 
+        {
+            taxInCents = Money.percentOf(materialsPlusLabor, catalog.findTaxRateInCents(order.getState()));
+            tax = Money.toBigDecimal(taxInCents);
+        }
+        long total = Math.addExact(materialsPlusLabor, taxInCents);
+
+        order.setMaterialCost(Money.toBigDecimal(materialCost));
+        order.setLaborCost(Money.toBigDecimal(laborCost));
+        order.setTax(tax);
+        order.setTotal(Money.toBigDecimal(total));
+    }
+
+    static void calculatePricesWithBigDecimal(Order order, Catalog catalog) 
     {
         // Calculations for material and labor costs.
         BigDecimal materialCost = order.getArea().multiply(order.getCostPerSquareFoot()).setScale(2, RoundingMode.HALF_EVEN);
         BigDecimal laborCost = order.getArea().multiply(order.getLaborCostPerSquareFoot()).setScale(2, RoundingMode.HALF_EVEN);
 
-        // Getting State from statesList that matches state abbreviation in the Order, so we can calculate tax.
+        // Getting the tax rate of the state in the Order, already divided by 100, so we can calculate tax.
         BigDecimal tax = new BigDecimal("0");
-        for (State state : dao.getStatesList()) 
+        BigDecimal stateTax = catalog.findTaxFraction(order.getState());
+        if (stateTax != null) 
         {
-            if (state.getStateAbbreviation().equals(order.getState())) 
-            {
-                BigDecimal stateTax = state.getTaxRate().divide(new BigDecimal("100"), 15, RoundingMode.HALF_EVEN);
-                BigDecimal costPlusLabor = materialCost.add(laborCost);
-                tax = costPlusLabor.multiply(stateTax).setScale(2, RoundingMode.HALF_EVEN);
-                break;
-            }
+            BigDecimal costPlusLabor = materialCost.add(laborCost);
+            tax = costPlusLabor.multiply(stateTax).setScale(2, RoundingMode.HALF_EVEN);
         }
         // Calculations for total.
         BigDecimal materialsPlusLabor = materialCost.add(laborCost);
@@ -66,17 +163,6 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
         order.setLaborCost(laborCost);
         order.setTax(tax);
         order.setTotal(total);
-        return order;
-    }
-
-    @Override
-    public void setOrdersFile(LocalDate date, Action action) throws FlooringMasteryPersistenceException,
-            NoOrdersOnDateException 
-    {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
-        String dateAsString = date.format(formatter);
-        String fileName = ".\\orders\\Orders_" + dateAsString + ".txt";
-        dao.setCurrentOrdersFile(fileName, action);
     }
 
     @Override
@@ -89,80 +175,148 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
     }
 
     @Override
-    public int generateOrderNumber() 
+    public int generateOrderNumber(LocalDate date) throws FlooringMasteryPersistenceException 
     {
-        // Generates an order number for the user's order depending on the highest order number of the list of orders for that
-        // date. If there are no orders for that date, assigns number 1 to the user's order.
-        List<Order> ordersList = dao.getOrdersList();
-        if (ordersList.size() == 0) 
-        {
-            return 1;
-        } 
-        else 
+        // Numbers continue from the highest number ever given out for the date, so a removed order's number is not reused.
+        return dao.nextOrderNumber(date);
+    }
+
+    @Override
+    public void validateState(String stateAbbrv) throws InvalidStateException 
+    {
+        if (dao.getCatalog().findState(stateAbbrv) == null) 
         {
-            int maxOrderNumber = 0;
-            for (Order order : ordersList) 
-            {
-                if (order.getOrderNumber() > maxOrderNumber) 
-                {
-                    maxOrderNumber = order.getOrderNumber();
-                }
-            }
-            return maxOrderNumber + 1;
+            throw new InvalidStateException("The chosen state is not on our list of available states.");
         }
     }
 
     @Override
-    public void validateState(String stateAbbrv) throws InvalidStateException 
+    public void validateProduct(String productType) throws NoSuchProductException 
     {
-        boolean stateIsAvailable = false;
-        for (State state : dao.getStatesList()) 
+        if (dao.getCatalog().findProduct(productType) == null) 
         {
-            if (state.getStateAbbreviation().equals(stateAbbrv)) 
-            {
-                stateIsAvailable = true;
-            }
+            throw new NoSuchProductException("No product called " + productType + " found in our list of available products.");
         }
-        
-        if (!stateIsAvailable) 
+    }
+
+    @Override
+    public void loadStatesAndProducts() throws FlooringMasteryPersistenceException 
+    {
+        dao.loadStatesAndProductsLists();
+    }
+
+    @Override
+    public RecoveryResult recoverOrders() throws FlooringMasteryPersistenceException 
+    {
+        RecoveryResult result = dao.recoverOrders();
+        LOGGER.info(() -> "Checked " + result.getDatesChecked() + " dates and recovered " + result.getDatesRecovered()
+                + " in " + TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()) + " ms: " + result);
+        return result;
+    }
+
+    @Override
+    public int archiveOldOrders() throws FlooringMasteryPersistenceException 
+    {
+        if (archiveAfterDays <= 0) 
         {
-            throw new InvalidStateException("The chosen state is not on our list of available states.");
+            return 0;
         }
+        long start = System.nanoTime();
+        int archivedFiles = dao.archiveOrdersBefore(LocalDate.now().minusDays(archiveAfterDays));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info(() -> "Archived the orders of " + archivedFiles + " dates older than " + archiveAfterDays + " days in "
+                + elapsedMillis + " ms");
+        return archivedFiles;
     }
 
     @Override
-    public void validateProduct(String productType) throws NoSuchProductException 
+    public void loadOrderIndex() throws FlooringMasteryPersistenceException 
     {
-        boolean productIsAvailable = false;
-        for (Product product : dao.getProductsList()) 
+        dao.loadOrderIndex();
+
+        // The revenue of each date comes from its rollup, so building the revenue index reads one small file per date.
+        RevenueIndex builtIndex = new RevenueIndex();
+        List<Map.Entry<LocalDate, BigDecimal>> dailyRevenue = dao.scanDailyTotals(null, null, (date, totals) -> 
         {
-            if (product.getProductType().equals(productType)) 
+            BigDecimal revenue = new BigDecimal("0");
+            for (OrderAggregate stateAndProduct : totals) 
             {
-                productIsAvailable = true;
+                revenue = revenue.add(stateAndProduct.getTotal());
             }
-        }
-        
-        if (!productIsAvailable) 
+            return Map.entry(date, revenue);
+        });
+        for (Map.Entry<LocalDate, BigDecimal> dateRevenue : dailyRevenue) 
         {
-            throw new NoSuchProductException("No product called " + productType + " found in our list of available products.");
+            builtIndex.add(dateRevenue.getKey(), dateRevenue.getValue());
         }
+        revenueIndex = builtIndex;
     }
 
     @Override
-    public void loadStatesAndProducts() throws FlooringMasteryPersistenceException 
+    public BigDecimal totalRevenue(LocalDate fromDate, LocalDate toDate) 
     {
-        dao.loadStatesAndProductsLists();
+        return revenueIndex.totalBetween(fromDate, toDate);
+    }
+
+    @Override
+    public List<OrderLocation> findOrdersByNumber(int orderNumber) 
+    {
+        return dao.findOrdersByNumber(orderNumber);
+    }
+
+    @Override
+    public List<OrderLocation> findOrdersByCustomer(String customerName) 
+    {
+        return dao.findOrdersByCustomer(customerName);
+    }
+
+    @Override
+    public OrderQueryResult queryOrders(OrderQuery query) throws FlooringMasteryPersistenceException 
+    {
+        long start = System.nanoTime();
+
+        // Each date is aggregated on its own while the dates are scanned in parallel, then the dates are merged.
+        List<OrderAggregator> aggregatedDates = dao.scanDailyTotals(query.getFromDate(), query.getToDate(),
+                (date, totals) -> new OrderAggregator(query).addTotals(date, totals));
+        return mergeDates(query, aggregatedDates, start, "daily rollups");
+    }
+
+    @Override
+    public OrderQueryResult queryOrdersByFullScan(OrderQuery query) throws FlooringMasteryPersistenceException 
+    {
+        long start = System.nanoTime();
+        List<OrderAggregator> aggregatedDates = dao.scanOrders(query.getFromDate(), query.getToDate(),
+                (date, orders) -> new OrderAggregator(query).addAll(date, orders));
+        return mergeDates(query, aggregatedDates, start, "Orders files");
+    }
+
+    private OrderQueryResult mergeDates(OrderQuery query, List<OrderAggregator> aggregatedDates, long start, String source) 
+    {
+        OrderAggregator aggregator = new OrderAggregator(query);
+        for (OrderAggregator aggregatedDate : aggregatedDates) 
+        {
+            aggregator.merge(aggregatedDate);
+        }
+
+        OrderQueryResult result = new OrderQueryResult(aggregator.toAggregates(), aggregatedDates.size(),
+                aggregator.getOrdersScanned(), System.nanoTime() - start);
+        LOGGER.info(() -> "Query " + query + " covered " + result.getOrdersScanned() + " orders of "
+                + result.getDatesScanned() + " dates from the " + source + " in "
+                + TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()) + " ms ("
+                + Math.round(result.getOrdersPerSecond()) + " orders/sec).");
+        return result;
     }
 
     @Override
-    public List<Order> retrieveOrdersList(Action action) throws NoOrdersOnDateException 
+    public List<Order> retrieveOrdersList(LocalDate date, Action action) throws FlooringMasteryPersistenceException,
+            NoOrdersOnDateException 
     {
-        List<Order> ordersList = dao.getOrdersList();
+        List<Order> ordersList = dao.getOrders(date, action);
         if (ordersList.size() == 0 && !(action == Action.ADD)) 
         {
             throw new NoOrdersOnDateException("No orders found for the specified date.");
         }
-        return dao.getOrdersList();
+        return ordersList;
     }
 
     @Override
@@ -178,22 +332,44 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
     }
 
     @Override
-    public Order retrieveOrder(int orderNumber) throws NoSuchOrderException 
+    public State retrieveState(String stateAbbreviation) throws InvalidStateException 
     {
-        for (Order order : dao.getOrdersList()) 
+        State state = dao.getCatalog().findState(stateAbbreviation);
+        if (state == null) 
         {
-            if (order.getOrderNumber() == orderNumber) 
-            {
-                return order;
-            }
+            throw new InvalidStateException("The chosen state is not on our list of available states.");
+        }
+        return state;
+    }
+
+    @Override
+    public Product retrieveProduct(String productType) throws NoSuchProductException 
+    {
+        Product product = dao.getCatalog().findProduct(productType);
+        if (product == null) 
+        {
+            throw new NoSuchProductException("No product called " + productType + " found in our list of available products.");
+        }
+        return product;
+    }
+
+    @Override
+    public Order retrieveOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException,
+            NoSuchOrderException 
+    {
+        Order order = dao.getOrder(date, orderNumber);
+        if (order == null) 
+        {
+            throw new NoSuchOrderException("No order found with that order number for the selected date.");
         }
-        throw new NoSuchOrderException("No order found with that order number for the selected date.");
+        return order;
     }
 
     @Override
     public void enterOrder(Order order, LocalDate date) throws FlooringMasteryPersistenceException 
     {
-        dao.addOrder(order);
+        dao.addOrder(date, order);
+        revenueIndex.add(date, order.getTotal());
 
         // Writing audit entry.
         String dateAsString = date.format(DateTimeFormatter.ofPattern("MMddyyyy"));
@@ -202,9 +378,12 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
     }
 
     @Override
-    public void storeEditedOrder(Order editedOrder, LocalDate date) throws FlooringMasteryPersistenceException 
+    public void storeEditedOrder(Order originalOrder, Order editedOrder, LocalDate date)
+            throws FlooringMasteryPersistenceException, StaleOrdersFileException 
     {
-        dao.editOrder();
+        dao.editOrder(date, originalOrder, editedOrder);
+        revenueIndex.add(date, originalOrder.getTotal().negate());
+        revenueIndex.add(date, editedOrder.getTotal());
 
         // Writing audit entry.
         String dateAsString = date.format(DateTimeFormatter.ofPattern("MMddyyyy"));
@@ -213,9 +392,11 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
     }
 
     @Override
-    public void removeOrder(Order orderToRemove, LocalDate date) throws FlooringMasteryPersistenceException 
+    public void removeOrder(Order orderToRemove, LocalDate date) throws FlooringMasteryPersistenceException,
+            StaleOrdersFileException 
     {
-        dao.removeOrder(orderToRemove);
+        dao.removeOrder(date, orderToRemove);
+        revenueIndex.add(date, orderToRemove.getTotal().negate());
 
         // Writing audit entry.
         String dateAsString = date.format(DateTimeFormatter.ofPattern("MMddyyyy"));
@@ -224,14 +405,95 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService
     }
 
     @Override
-    public void exportData() throws FlooringMasteryPersistenceException, NoOrdersOnDateException 
+    public ImportResult importOrders(File importFile) throws FlooringMasteryPersistenceException, InvalidImportFileException 
+    {
+        long start = System.nanoTime();
+        if (!importFile.isFile()) 
+        {
+            throw new InvalidImportFileException("Error. There is no file called " + importFile + " to import.");
+        }
+        if (dao.isExportFile(importFile)) 
+        {
+            return restoreOrders(importFile);
+        }
+        OrderImporter.Rows rows = new OrderImporter(this, dao.getCatalog()).read(importFile);
+
+        // Each date is numbered and written once, whatever the number of its rows and wherever they are in the file.
+        long ordersImported = 0;
+        for (Map.Entry<LocalDate, List<Order>> dateOrders : rows.getOrdersByDate().entrySet()) 
+        {
+            LocalDate date = dateOrders.getKey();
+            List<Order> orders = dateOrders.getValue();
+            int firstOrderNumber = dao.nextOrderNumbers(date, orders.size());
+            for (int i = 0; i < orders.size(); i++) 
+            {
+                orders.get(i).setOrderNumber(firstOrderNumber + i);
+            }
+            dao.addOrders(date, orders);
+            for (Order order : orders) 
+            {
+                revenueIndex.add(date, order.getTotal());
+            }
+            ordersImported += orders.size();
+
+            // Writing audit entry.
+            String dateAsString = date.format(DateTimeFormatter.ofPattern("MMddyyyy"));
+            String fileName = ".\\audits\\Audit_" + dateAsString + ".txt";
+            auditDao.writeAuditEntry(LocalDateTime.now() + " -- imported order numbers " + firstOrderNumber + " to "
+                    + (firstOrderNumber + orders.size() - 1) + " from " + importFile.getName(), fileName);
+        }
+
+        ImportResult result = new ImportResult(rows.getRowsRead(), ordersImported, rows.getOrdersByDate().size(),
+                rows.getErrors(), System.nanoTime() - start);
+        LOGGER.info(() -> "Imported " + result.getOrdersImported() + " orders into " + result.getDatesWritten()
+                + " dates from " + result.getRowsRead() + " rows of " + importFile.getName() + " ("
+                + result.getErrors().size() + " rows rejected) in "
+                + TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()) + " ms ("
+                + Math.round(result.getRowsPerSecond()) + " rows/sec).");
+        return result;
+    }
+
+    private ImportResult restoreOrders(File exportFile) throws FlooringMasteryPersistenceException 
+    {
+        ImportResult result = dao.restoreFromExportFile(exportFile);
+        if (result.getDatesWritten() > 0) 
+        {
+            // The restored dates come with their rollups, so the revenue index is built again from them.
+            loadOrderIndex();
+        }
+        LOGGER.info(() -> "Restored " + result.getOrdersImported() + " orders into " + result.getDatesWritten()
+                + " dates from " + exportFile.getName() + " (" + result.getErrors().size() + " dates skipped) in "
+                + TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()) + " ms.");
+        return result;
+    }
+
+    @Override
+    public void exportData() throws FlooringMasteryPersistenceException 
     {
         dao.writeToExportFile();
     }
 
     @Override
-    public void deleteEmptyFile() 
+    public void exportData(ExportCompression compression) throws FlooringMasteryPersistenceException 
+    {
+        long start = System.nanoTime();
+        dao.writeToExportFile(compression);
+        LOGGER.info(() -> "Exported all orders (" + compression + ") in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    @Override
+    public void deleteEmptyFile(LocalDate date) throws FlooringMasteryPersistenceException 
+    {
+        dao.deleteFileIfEmpty(date);
+    }
+
+    @Override
+    public void destroy() 
     {
-        dao.deleteFile();
+        PricingStatistics pricing = getPricingStatistics();
+        LOGGER.info(() -> "Pricing memo answered " + pricing.getHits() + " of " + (pricing.getHits() + pricing.getMisses())
+                + " price calculations (" + Math.round(pricing.getHitRate() * 100) + "% hit rate), saving "
+                + TimeUnit.NANOSECONDS.toMicros(pricing.getSavedNanos()) + " microseconds of pricing.");
     }
 }
\ No newline at end of file
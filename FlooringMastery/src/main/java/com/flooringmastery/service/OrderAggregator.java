@@ -0,0 +1,221 @@
+package com.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.flooringmastery.dto.GroupBy;
+import com.flooringmastery.dto.Money;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.OrderAggregate;
+import com.flooringmastery.dto.OrderQuery;
+
+/**
+ * Adds up the orders kept by a query into one group per combination of group values. Each date is aggregated on its own
+ * and the aggregators are merged afterwards, so dates can be aggregated in parallel. A date can be added order by order, or
+ * from its daily totals per state and product, which give the same groups since every group-by key and filter is a date,
+ * state or product. Amounts are summed in whole cents; an amount with more than two decimal places is summed separately as
+ * a BigDecimal, so totals are always exact.
+ */
+class OrderAggregator
+{
+
+    private final OrderQuery query;
+    private final Map<List<String>, Group> groups = new HashMap<>();
+    private long ordersScanned;
+
+    OrderAggregator(OrderQuery query)
+    {
+        this.query = query;
+    }
+
+    OrderAggregator addAll(LocalDate date, List<Order> orders)
+    {
+        for (Order order : orders)
+        {
+            add(date, order);
+        }
+        return this;
+    }
+
+    void add(LocalDate date, Order order)
+    {
+        ordersScanned++;
+        if (query.keeps(order.getState(), order.getProductType()))
+        {
+            group(date, order.getState(), order.getProductType()).add(order);
+        }
+    }
+
+    /**
+     * Adds the orders of a date from its totals per state and product, whose group values are the state and product type.
+     */
+    OrderAggregator addTotals(LocalDate date, List<OrderAggregate> totals)
+    {
+        for (OrderAggregate stateAndProduct : totals)
+        {
+            String state = stateAndProduct.getGroupValues().get(0);
+            String productType = stateAndProduct.getGroupValues().get(1);
+            ordersScanned += stateAndProduct.getOrderCount();
+            if (query.keeps(state, productType))
+            {
+                group(date, state, productType).add(stateAndProduct);
+            }
+        }
+        return this;
+    }
+
+    private Group group(LocalDate date, String state, String productType)
+    {
+        List<String> groupValues = new ArrayList<>(query.getGroupBy().size());
+        for (GroupBy key : query.getGroupBy())
+        {
+            groupValues.add(groupValue(key, date, state, productType));
+        }
+        return groups.computeIfAbsent(groupValues, values -> new Group());
+    }
+
+    /**
+     * Adds the groups of another aggregator of the same query to this one.
+     */
+    OrderAggregator merge(OrderAggregator other)
+    {
+        ordersScanned += other.ordersScanned;
+        other.groups.forEach((groupValues, group) -> groups.merge(groupValues, group, Group::merge));
+        return this;
+    }
+
+    long getOrdersScanned()
+    {
+        return ordersScanned;
+    }
+
+    /**
+     * @return the aggregate of every group, sorted by their group values
+     */
+    List<OrderAggregate> toAggregates()
+    {
+        List<OrderAggregate> aggregates = new ArrayList<>(groups.size());
+        groups.forEach((groupValues, group) -> aggregates.add(new OrderAggregate(groupValues, group.orderCount,
+                group.area.value(), group.materialCost.value(), group.laborCost.value(), group.tax.value(),
+                group.total.value())));
+        aggregates.sort((a, b) -> compare(a.getGroupValues(), b.getGroupValues()));
+        return aggregates;
+    }
+
+    private static String groupValue(GroupBy key, LocalDate date, String state, String productType)
+    {
+        switch (key)
+        {
+            case DATE:
+                return date.toString();
+            case MONTH:
+                return date.toString().substring(0, 7);
+            case YEAR:
+                return Integer.toString(date.getYear());
+            case STATE:
+                return state;
+            case PRODUCT:
+                return productType;
+            default:
+                throw new IllegalArgumentException("Unknown group-by key " + key);
+        }
+    }
+
+    private static int compare(List<String> a, List<String> b)
+    {
+        for (int i = 0; i < a.size(); i++)
+        {
+            int comparison = a.get(i).compareTo(b.get(i));
+            if (comparison != 0)
+            {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static final class Group
+    {
+        private long orderCount;
+        private final Sum area = new Sum();
+        private final Sum materialCost = new Sum();
+        private final Sum laborCost = new Sum();
+        private final Sum tax = new Sum();
+        private final Sum total = new Sum();
+
+        private void add(Order order)
+        {
+            orderCount++;
+            area.add(order.getArea());
+            materialCost.add(order.getMaterialCost());
+            laborCost.add(order.getLaborCost());
+            tax.add(order.getTax());
+            total.add(order.getTotal());
+        }
+
+        private void add(OrderAggregate totals)
+        {
+            orderCount += totals.getOrderCount();
+            area.add(totals.getArea());
+            materialCost.add(totals.getMaterialCost());
+            laborCost.add(totals.getLaborCost());
+            tax.add(totals.getTax());
+            total.add(totals.getTotal());
+        }
+
+        private Group merge(Group other)
+        {
+            orderCount += other.orderCount;
+            area.merge(other.area);
+            materialCost.merge(other.materialCost);
+            laborCost.merge(other.laborCost);
+            tax.merge(other.tax);
+            total.merge(other.total);
+            return this;
+        }
+    }
+
+    private static final class Sum
+    {
+        private long cents;
+        private BigDecimal rest; // amounts that do not fit in cents, null while there are none
+
+        private void add(BigDecimal amount)
+        {
+            try
+            {
+                cents = Math.addExact(cents, Money.toCents(amount));
+            }
+            catch (ArithmeticException e)
+            {
+                rest = rest == null ? amount : rest.add(amount);
+            }
+        }
+
+        private void merge(Sum other)
+        {
+            try
+            {
+                cents = Math.addExact(cents, other.cents);
+            }
+            catch (ArithmeticException e)
+            {
+                rest = rest == null ? Money.toBigDecimal(other.cents) : rest.add(Money.toBigDecimal(other.cents));
+            }
+            if (other.rest != null)
+            {
+                rest = rest == null ? other.rest : rest.add(other.rest);
+            }
+        }
+
+        private BigDecimal value()
+        {
+            BigDecimal value = Money.toBigDecimal(cents);
+            return rest == null ? value : value.add(rest);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The rules for the customer name and area of an order that does not come from the console, which checks them as they are
+ * typed: rows of an import file and orders sent to the server. Both end up with exactly the values the console would have
+ * stored, so an order is priced and saved the same way wherever it was entered.
+ */
+public final class OrderFieldValidator
+{
+
+    public static final BigDecimal MIN_AREA = new BigDecimal("100");
+    public static final BigDecimal MAX_AREA = new BigDecimal("10000000");
+
+    private OrderFieldValidator()
+    {
+    }
+
+    /**
+     * @return the name without leading and trailing spaces
+     * @throws IllegalArgumentException if the name is empty or has anything but letters, digits, spaces and periods
+     */
+    public static String customerName(String name)
+    {
+        String trimmed = name.trim();
+        if (trimmed.isEmpty())
+        {
+            throw new IllegalArgumentException("Customer name cannot be empty.");
+        }
+        for (int i = 0; i < trimmed.length(); i++)
+        {
+            char c = trimmed.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ' ' && c != '.')
+            {
+                throw new IllegalArgumentException("Customer name cannot contain special characters.");
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * @return the area with two decimals, rounded half-even like the console does
+     * @throws IllegalArgumentException if the value is not a number or the area is not between {@link #MIN_AREA} and
+     *                                  {@link #MAX_AREA}
+     */
+    public static BigDecimal area(String value)
+    {
+        BigDecimal area;
+        try
+        {
+            area = new BigDecimal(value.trim()).setScale(2, RoundingMode.HALF_EVEN);
+        }
+        catch (NumberFormatException | ArithmeticException e)
+        {
+            throw new IllegalArgumentException("Area must be a number.");
+        }
+        if (area.compareTo(MIN_AREA) < 0 || area.compareTo(MAX_AREA) > 0)
+        {
+            throw new IllegalArgumentException("Area must be between " + MIN_AREA + " and " + MAX_AREA + " sq ft.");
+        }
+        return area;
+    }
+}
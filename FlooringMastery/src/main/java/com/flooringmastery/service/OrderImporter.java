@@ -0,0 +1,254 @@
+package com.flooringmastery.service;
+
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.ImportRowError;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.State;
+import com.flooringmastery.service.exception.InvalidDateException;
+import com.flooringmastery.service.exception.InvalidImportFileException;
+import com.flooringmastery.service.exception.InvalidStateException;
+import com.flooringmastery.service.exception.NoSuchProductException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a CSV file of new orders, one order per row under the header OrderDate,CustomerName,State,ProductType,Area, and
+ * turns every valid row into a priced order. The file is streamed in batches of rows; each batch is validated, then priced
+ * with one batch pricing call, on the common fork-join pool while the next one is read, with only a few batches in flight
+ * at a time. Every valid order stays in memory until the end of the file, so memory grows with the number of valid rows;
+ * only the rows still being read and priced are bounded by the batches. Batches are collected in the order they were read,
+ * so orders keep the order of the file within each date and the errors are in row order. Rows are checked with the same
+ * rules as orders entered at the console, through the {@link OrderFieldValidator}.
+ */
+class OrderImporter
+{
+
+    static final String HEADER = "OrderDate,CustomerName,State,ProductType,Area";
+
+    private static final int ROWS_PER_BATCH = 2048;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private final FlooringMasteryService service;
+    private final Catalog catalog;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * @param catalog the states and products every row is priced with, so a whole import uses a single catalog
+     */
+    OrderImporter(FlooringMasteryService service, Catalog catalog)
+    {
+        this.service = service;
+        this.catalog = catalog;
+    }
+
+    /**
+     * The valid orders of an import file by date, without order numbers, and why every other row was left out.
+     */
+    static class Rows
+    {
+        private final Map<LocalDate, List<Order>> ordersByDate = new TreeMap<>();
+        private final List<ImportRowError> errors = new ArrayList<>();
+        private long rowsRead;
+
+        Map<LocalDate, List<Order>> getOrdersByDate()
+        {
+            return ordersByDate;
+        }
+
+        List<ImportRowError> getErrors()
+        {
+            return errors;
+        }
+
+        long getRowsRead()
+        {
+            return rowsRead;
+        }
+
+        private void add(Rows batch)
+        {
+            for (Map.Entry<LocalDate, List<Order>> date : batch.ordersByDate.entrySet())
+            {
+                ordersByDate.computeIfAbsent(date.getKey(), d -> new ArrayList<>()).addAll(date.getValue());
+            }
+            errors.addAll(batch.errors);
+            rowsRead += batch.rowsRead;
+        }
+    }
+
+    /**
+     * @throws InvalidImportFileException if the file cannot be read or does not start with the expected header
+     */
+    Rows read(File importFile) throws InvalidImportFileException
+    {
+        Rows rows = new Rows();
+        Deque<Future<Rows>> batchesInFlight = new ArrayDeque<>();
+        int maxBatchesInFlight = 2 * pool.getParallelism();
+        try (BufferedReader reader = Files.newBufferedReader(importFile.toPath(), StandardCharsets.UTF_8))
+        {
+            String header = reader.readLine();
+            if (header == null || !header.trim().equalsIgnoreCase(HEADER))
+            {
+                throw new InvalidImportFileException("Error. The first line of " + importFile.getName() + " must be "
+                        + HEADER + ".");
+            }
+
+            long rowNumber = 1;
+            long firstRowOfBatch = 2;
+            List<String> batch = new ArrayList<>(ROWS_PER_BATCH);
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                rowNumber++;
+                batch.add(line);
+                if (batch.size() == ROWS_PER_BATCH)
+                {
+                    submit(batchesInFlight, firstRowOfBatch, batch);
+                    batch = new ArrayList<>(ROWS_PER_BATCH);
+                    firstRowOfBatch = rowNumber + 1;
+                    if (batchesInFlight.size() >= maxBatchesInFlight)
+                    {
+                        rows.add(await(batchesInFlight.poll()));
+                    }
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                submit(batchesInFlight, firstRowOfBatch, batch);
+            }
+            while (!batchesInFlight.isEmpty())
+            {
+                rows.add(await(batchesInFlight.poll()));
+            }
+            return rows;
+        }
+        catch (IOException e)
+        {
+            throw new InvalidImportFileException("Error. Could not read the import file " + importFile.getName() + ".", e);
+        }
+        finally
+        {
+            // Only left over when reading failed; the batches already read are of no use then.
+            for (Future<Rows> batchInFlight : batchesInFlight)
+            {
+                batchInFlight.cancel(false);
+            }
+        }
+    }
+
+    private void submit(Deque<Future<Rows>> batchesInFlight, long firstRowNumber, List<String> lines)
+    {
+        batchesInFlight.add(pool.submit(() -> validate(firstRowNumber, lines)));
+    }
+
+    private Rows await(Future<Rows> batch) throws InvalidImportFileException
+    {
+        try
+        {
+            return batch.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InvalidImportFileException("Error. The import was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            // Every row's own problems are caught in validate, so this is a bug rather than bad input.
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Rows validate(long firstRowNumber, List<String> lines)
+    {
+        Rows batch = new Rows();
+        List<Order> ordersToPrice = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++)
+        {
+            long rowNumber = firstRowNumber + i;
+            String line = lines.get(i);
+            batch.rowsRead++;
+            if (line.isBlank())
+            {
+                continue;
+            }
+            try
+            {
+                String[] fields = line.split(",", -1);
+                if (fields.length != 5)
+                {
+                    throw new IllegalArgumentException("Expected 5 values (" + HEADER + ") but found " + fields.length + ".");
+                }
+                LocalDate date = date(fields[0].trim());
+                Order order = order(fields);
+                batch.ordersByDate.computeIfAbsent(date, d -> new ArrayList<>()).add(order);
+                ordersToPrice.add(order);
+            }
+            catch (InvalidDateException | InvalidStateException | NoSuchProductException | IllegalArgumentException e)
+            {
+                batch.errors.add(new ImportRowError(rowNumber, e.getMessage()));
+            }
+        }
+        // Every valid row of the batch is priced at once, with the catalog its tax rate and costs were taken from, so a
+        // reload during the import cannot price a row at other rates than the ones it holds.
+        FlooringMasteryServiceImpl.calculatePrices(ordersToPrice, catalog);
+        return batch;
+    }
+
+    private LocalDate date(String value) throws InvalidDateException
+    {
+        LocalDate date;
+        try
+        {
+            date = LocalDate.parse(value, DATE_FORMAT);
+        }
+        catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException("The date " + value + " is not in MM/DD/YYYY format.");
+        }
+        service.validateDate(date);
+        return date;
+    }
+
+    private Order order(String[] fields) throws InvalidStateException, NoSuchProductException
+    {
+        String stateAbbreviation = fields[2].trim();
+        String productType = fields[3].trim();
+        service.validateState(stateAbbreviation);
+        service.validateProduct(productType);
+        State state = catalog.findState(stateAbbreviation);
+        Product product = catalog.findProduct(productType);
+        if (state == null || product == null)
+        {
+            // The catalog was reloaded since the import started.
+            throw new IllegalArgumentException("The state or product is no longer available.");
+        }
+
+        Order order = new Order();
+        order.setCustomerName(OrderFieldValidator.customerName(fields[1]));
+        order.setState(state.getStateAbbreviation());
+        order.setTaxRate(state.getTaxRate());
+        order.setProductType(product.getProductType());
+        order.setArea(OrderFieldValidator.area(fields[4]));
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        return order;
+    }
+}
@@ -0,0 +1,173 @@
+package com.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.PricingStatistics;
+
+/**
+ * Remembers the prices calculated for recent combinations of state, product and area, so quoting or editing an order that
+ * is priced the same as before does not calculate the prices again. The key also holds the per square foot rates the
+ * order carries, which are the catalog's at the time it was placed, and the version of the catalog its tax came from, so a
+ * remembered price is never used after the catalog changed; prices of older catalogs are dropped as soon as a newer catalog
+ * is seen. Lookups do not lock. Once the memo is full, an arbitrary entry makes room for each new one.
+ */
+class PricingMemo
+{
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Prices> entries = new ConcurrentHashMap<>();
+    private volatile long catalogVersion;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder calculationNanos = new LongAdder();
+
+    PricingMemo()
+    {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    PricingMemo(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Sets the remembered prices on the order if its combination was priced before with the same catalog.
+     *
+     * @return true if the order was priced, false if its prices must be calculated
+     */
+    boolean price(Order order, Catalog catalog)
+    {
+        long start = System.nanoTime();
+        dropOlderCatalogs(catalog);
+        Prices prices = entries.get(new Key(order, catalog));
+        if (prices == null)
+        {
+            misses.increment();
+            return false;
+        }
+
+        order.setMaterialCost(prices.materialCost);
+        order.setLaborCost(prices.laborCost);
+        order.setTax(prices.tax);
+        order.setTotal(prices.total);
+        hits.increment();
+        hitNanos.add(System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Remembers the prices just calculated for an order.
+     *
+     * @param calculationNanos how long the calculation took
+     */
+    void remember(Order order, Catalog catalog, long calculationNanos)
+    {
+        this.calculationNanos.add(calculationNanos);
+        if (entries.size() >= maxEntries)
+        {
+            Iterator<Key> anyKey = entries.keySet().iterator();
+            if (anyKey.hasNext() && entries.remove(anyKey.next()) != null)
+            {
+                evictions.increment();
+            }
+        }
+        entries.put(new Key(order, catalog), new Prices(order));
+    }
+
+    PricingStatistics getStatistics()
+    {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long averageCalculationNanos = missCount == 0 ? 0 : calculationNanos.sum() / missCount;
+        long savedNanos = Math.max(0, hitCount * averageCalculationNanos - hitNanos.sum());
+        return new PricingStatistics(hitCount, missCount, evictions.sum(), entries.size(), savedNanos);
+    }
+
+    private void dropOlderCatalogs(Catalog catalog)
+    {
+        if (catalog.getVersion() > catalogVersion)
+        {
+            synchronized (this)
+            {
+                if (catalog.getVersion() > catalogVersion)
+                {
+                    catalogVersion = catalog.getVersion();
+                    entries.keySet().removeIf(key -> key.catalogVersion < catalogVersion);
+                }
+            }
+        }
+    }
+
+    private static final class Key
+    {
+        private final long catalogVersion;
+        private final String state;
+        private final String productType;
+        private final BigDecimal area;
+        private final BigDecimal costPerSquareFoot;
+        private final BigDecimal laborCostPerSquareFoot;
+        private final int hash;
+
+        private Key(Order order, Catalog catalog)
+        {
+            this.catalogVersion = catalog.getVersion();
+            this.state = order.getState();
+            this.productType = order.getProductType();
+            this.area = order.getArea();
+            this.costPerSquareFoot = order.getCostPerSquareFoot();
+            this.laborCostPerSquareFoot = order.getLaborCostPerSquareFoot();
+            this.hash = Objects.hash(catalogVersion, state, productType, area, costPerSquareFoot, laborCostPerSquareFoot);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) o;
+            return catalogVersion == key.catalogVersion && Objects.equals(state, key.state)
+                    && Objects.equals(productType, key.productType) && Objects.equals(area, key.area)
+                    && Objects.equals(costPerSquareFoot, key.costPerSquareFoot)
+                    && Objects.equals(laborCostPerSquareFoot, key.laborCostPerSquareFoot);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    private static final class Prices
+    {
+        private final BigDecimal materialCost;
+        private final BigDecimal laborCost;
+        private final BigDecimal tax;
+        private final BigDecimal total;
+
+        private Prices(Order order)
+        {
+            this.materialCost = order.getMaterialCost();
+            this.laborCost = order.getLaborCost();
+            this.tax = order.getTax();
+            this.total = order.getTotal();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.TreeMap;
+
+import com.flooringmastery.dto.Money;
+
+/**
+ * Total revenue per day in a Fenwick tree keyed by day number since the epoch, so the revenue between any two dates is
+ * found in logarithmic time however many days of orders there are, and a day's revenue is changed in logarithmic time as
+ * orders are placed, edited and removed. Revenue is kept in whole cents; an amount with more than two decimal places is
+ * kept separately for its day as a BigDecimal, so totals are always exact. The tree grows to cover new days as they come.
+ */
+class RevenueIndex
+{
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long firstDay;
+    private long[] tree = new long[1]; // tree[i] covers days firstDay + i - (i & -i) to firstDay + i - 1
+    private final TreeMap<Long, BigDecimal> amountsNotInCents = new TreeMap<>();
+
+    /**
+     * Adds an amount, which may be negative, to the revenue of a date.
+     */
+    synchronized void add(LocalDate date, BigDecimal amount)
+    {
+        long day = date.toEpochDay();
+        long cents;
+        try
+        {
+            cents = Money.toCents(amount);
+        }
+        catch (ArithmeticException e)
+        {
+            amountsNotInCents.merge(day, amount, BigDecimal::add);
+            return;
+        }
+
+        cover(day);
+        for (int i = (int) (day - firstDay) + 1; i < tree.length; i += i & -i)
+        {
+            tree[i] += cents;
+        }
+    }
+
+    /**
+     * @return the revenue of every day from one date to another, both included
+     */
+    synchronized BigDecimal totalBetween(LocalDate fromDate, LocalDate toDate)
+    {
+        long fromDay = fromDate.toEpochDay();
+        long toDay = toDate.toEpochDay();
+        if (toDay < fromDay)
+        {
+            return Money.toBigDecimal(0);
+        }
+
+        BigDecimal total = Money.toBigDecimal(centsUpTo(toDay) - centsUpTo(fromDay - 1));
+        for (BigDecimal amount : amountsNotInCents.subMap(fromDay, true, toDay, true).values())
+        {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    // Sum of the cents of every day up to and including the given day.
+    private long centsUpTo(long day)
+    {
+        if (day < firstDay)
+        {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = (int) Math.min(day - firstDay + 1, tree.length - 1); i > 0; i -= i & -i)
+        {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Grows the tree to cover the day, at least doubling it, rebuilding it from the revenue of every day in linear time.
+    private void cover(long day)
+    {
+        int capacity = tree.length - 1;
+        if (capacity == 0)
+        {
+            firstDay = day - INITIAL_CAPACITY / 2;
+            tree = new long[INITIAL_CAPACITY + 1];
+            return;
+        }
+        if (day >= firstDay && day < firstDay + capacity)
+        {
+            return;
+        }
+
+        long lastDay = firstDay + capacity - 1;
+        long span = Math.max(lastDay, day) - Math.min(firstDay, day) + 1;
+        int newCapacity = (int) Math.max(2L * capacity, span);
+        long newFirstDay = day < firstDay ? lastDay - newCapacity + 1 : firstDay;
+
+        // Turning the tree back into the revenue of each day: undoing the linear build below, last node first.
+        for (int i = capacity; i > 0; i--)
+        {
+            int parent = i + (i & -i);
+            if (parent <= capacity)
+            {
+                tree[parent] -= tree[i];
+            }
+        }
+        long[] newTree = new long[newCapacity + 1];
+        int offset = (int) (firstDay - newFirstDay);
+        System.arraycopy(tree, 1, newTree, offset + 1, capacity);
+        for (int i = 1; i <= newCapacity; i++)
+        {
+            int parent = i + (i & -i);
+            if (parent <= newCapacity)
+            {
+                newTree[parent] += newTree[i];
+            }
+        }
+        tree = newTree;
+        firstDay = newFirstDay;
+    }
+}
@@ -0,0 +1,15 @@
+package com.flooringmastery.service.exception;
+
+public class InvalidImportFileException extends Exception 
+{
+
+    public InvalidImportFileException(String message) 
+    {
+        super(message);
+    }
+
+    public InvalidImportFileException(String message, Throwable cause) 
+    {
+        super(message, cause);
+    }
+}
@@ -6,13 +6,18 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.ImportResult;
+import com.flooringmastery.dto.ImportRowError;
 import com.flooringmastery.dto.Order;
 import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.RecoveryResult;
 import com.flooringmastery.dto.State;
 
 @Component
@@ -31,7 +36,8 @@ public class FlooringMasteryView
         io.print("* 3. Edit an Order");
         io.print("* 4. Remove an Order");
         io.print("* 5. Export All Data");
-        io.print("* 6. Quit");
+        io.print("* 6. Import Orders");
+        io.print("* 7. Quit");
         io.print("* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *");
     }
 
@@ -227,7 +233,7 @@ public class FlooringMasteryView
 
     public int retrieveMainMenuSelection()
     {
-        return io.readInt("\nPlease choose an option from the menu: ", 1, 6);
+        return io.readInt("\nPlease choose an option from the menu: ", 1, 7);
     }
 
     public void displayAddOrderSuccessBanner(Order order)
@@ -284,6 +290,18 @@ public class FlooringMasteryView
         io.readString("Press enter to continue.");
     }
 
+    public void displayRecoveryResult(RecoveryResult result) 
+    {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos());
+        if (result.getDatesRecovered() == 0) 
+        {
+            io.print("Checked the orders of " + result.getDatesChecked() + " dates in " + elapsedMillis + " ms.");
+            return;
+        }
+        io.print("Recovered the orders of " + result.getDatesRecovered() + " of " + result.getDatesChecked()
+                + " dates after an unfinished save, in " + elapsedMillis + " ms.");
+    }
+
     public void displayWelcomeBanner() 
     {
         io.print("\n~*~*~*~*~*~* WELCOME TO THE FLOORING MASTERY PROGRAM *~*~*~*~*~*~");
@@ -304,9 +322,51 @@ public class FlooringMasteryView
         io.print("\n===== ORDERS FOR " + currentDate + " =====");
     }
 
-    public void displayExportDataSuccessBanner() 
+    public ExportCompression retrieveExportCompression() 
+    {
+        int userChoice = io.readInt("\nCompress the export?     1) NO     2) GZIP     3) GZIP IN PARALLEL BLOCKS", 1, 3);
+        switch (userChoice) 
+        {
+            case 2:
+                return ExportCompression.GZIP;
+            case 3:
+                return ExportCompression.PARALLEL_GZIP;
+            default:
+                return ExportCompression.NONE;
+        }
+    }
+
+    public void displayExportDataSuccessBanner(ExportCompression compression) 
+    {
+        String exportFileName = compression == ExportCompression.NONE ? "DataExport.txt" : "DataExport.txt.gz";
+        io.readString("All data was exported successfully. Please refer to " + exportFileName
+                + " and hit any key to continue.");
+    }
+
+    public String retrieveImportFilePath() 
+    {
+        return io.readStringNoEmpty("\nEnter the path of the CSV file to import (" 
+                + "header: OrderDate,CustomerName,State,ProductType,Area), or of an export file to restore:");
+    }
+
+    public void displayImportResult(ImportResult result) 
+    {
+        io.print("\nImported " + result.getOrdersImported() + " of " + result.getRowsRead() + " rows into "
+                + result.getDatesWritten() + " dates (" + Math.round(result.getRowsPerSecond()) + " rows/sec).");
+        if (!result.getErrors().isEmpty()) 
+        {
+            io.print(result.getErrors().size() + " rows were not imported:");
+            for (ImportRowError error : result.getErrors()) 
+            {
+                io.print(error.toString());
+            }
+        }
+        io.readString("Press enter to continue.");
+    }
+
+    public void displayImportOrdersBanner() 
     {
-        io.readString("All data was exported successfully. Please refer to DataExport.txt and hit any key to continue.");
+        io.print("\n================ IMPORT ORDERS ================");
     }
 
     public void displayAddOrderBanner() 
@@ -0,0 +1,149 @@
+package com.flooringmastery.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dao.ColumnarOrders.Column;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Writes orders in the archive format and reads them back: every field comes back exactly as it was, scale included, a
+ * damaged header or column is reported instead of being decoded, and a reader asking for some columns gets them without
+ * the others being read, so damage to a column it did not ask for goes unnoticed.
+ */
+class ColumnarOrdersTest
+{
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void ordersComeBackExactlyAsTheyWereWritten() throws Exception
+    {
+        List<Order> orders = orders();
+        File ordersFile = write(orders);
+
+        assertTrue(ColumnarOrders.isColumnar(ordersFile));
+        assertEquals(orders, ColumnarOrders.readOrders(ordersFile));
+        // Amounts keep their scale, also in a column where the orders do not all have the same one.
+        List<Order> read = ColumnarOrders.readOrders(ordersFile);
+        assertEquals(new BigDecimal("150.5"), read.get(1).getArea());
+        assertEquals(new BigDecimal("1234.00"), read.get(3).getArea());
+    }
+
+    @Test
+    void textOrdersFileIsNotColumnar() throws Exception
+    {
+        File ordersFile = new File(testFolder, "Orders_01012030.txt");
+        Files.writeString(ordersFile.toPath(), "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,"
+                + "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total\n"
+                + "1,Ada Lovelace,TX,4.45,Tile,150.00,3.50,4.15,525.00,622.50,50.06,1197.56\n");
+
+        assertFalse(ColumnarOrders.isColumnar(ordersFile));
+        assertThrows(IOException.class, () -> ColumnarOrders.readOrders(ordersFile));
+    }
+
+    @Test
+    void someColumnsAreReadWithoutTheOthers() throws Exception
+    {
+        List<Order> orders = orders();
+        File ordersFile = write(orders);
+
+        ColumnarOrders.Columns totals = ColumnarOrders.read(ordersFile, ColumnarOrders.TOTALS_COLUMNS);
+
+        assertEquals(orders.size(), totals.size());
+        for (int row = 0; row < orders.size(); row++)
+        {
+            Order order = orders.get(row);
+            assertEquals(order.getState(), totals.getState(row));
+            assertEquals(order.getProductType(), totals.getProductType(row));
+            assertEquals(order.getArea(), totals.getDecimal(Column.AREA, row));
+            assertEquals(order.getMaterialCost(), totals.getDecimal(Column.MATERIAL_COST, row));
+            assertEquals(order.getLaborCost(), totals.getDecimal(Column.LABOR_COST, row));
+            assertEquals(order.getTax(), totals.getDecimal(Column.TAX, row));
+            assertEquals(order.getTotal(), totals.getDecimal(Column.TOTAL, row));
+        }
+    }
+
+    @Test
+    void damagedColumnIsDetected() throws Exception
+    {
+        File ordersFile = write(orders());
+        // The last byte of the file belongs to the last column.
+        byte[] bytes = Files.readAllBytes(ordersFile.toPath());
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(ordersFile.toPath(), bytes);
+
+        IOException e = assertThrows(IOException.class, () -> ColumnarOrders.readOrders(ordersFile));
+        assertTrue(e.getMessage().contains(Column.TOTAL.toString()), e.getMessage());
+        assertThrows(IOException.class, () -> ColumnarOrders.read(ordersFile, EnumSet.of(Column.TOTAL)));
+
+        // The other columns are still readable, as the damaged one is not read.
+        ColumnarOrders.Columns columns = ColumnarOrders.read(ordersFile, EnumSet.of(Column.STATE, Column.AREA));
+        assertEquals("TX", columns.getState(0));
+        assertEquals(new BigDecimal("100.00"), columns.getDecimal(Column.AREA, 0));
+    }
+
+    @Test
+    void damagedHeaderIsDetected() throws Exception
+    {
+        File ordersFile = write(orders());
+        byte[] bytes = Files.readAllBytes(ordersFile.toPath());
+        // Part of the order count.
+        bytes[7] ^= 0x01;
+        Files.write(ordersFile.toPath(), bytes);
+
+        assertThrows(IOException.class, () -> ColumnarOrders.read(ordersFile, EnumSet.of(Column.STATE)));
+    }
+
+    @Test
+    void amountTooLargeForTheFormatIsRejected()
+    {
+        List<Order> orders = new ArrayList<>(orders());
+        orders.get(0).setTotal(new BigDecimal("1e30").setScale(2));
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarOrders.encode(orders));
+    }
+
+    private File write(List<Order> orders) throws IOException
+    {
+        File ordersFile = new File(testFolder, "Orders_01012020.txt");
+        Files.write(ordersFile.toPath(), ColumnarOrders.encode(orders));
+        return ordersFile;
+    }
+
+    // A few hundred orders with repeated states and products, numbers out of order and a column of mixed scales.
+    private static List<Order> orders()
+    {
+        String[] states = { "TX", "WA", "KY" };
+        String[] products = { "Carpet", "Tile", "Wood" };
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+        {
+            BigDecimal area = i == 1 ? new BigDecimal("150.5") : new BigDecimal(100 + i * 378).setScale(2);
+            BigDecimal materialCost = area.multiply(new BigDecimal("3.50")).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal laborCost = area.multiply(new BigDecimal("4.15")).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal tax = materialCost.add(laborCost).multiply(new BigDecimal("0.0445"))
+                    .setScale(2, RoundingMode.HALF_UP);
+            orders.add(new Order(i % 10 == 9 ? i * 3 + 1 : i + 1, "Customer " + i + (i % 7 == 0 ? " Müller Inc." : ""),
+                    states[i % states.length], new BigDecimal("4.45"), products[i % products.length], area,
+                    new BigDecimal("3.50"), new BigDecimal("4.15"), materialCost, laborCost, tax,
+                    materialCost.add(laborCost).add(tax)));
+        }
+        return orders;
+    }
+}
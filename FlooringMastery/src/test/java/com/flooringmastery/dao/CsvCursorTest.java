@@ -0,0 +1,130 @@
+package com.flooringmastery.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads fields with a cursor where the lines used to be split: numbers must parse, and fail to parse, exactly as
+ * Integer.parseInt and new BigDecimal do on the same text, empty fields are read as empty, and a missing field is reported.
+ */
+class CsvCursorTest
+{
+
+    private static final String[] INTS = { "1", "+1", "-1", "01", "2147483647", "-2147483648", "2147483648",
+            "-2147483649", "", "-", "+", "1a", " 1", "1.0" };
+    private static final String[] DECIMALS = { "1", "1.50", "-1.50", "+2.5", ".5", "5.", "0.000", "-0.00", "1e3", "1E-2",
+            "1234567890123456789.5", "", ".", "-", "+", "1.2.3", "1,5", " 5", "5 ", "abc", "1..5" };
+
+    private final CsvCursor cursor = new CsvCursor(';');
+
+    @Test
+    void intsParseLikeIntegerParseInt()
+    {
+        for (String text : INTS)
+        {
+            Integer expected;
+            try
+            {
+                expected = Integer.parseInt(text);
+            }
+            catch (NumberFormatException e)
+            {
+                expected = null;
+            }
+            if (expected == null)
+            {
+                assertThrows(NumberFormatException.class, () -> cursor.reset(text).nextInt(), text);
+            }
+            else
+            {
+                assertEquals(expected, Integer.valueOf(cursor.reset(text).nextInt()), text);
+            }
+        }
+    }
+
+    @Test
+    void decimalsParseLikeNewBigDecimal()
+    {
+        for (String text : DECIMALS)
+        {
+            BigDecimal expected;
+            try
+            {
+                expected = new BigDecimal(text);
+            }
+            catch (NumberFormatException e)
+            {
+                expected = null;
+            }
+            if (expected == null)
+            {
+                assertThrows(NumberFormatException.class, () -> cursor.reset(text).nextDecimal(), text);
+            }
+            else
+            {
+                // Equal scale included, as equals on BigDecimal compares it.
+                assertEquals(expected, cursor.reset(text).nextDecimal(), text);
+            }
+        }
+    }
+
+    @Test
+    void emptyFieldsAreReadAsEmpty()
+    {
+        cursor.reset(";a;;b;");
+
+        assertEquals("", cursor.nextString());
+        assertEquals("a", cursor.nextString());
+        assertEquals("", cursor.nextRepeatedString());
+        assertEquals("b", cursor.nextString());
+        // A trailing delimiter ends with one more empty field.
+        assertEquals("", cursor.nextString());
+        assertThrows(IllegalArgumentException.class, cursor::nextString);
+    }
+
+    @Test
+    void emptyNumberFieldsAreRejected()
+    {
+        assertThrows(NumberFormatException.class, () -> cursor.reset(";2;3").nextInt());
+        cursor.reset("1;;3");
+        cursor.nextInt();
+        assertThrows(NumberFormatException.class, cursor::nextDecimal);
+    }
+
+    @Test
+    void readingPastTheLastFieldIsRejected()
+    {
+        cursor.reset("1;2.50");
+        assertEquals(1, cursor.nextInt());
+        assertEquals(new BigDecimal("2.50"), cursor.nextDecimal());
+
+        assertThrows(IllegalArgumentException.class, cursor::nextDecimal);
+    }
+
+    @Test
+    void partOfALineIsReadWithoutTheRest()
+    {
+        String line = "A;7;Tile;x";
+
+        cursor.reset(line, 2, 8);
+
+        assertEquals(7, cursor.nextInt());
+        assertEquals("Tile", cursor.nextString());
+        assertThrows(IllegalArgumentException.class, cursor::nextString);
+    }
+
+    @Test
+    void repeatedValuesShareOneString()
+    {
+        String first = cursor.reset("Tile;TX").nextRepeatedString();
+        String second = cursor.reset(new StringBuilder("Tile;WA")).nextRepeatedString();
+
+        assertEquals("Tile", second);
+        assertSame(first, second);
+    }
+}
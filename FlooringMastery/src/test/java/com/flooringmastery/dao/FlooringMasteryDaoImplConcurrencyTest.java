@@ -0,0 +1,142 @@
+package com.flooringmastery.dao;
+
+import static com.flooringmastery.dao.OrderFixtures.order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dao.exceptions.StaleOrdersFileException;
+import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Many threads adding, editing, removing and reading orders of a few dates at once, checking that no change is lost: every
+ * date ends up with exactly the orders that were added and not removed, with the edits made to them, both in memory and
+ * when read again from disk. Changes based on an order that someone else has changed since are rejected.
+ */
+class FlooringMasteryDaoImplConcurrencyTest
+{
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 200;
+    private static final LocalDate[] DATES = { LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 2),
+            LocalDate.of(2030, 1, 3) };
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void concurrentChangesAreNotLost() throws Exception
+    {
+        new File(testFolder, "orders").mkdirs();
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+        {
+            int thread = t;
+            workers.add(threads.submit(() ->
+            {
+                start.await();
+                int kept = 0;
+                for (int i = 0; i < ORDERS_PER_THREAD; i++)
+                {
+                    LocalDate date = DATES[(thread + i) % DATES.length];
+                    Order order = order(dao.nextOrderNumber(date), "Customer " + thread + "-" + i);
+                    dao.addOrder(date, order);
+
+                    // Every third order is edited, every seventh removed, and the date is read in between.
+                    if (i % 3 == 0)
+                    {
+                        Order edited = order(order.getOrderNumber(), order.getCustomerName() + " edited");
+                        dao.editOrder(date, order, edited);
+                        order = edited;
+                    }
+                    dao.getOrders(date, Action.DISPLAY);
+                    if (i % 7 == 0)
+                    {
+                        dao.removeOrder(date, order);
+                    }
+                    else
+                    {
+                        kept++;
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+        int keptOrders = 0;
+        for (Future<Integer> worker : workers)
+        {
+            keptOrders += worker.get(2, TimeUnit.MINUTES);
+        }
+        threads.shutdown();
+
+        assertEquals(keptOrders, checkOrders(dao));
+        dao.destroy();
+        // A new DAO reads every date again from its Orders file and journal.
+        assertEquals(keptOrders, checkOrders(new FlooringMasteryDaoImpl(testFolder)));
+    }
+
+    @Test
+    void changesBasedOnStaleReadsAreRejected() throws Exception
+    {
+        new File(testFolder, "orders").mkdirs();
+        // Two DAOs on one folder behave like two running copies of the program, each with its own cached orders.
+        FlooringMasteryDaoImpl firstCopy = new FlooringMasteryDaoImpl(testFolder);
+        FlooringMasteryDaoImpl secondCopy = new FlooringMasteryDaoImpl(testFolder);
+        LocalDate date = DATES[0];
+        Order order = order(firstCopy.nextOrderNumber(date), "Customer");
+        firstCopy.addOrder(date, order);
+
+        Order readBySecondCopy = secondCopy.getOrder(date, order.getOrderNumber());
+        Order editedByFirstCopy = order(order.getOrderNumber(), "Customer edited first");
+        firstCopy.editOrder(date, order, editedByFirstCopy);
+
+        Order editedBySecondCopy = order(order.getOrderNumber(), "Customer edited second");
+        assertThrows(StaleOrdersFileException.class, () -> secondCopy.editOrder(date, readBySecondCopy, editedBySecondCopy));
+        assertThrows(StaleOrdersFileException.class, () -> secondCopy.removeOrder(date, readBySecondCopy));
+        assertEquals(editedByFirstCopy, secondCopy.getOrder(date, order.getOrderNumber()));
+
+        // Retrying with the order read again goes through.
+        Order readAgain = secondCopy.getOrder(date, order.getOrderNumber());
+        secondCopy.editOrder(date, readAgain, editedBySecondCopy);
+        assertEquals(editedBySecondCopy, firstCopy.getOrder(date, order.getOrderNumber()));
+    }
+
+    // Checks that order numbers are unique within each date and edits were kept, returning how many orders there are.
+    private static int checkOrders(FlooringMasteryDaoImpl dao) throws Exception
+    {
+        int orders = 0;
+        for (LocalDate date : DATES)
+        {
+            Set<Integer> orderNumbers = new HashSet<>();
+            for (Order order : dao.getOrders(date, Action.DISPLAY))
+            {
+                assertTrue(orderNumbers.add(order.getOrderNumber()), "Order number given out twice on " + date);
+                int i = Integer.parseInt(order.getCustomerName().split("[- ]")[2]);
+                assertEquals(i % 3 == 0, order.getCustomerName().endsWith(" edited"), order.getCustomerName());
+                orders++;
+            }
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,155 @@
+package com.flooringmastery.dao;
+
+import static com.flooringmastery.dao.OrderFixtures.HEADER;
+import static com.flooringmastery.dao.OrderFixtures.order;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.RecoveryResult;
+
+/**
+ * Plants in the orders folder what a crash in the middle of a write leaves behind, then recovers it as the program does at
+ * startup: a compaction side file is finished when the journal is already gone and discarded when it is not, a torn record
+ * at the end of a journal is cut off, and temp files of other writes are left alone. Every date ends up with exactly the
+ * orders that were saved before the crash.
+ */
+class FlooringMasteryDaoImplRecoveryTest
+{
+
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 1);
+
+    private final OrderMarshaller marshaller = new OrderMarshaller(",");
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void completeCompactionIsFinished() throws Exception
+    {
+        File ordersFile = ordersFile(lines(order(1, "Ada Lovelace")));
+        // The journal was already deleted, so the side file holds every order.
+        File compactionFile = OrderJournal.compactionFileFor(ordersFile);
+        Files.write(compactionFile.toPath(), lines(order(1, "Ada Lovelace"), order(2, "Grace Hopper")));
+
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+        RecoveryResult result = dao.recoverOrders();
+
+        assertEquals(1, result.getDatesChecked());
+        assertEquals(1, result.getDatesRecovered());
+        assertEquals(1, result.getCompactionsFinished());
+        assertFalse(compactionFile.exists());
+        assertEquals(List.of(order(1, "Ada Lovelace"), order(2, "Grace Hopper")), dao.getOrders(DATE, Action.DISPLAY));
+    }
+
+    @Test
+    void compactionWithItsJournalStillThereIsDiscarded() throws Exception
+    {
+        File ordersFile = ordersFile(lines(order(1, "Ada Lovelace")));
+        Files.write(OrderJournal.journalFileFor(ordersFile).toPath(),
+                List.of("A," + marshaller.marshallOrder(order(2, "Grace Hopper"))));
+        // Stopped half way through writing the side file.
+        File compactionFile = OrderJournal.compactionFileFor(ordersFile);
+        Files.writeString(compactionFile.toPath(), HEADER + "\n" + marshaller.marshallOrder(order(1, "Ada Lovelace"))
+                + "\n2,Grace Ho");
+
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+        RecoveryResult result = dao.recoverOrders();
+
+        assertEquals(1, result.getDatesRecovered());
+        assertEquals(1, result.getCompactionsDiscarded());
+        assertEquals(0, result.getJournalsTruncated());
+        assertFalse(compactionFile.exists());
+        assertEquals(List.of(order(1, "Ada Lovelace"), order(2, "Grace Hopper")), dao.getOrders(DATE, Action.DISPLAY));
+    }
+
+    @Test
+    void tornJournalTailIsCutOff() throws Exception
+    {
+        File ordersFile = ordersFile(lines(order(1, "Ada Lovelace")));
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+        Files.write(journalFile.toPath(), List.of("A," + marshaller.marshallOrder(order(2, "Grace Hopper")),
+                "R," + marshaller.marshallOrder(order(1, "Ada Lovelace"))));
+        long savedSize = journalFile.length();
+        Files.write(journalFile.toPath(), "A,3,Alan Tur".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+        RecoveryResult result = dao.recoverOrders();
+
+        assertEquals(1, result.getDatesRecovered());
+        assertEquals(1, result.getJournalsTruncated());
+        assertEquals(savedSize, journalFile.length());
+        assertEquals(List.of(order(2, "Grace Hopper")), dao.getOrders(DATE, Action.DISPLAY));
+    }
+
+    @Test
+    void strayTempFilesAreLeftAlone() throws Exception
+    {
+        File ordersFile = ordersFile(lines(order(1, "Ada Lovelace")));
+        File ordersFolder = ordersFile.getParentFile();
+        // What an interrupted rollup write leaves, and a temp file with the name of an Orders file.
+        File rollupTempFile = new File(ordersFolder, "Rollup_01012030.txt.tmp");
+        Files.writeString(rollupTempFile.toPath(), "half a rollup");
+        File ordersTempFile = new File(ordersFolder, ordersFile.getName() + ".tmp");
+        Files.writeString(ordersTempFile.toPath(), "1,Nobody,");
+
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+        RecoveryResult result = dao.recoverOrders();
+
+        assertEquals(1, result.getDatesChecked());
+        assertEquals(0, result.getDatesRecovered());
+        assertTrue(rollupTempFile.exists());
+        assertTrue(ordersTempFile.exists());
+        assertEquals(List.of(order(1, "Ada Lovelace")), dao.getOrders(DATE, Action.DISPLAY));
+    }
+
+    @Test
+    void consistentFilesAreNotChanged() throws Exception
+    {
+        File ordersFile = ordersFile(lines(order(1, "Ada Lovelace")));
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+        Files.write(journalFile.toPath(), List.of("A," + marshaller.marshallOrder(order(2, "Grace Hopper"))));
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+
+        FlooringMasteryDaoImpl dao = new FlooringMasteryDaoImpl(testFolder);
+        RecoveryResult result = dao.recoverOrders();
+
+        assertEquals(1, result.getDatesChecked());
+        assertEquals(0, result.getDatesRecovered());
+        assertArrayEquals(journal, Files.readAllBytes(journalFile.toPath()));
+    }
+
+    private File ordersFile(List<String> lines) throws Exception
+    {
+        File ordersFolder = new File(testFolder, "orders");
+        ordersFolder.mkdirs();
+        File ordersFile = OrdersFiles.fileFor(ordersFolder, DATE);
+        Files.write(ordersFile.toPath(), lines);
+        return ordersFile;
+    }
+
+    private List<String> lines(Order... orders)
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Order order : orders)
+        {
+            lines.add(marshaller.marshallOrder(order));
+        }
+        return lines;
+    }
+}
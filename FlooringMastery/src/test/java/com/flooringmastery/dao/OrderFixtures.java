@@ -0,0 +1,27 @@
+package com.flooringmastery.dao;
+
+import java.math.BigDecimal;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * The header of an Orders file and orders that differ only in number and customer name, for the tests of the data
+ * access classes.
+ */
+final class OrderFixtures
+{
+
+    static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,"
+            + "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+
+    private OrderFixtures()
+    {
+    }
+
+    static Order order(int orderNumber, String customerName)
+    {
+        return new Order(orderNumber, customerName, "TX", new BigDecimal("4.45"), "Tile", new BigDecimal("150.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("525.00"), new BigDecimal("622.50"),
+                new BigDecimal("51.06"), new BigDecimal("1198.56"));
+    }
+}
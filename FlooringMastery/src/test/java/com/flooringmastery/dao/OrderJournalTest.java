@@ -0,0 +1,158 @@
+package com.flooringmastery.dao;
+
+import static com.flooringmastery.dao.OrderFixtures.HEADER;
+import static com.flooringmastery.dao.OrderFixtures.order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dto.Order;
+
+/**
+ * Changes appended to the journal of an Orders file: reading the file replays them over the base file, a journal grown past
+ * the compaction threshold is folded back into the base file, and recovery cuts off a record half written by a crash.
+ */
+class OrderJournalTest
+{
+
+    private static final String DELIMITER = ",";
+
+    private final OrderMarshaller marshaller = new OrderMarshaller(DELIMITER);
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void journalIsReplayedOverTheBaseFile() throws Exception
+    {
+        OrderJournal journal = new OrderJournal(HEADER, DELIMITER);
+        File ordersFile = ordersFile(order(1, "Ada Lovelace"), order(2, "Grace Hopper"), order(3, "Alan Turing"));
+        String baseFile = Files.readString(ordersFile.toPath());
+
+        journal.awaitDurable(journal.appendAdd(ordersFile, marshaller.marshallOrder(order(4, "Edsger Dijkstra"))));
+        Order edited = order(2, "Grace Brewster Hopper");
+        edited.setState("WA");
+        journal.awaitDurable(journal.appendEdit(ordersFile, marshaller.marshallOrder(edited)));
+        journal.awaitDurable(journal.appendRemove(ordersFile, marshaller.marshallOrder(order(3, "Alan Turing"))));
+
+        assertEquals(List.of(order(1, "Ada Lovelace"), edited, order(4, "Edsger Dijkstra")), journal.readOrders(ordersFile));
+        // The changes are only in the journal until it is compacted.
+        assertEquals(baseFile, Files.readString(ordersFile.toPath()));
+        assertTrue(OrderJournal.journalFileFor(ordersFile).exists());
+    }
+
+    @Test
+    void changesApplyToBaseLinesWrittenAnotherWay() throws Exception
+    {
+        OrderJournal journal = new OrderJournal(HEADER, DELIMITER);
+        File ordersFile = new File(testFolder, "Orders_01012030.txt");
+        // Lines the marshaller reads as these orders but never writes: a trailing delimiter and a signed number.
+        Files.write(ordersFile.toPath(), List.of(HEADER, marshaller.marshallOrder(order(1, "Ada Lovelace")) + DELIMITER,
+                "+" + marshaller.marshallOrder(order(2, "Grace Hopper")), marshaller.marshallOrder(order(3, "Alan Turing"))));
+
+        journal.awaitDurable(journal.appendRemove(ordersFile, marshaller.marshallOrder(order(1, "Ada Lovelace"))));
+        journal.awaitDurable(journal.appendEdit(ordersFile, marshaller.marshallOrder(order(2, "Grace Brewster Hopper"))));
+
+        List<Order> expected = List.of(order(2, "Grace Brewster Hopper"), order(3, "Alan Turing"));
+        assertEquals(expected, journal.readOrders(ordersFile));
+        // Read again as after a restart, and once the journal is compacted into the base file.
+        OrderJournal restarted = new OrderJournal(HEADER, DELIMITER);
+        assertEquals(expected, restarted.readOrders(ordersFile));
+        restarted.compact(ordersFile);
+        assertFalse(OrderJournal.journalFileFor(ordersFile).exists());
+        assertEquals(expected, restarted.readOrders(ordersFile));
+    }
+
+    @Test
+    void journalPastTheThresholdIsCompactedIntoTheBaseFile() throws Exception
+    {
+        OrderJournal journal = new OrderJournal(HEADER, DELIMITER, new OrdersFileLocks(), 4 * 1024);
+        File ordersFile = ordersFile(order(1, "Ada Lovelace"));
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+
+        List<Order> expected = new ArrayList<>(List.of(order(1, "Ada Lovelace")));
+        List<String> added = new ArrayList<>();
+        for (int i = 2; i <= 100; i++)
+        {
+            expected.add(order(i, "Customer " + i));
+            added.add(marshaller.marshallOrder(order(i, "Customer " + i)));
+        }
+        journal.awaitDurable(journal.appendAdds(ordersFile, added));
+
+        // The compaction runs in the background, so it is waited for.
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (journalFile.exists() && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        assertFalse(journalFile.exists());
+        assertFalse(OrderJournal.compactionFileFor(ordersFile).exists());
+        List<String> lines = Files.readAllLines(ordersFile.toPath());
+        assertEquals(HEADER, lines.get(0));
+        assertEquals(expected.size() + 1, lines.size());
+        assertEquals(expected, journal.readOrders(ordersFile));
+    }
+
+    @Test
+    void recoveryCutsOffATornRecord() throws Exception
+    {
+        OrderJournal journal = new OrderJournal(HEADER, DELIMITER);
+        File ordersFile = ordersFile(order(1, "Ada Lovelace"));
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+        journal.awaitDurable(journal.appendAdd(ordersFile, marshaller.marshallOrder(order(2, "Grace Hopper"))));
+        journal.awaitDurable(journal.appendEdit(ordersFile, marshaller.marshallOrder(order(1, "Ada King"))));
+        long consistentSize = journalFile.length();
+
+        // A crash in the middle of an append leaves part of a record, and sometimes zeros after it.
+        String tornRecord = marshaller.marshallOrder(order(3, "Alan Turing"));
+        Files.write(journalFile.toPath(), ("A," + tornRecord.substring(0, tornRecord.length() / 2) + "\0\0\0\0")
+                .getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        assertEquals(EnumSet.of(OrderJournal.Repair.JOURNAL_TRUNCATED), journal.recover(ordersFile));
+        assertEquals(consistentSize, journalFile.length());
+        assertEquals(List.of(order(1, "Ada King"), order(2, "Grace Hopper")), journal.readOrders(ordersFile));
+        // Recovering consistent files changes nothing.
+        assertEquals(Set.of(), journal.recover(ordersFile));
+    }
+
+    @Test
+    void recoveryRemovesAJournalHoldingOnlyATornRecord() throws Exception
+    {
+        OrderJournal journal = new OrderJournal(HEADER, DELIMITER);
+        File ordersFile = ordersFile(order(1, "Ada Lovelace"));
+        File journalFile = OrderJournal.journalFileFor(ordersFile);
+        // A whole line that is still not a record, as a crash can leave when the line break made it to disk.
+        Files.writeString(journalFile.toPath(), "A,2,Grace Hop\n");
+
+        assertEquals(EnumSet.of(OrderJournal.Repair.JOURNAL_TRUNCATED, OrderJournal.Repair.EMPTY_JOURNAL_REMOVED),
+                journal.recover(ordersFile));
+        assertFalse(journalFile.exists());
+        assertEquals(List.of(order(1, "Ada Lovelace")), journal.readOrders(ordersFile));
+    }
+
+    private File ordersFile(Order... orders) throws Exception
+    {
+        File ordersFile = new File(testFolder, "Orders_01012030.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Order order : orders)
+        {
+            lines.add(marshaller.marshallOrder(order));
+        }
+        Files.write(ordersFile.toPath(), lines);
+        return ordersFile;
+    }
+}
@@ -0,0 +1,97 @@
+package com.flooringmastery.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.State;
+
+/**
+ * Lines of the Orders, Taxes and Products files read back into orders, states and products: every value comes back as it
+ * was written, lines that String.split used to accept still are, and lines with a missing or malformed field are
+ * rejected instead of giving an order with a wrong amount.
+ */
+class OrderMarshallerTest
+{
+
+    private static final String ORDER_LINE = "7,Acme Inc.,WA,9.25,Wood,200.125,5.15,4.75,1030.64,950.00,183.18,2163.82";
+
+    private final OrderMarshaller marshaller = new OrderMarshaller(",");
+
+    @Test
+    void orderComesBackAsItWasWritten()
+    {
+        Order order = new Order(7, "Acme Inc.", "WA", new BigDecimal("9.25"), "Wood", new BigDecimal("200.125"),
+                new BigDecimal("5.15"), new BigDecimal("4.75"), new BigDecimal("1030.64"), new BigDecimal("950.00"),
+                new BigDecimal("183.18"), new BigDecimal("2163.82"));
+
+        assertEquals(ORDER_LINE, marshaller.marshallOrder(order));
+        assertEquals(order, marshaller.unmarshallOrder(ORDER_LINE));
+        assertEquals(order, marshaller.unmarshallOrder(new StringBuilder(ORDER_LINE)));
+    }
+
+    @Test
+    void trailingDelimiterIsIgnored()
+    {
+        // String.split drops trailing empty fields, so these lines were always read.
+        assertEquals(marshaller.unmarshallOrder(ORDER_LINE), marshaller.unmarshallOrder(ORDER_LINE + ","));
+        assertEquals(new BigDecimal("4.45"), marshaller.unmarshallState("TX,Texas,4.45,").getTaxRate());
+    }
+
+    @Test
+    void emptyCustomerNameIsReadAsEmpty()
+    {
+        Order order = marshaller.unmarshallOrder(ORDER_LINE.replace("Acme Inc.", ""));
+
+        assertEquals("", order.getCustomerName());
+        assertEquals("WA", order.getState());
+    }
+
+    @Test
+    void emptyAmountIsRejected()
+    {
+        assertThrows(NumberFormatException.class, () -> marshaller.unmarshallOrder(ORDER_LINE.replace(",200.125,", ",,")));
+        assertThrows(NumberFormatException.class, () -> marshaller.unmarshallProduct("Tile,,4.15"));
+    }
+
+    @Test
+    void malformedAmountIsRejected()
+    {
+        assertThrows(NumberFormatException.class,
+                () -> marshaller.unmarshallOrder(ORDER_LINE.replace(",200.125,", ",200.1.25,")));
+        assertThrows(NumberFormatException.class,
+                () -> marshaller.unmarshallOrder(ORDER_LINE.replace(",200.125,", ",200 sq ft,")));
+        assertThrows(NumberFormatException.class, () -> marshaller.unmarshallOrder(ORDER_LINE.replace("7,", "seven,")));
+        assertThrows(NumberFormatException.class, () -> marshaller.unmarshallState("TX,Texas,4.45%"));
+    }
+
+    @Test
+    void missingFieldIsRejected()
+    {
+        String withoutTotal = ORDER_LINE.substring(0, ORDER_LINE.lastIndexOf(','));
+
+        assertThrows(IllegalArgumentException.class, () -> marshaller.unmarshallOrder(withoutTotal));
+        // The delimiter is there but the total is not.
+        assertThrows(NumberFormatException.class, () -> marshaller.unmarshallOrder(withoutTotal + ","));
+        assertThrows(IllegalArgumentException.class, () -> marshaller.unmarshallProduct("Tile,3.50"));
+    }
+
+    @Test
+    void stateAndProductComeBackAsTheyWereWritten()
+    {
+        State state = marshaller.unmarshallState("KY,Kentucky,6.00");
+        Product product = marshaller.unmarshallProduct("Carpet,2.25,2.10");
+
+        assertEquals("KY", state.getStateAbbreviation());
+        assertEquals("Kentucky", state.getStateName());
+        assertEquals(new BigDecimal("6.00"), state.getTaxRate());
+        assertEquals("Carpet", product.getProductType());
+        assertEquals(new BigDecimal("2.25"), product.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.10"), product.getLaborCostPerSquareFoot());
+    }
+}
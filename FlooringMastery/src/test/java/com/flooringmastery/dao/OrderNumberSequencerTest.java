@@ -0,0 +1,46 @@
+package com.flooringmastery.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Order numbers taken from the sequence files: each date counts on from its own mark, and with global numbers every date
+ * also counts on from the global mark, so no number is given to two dates, also when a date was ahead of the global mark.
+ */
+class OrderNumberSequencerTest
+{
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2030, 1, 1);
+    private static final LocalDate SECOND_DATE = LocalDate.of(2030, 1, 2);
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void eachDateCountsOnFromItsOwnMark() throws Exception
+    {
+        OrderNumberSequencer sequencer = new OrderNumberSequencer(testFolder, false);
+
+        assertEquals(11, sequencer.next(FIRST_DATE, () -> 10, () -> 10));
+        assertEquals(1, sequencer.next(SECOND_DATE, 4, () -> 0, () -> 10));
+        assertEquals(5, sequencer.next(SECOND_DATE, () -> 0, () -> 10));
+        // The mark is kept on disk, not taken from the seed again.
+        assertEquals(12, new OrderNumberSequencer(testFolder, false).next(FIRST_DATE, () -> 0, () -> 0));
+    }
+
+    @Test
+    void dateAheadOfTheGlobalMarkMovesTheGlobalMark() throws Exception
+    {
+        OrderNumberSequencer sequencer = new OrderNumberSequencer(testFolder, true);
+
+        // The first date had orders up to 10 before global numbering was turned on.
+        assertEquals(11, sequencer.next(FIRST_DATE, () -> 10, () -> 3));
+        assertEquals(12, sequencer.next(SECOND_DATE, 8, () -> 0, () -> 3));
+        assertEquals(20, sequencer.next(FIRST_DATE, () -> 10, () -> 3));
+    }
+}
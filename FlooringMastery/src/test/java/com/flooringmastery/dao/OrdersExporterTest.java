@@ -0,0 +1,156 @@
+package com.flooringmastery.dao;
+
+import static com.flooringmastery.dao.OrderFixtures.HEADER;
+import static com.flooringmastery.dao.OrderFixtures.order;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dto.ExportCompression;
+import com.flooringmastery.dto.Order;
+
+/**
+ * Exports Orders files in each compression mode and reads the export back: every mode gives the orders of every date, and
+ * once uncompressed the same text as the plain export, also when it is read with a plain GZIPInputStream. The parallel
+ * mode is checked with a date larger than one GZIP block, and again after an export that copied unchanged dates from the
+ * previous one.
+ */
+class OrdersExporterTest
+{
+
+    private static final String EXPORT_HEADER = HEADER + ",Date";
+    private static final String DELIMITER = ",";
+
+    private final OrderMarshaller marshaller = new OrderMarshaller(DELIMITER);
+    private final OrderJournal journal = new OrderJournal(HEADER, DELIMITER);
+    private final OrdersExporter exporter = new OrdersExporter(journal, marshaller, DELIMITER);
+    private final ExportReader reader = new ExportReader(EXPORT_HEADER, DELIMITER, marshaller);
+
+    @TempDir
+    File testFolder;
+
+    @Test
+    void everyModeReadsBackTheOrdersOfEveryDate() throws Exception
+    {
+        File ordersFolder = ordersFolder();
+        Map<LocalDate, List<Order>> expected = ordersByDate(ordersFolder);
+
+        for (ExportCompression compression : ExportCompression.values())
+        {
+            File exportFile = export(ordersFolder, compression);
+
+            assertEquals(expected, readBack(exportFile), compression.toString());
+            assertEquals(compression != ExportCompression.NONE, isGzip(exportFile), compression.toString());
+        }
+    }
+
+    @Test
+    void compressedExportsUncompressToThePlainExport() throws Exception
+    {
+        File ordersFolder = ordersFolder();
+        byte[] plainExport = Files.readAllBytes(export(ordersFolder, ExportCompression.NONE).toPath());
+
+        assertArrayEquals(plainExport, gunzip(export(ordersFolder, ExportCompression.GZIP)));
+        // One GZIP member per block, which a standard reader reads as one stream.
+        assertArrayEquals(plainExport, gunzip(export(ordersFolder, ExportCompression.PARALLEL_GZIP)));
+    }
+
+    @Test
+    void parallelExportStaysReadableWhenUnchangedDatesAreCopied() throws Exception
+    {
+        File ordersFolder = ordersFolder();
+        export(ordersFolder, ExportCompression.PARALLEL_GZIP);
+
+        // Only one date changes; the others are copied from the previous export as they were compressed.
+        File changedFile = OrdersFiles.fileFor(ordersFolder, LocalDate.of(2030, 1, 2));
+        journal.awaitDurable(journal.appendAdd(changedFile, marshaller.marshallOrder(order(999, "Late Customer"))));
+        File exportFile = export(ordersFolder, ExportCompression.PARALLEL_GZIP);
+
+        assertEquals(ordersByDate(ordersFolder), readBack(exportFile));
+        assertArrayEquals(Files.readAllBytes(export(ordersFolder, ExportCompression.NONE).toPath()), gunzip(exportFile));
+    }
+
+    // A few small dates, one with changes still in its journal, and one with more text than a GZIP block.
+    private File ordersFolder() throws Exception
+    {
+        File ordersFolder = new File(testFolder, "orders");
+        ordersFolder.mkdirs();
+        writeOrdersFile(ordersFolder, LocalDate.of(2030, 1, 1), 3);
+        writeOrdersFile(ordersFolder, LocalDate.of(2030, 1, 2), 5);
+        writeOrdersFile(ordersFolder, LocalDate.of(2030, 2, 1), 20_000);
+        File journaled = writeOrdersFile(ordersFolder, LocalDate.of(2030, 3, 1), 2);
+        journal.awaitDurable(journal.appendAdd(journaled, marshaller.marshallOrder(order(3, "Journaled Customer"))));
+        journal.awaitDurable(journal.appendRemove(journaled, marshaller.marshallOrder(order(1, "Customer 1"))));
+        return ordersFolder;
+    }
+
+    private File writeOrdersFile(File ordersFolder, LocalDate date, int orders) throws Exception
+    {
+        File ordersFile = OrdersFiles.fileFor(ordersFolder, date);
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 1; i <= orders; i++)
+        {
+            lines.add(marshaller.marshallOrder(order(i, "Customer " + i)));
+        }
+        Files.write(ordersFile.toPath(), lines);
+        return ordersFile;
+    }
+
+    private Map<LocalDate, List<Order>> ordersByDate(File ordersFolder) throws Exception
+    {
+        Map<LocalDate, List<Order>> ordersByDate = new TreeMap<>();
+        for (File ordersFile : OrdersFiles.listByDate(ordersFolder))
+        {
+            ordersByDate.put(OrdersFiles.dateOf(ordersFile), journal.readOrders(ordersFile));
+        }
+        return ordersByDate;
+    }
+
+    private File export(File ordersFolder, ExportCompression compression) throws Exception
+    {
+        File backupFolder = new File(testFolder, "backup");
+        backupFolder.mkdirs();
+        String name = compression == ExportCompression.NONE ? "DataExport.txt" : "DataExport.txt.gz";
+        File exportFile = new File(backupFolder, name);
+        exporter.export(ordersFolder, exportFile, new File(backupFolder, name + ".manifest"), EXPORT_HEADER, compression);
+        return exportFile;
+    }
+
+    private Map<LocalDate, List<Order>> readBack(File exportFile) throws Exception
+    {
+        Map<LocalDate, List<Order>> ordersByDate = new TreeMap<>();
+        reader.read(exportFile, (date, firstLineNumber, orders) -> ordersByDate.merge(date, orders, (a, b) ->
+        {
+            throw new AssertionError(date + " was exported twice.");
+        }));
+        return ordersByDate;
+    }
+
+    private static boolean isGzip(File file) throws Exception
+    {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        return bytes.length >= 2 && (bytes[0] & 0xFF) == 0x1F && (bytes[1] & 0xFF) == 0x8B;
+    }
+
+    private static byte[] gunzip(File file) throws Exception
+    {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath())))
+        {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.flooringmastery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.flooringmastery.dto.Catalog;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.dto.Product;
+import com.flooringmastery.dto.State;
+
+/**
+ * Prices the same orders on whole cents and with BigDecimal, which must give identical costs, taxes and totals. The inputs
+ * sweep areas one cent apart against rates chosen so that many products land exactly halfway between two cents, where
+ * HALF_EVEN rounding goes up or down depending on the cent before.
+ */
+class FlooringMasteryServiceImplPricingTest
+{
+
+    private static final String[] COST_RATES = { "0.01", "0.05", "0.25", "0.45", "1.15", "2.25", "3.35", "4.15", "5.15",
+            "9.99" };
+    private static final Catalog CATALOG = new Catalog(List.of(new State("TX", "Texas", new BigDecimal("4.45")),
+            new State("WA", "Washington", new BigDecimal("9.25")), new State("KY", "Kentucky", new BigDecimal("6.00")),
+            new State("CA", "California", new BigDecimal("7.25")), new State("OH", "Ohio", new BigDecimal("6.25"))),
+            List.of(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15"))));
+
+    @Test
+    void centsAndBigDecimalGiveTheSamePrices()
+    {
+        int costTies = 0;
+        int taxTies = 0;
+        for (long areaCents = 10_000; areaCents <= 12_000; areaCents++)
+        {
+            for (int i = 0; i < COST_RATES.length; i++)
+            {
+                // Each rate is paired with the next one, so material and labor costs differ.
+                BigDecimal costPerSquareFoot = new BigDecimal(COST_RATES[i]);
+                BigDecimal laborCostPerSquareFoot = new BigDecimal(COST_RATES[(i + 1) % COST_RATES.length]);
+                for (State state : CATALOG.getStates())
+                {
+                    Order inCents = order(BigDecimal.valueOf(areaCents, 2), state.getStateAbbreviation(),
+                            costPerSquareFoot, laborCostPerSquareFoot);
+                    Order withBigDecimal = order(BigDecimal.valueOf(areaCents, 2), state.getStateAbbreviation(),
+                            costPerSquareFoot, laborCostPerSquareFoot);
+                    FlooringMasteryServiceImpl.calculatePricesInCents(inCents, CATALOG);
+                    FlooringMasteryServiceImpl.calculatePricesWithBigDecimal(withBigDecimal, CATALOG);
+                    assertEquals(withBigDecimal, inCents);
+
+                    long costHundredths = areaCents * costPerSquareFoot.unscaledValue().longValue();
+                    if (costHundredths % 100 == 50)
+                    {
+                        costTies++;
+                    }
+                    long materialsPlusLabor = withBigDecimal.getMaterialCost().add(withBigDecimal.getLaborCost())
+                            .unscaledValue().longValue();
+                    if (materialsPlusLabor * state.getTaxRate().unscaledValue().longValue() % 10_000 == 5_000)
+                    {
+                        taxTies++;
+                    }
+                }
+            }
+        }
+        // The sweep really went through the halfway cases it is meant for.
+        assertTrue(costTies > 1000, "cost ties: " + costTies);
+        assertTrue(taxTies > 100, "tax ties: " + taxTies);
+    }
+
+    @Test
+    void extremeAndUntaxedOrdersGiveTheSamePrices()
+    {
+        Order[][] pairs = {
+                { order(new BigDecimal("10000000.00"), "WA", new BigDecimal("9999.99"), new BigDecimal("9999.99")),
+                        order(new BigDecimal("10000000.00"), "WA", new BigDecimal("9999.99"), new BigDecimal("9999.99")) },
+                { order(new BigDecimal("100.00"), "ZZ", new BigDecimal("3.50"), new BigDecimal("4.15")),
+                        order(new BigDecimal("100.00"), "ZZ", new BigDecimal("3.50"), new BigDecimal("4.15")) },
+                { order(new BigDecimal("100.01"), "OH", new BigDecimal("0.01"), new BigDecimal("0.01")),
+                        order(new BigDecimal("100.01"), "OH", new BigDecimal("0.01"), new BigDecimal("0.01")) } };
+        for (Order[] pair : pairs)
+        {
+            FlooringMasteryServiceImpl.calculatePricesInCents(pair[0], CATALOG);
+            FlooringMasteryServiceImpl.calculatePricesWithBigDecimal(pair[1], CATALOG);
+            assertEquals(pair[1], pair[0]);
+        }
+    }
+
+    private static Order order(BigDecimal area, String state, BigDecimal costPerSquareFoot,
+            BigDecimal laborCostPerSquareFoot)
+    {
+        Order order = new Order();
+        order.setOrderNumber(1);
+        order.setCustomerName("Ada Lovelace");
+        order.setState(state);
+        order.setProductType("Tile");
+        order.setArea(area);
+        order.setCostPerSquareFoot(costPerSquareFoot);
+        order.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+        return order;
+    }
+}
@@ -0,0 +1,198 @@
+package com.flooringmastery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooringmastery.dao.FlooringMasteryDaoImpl;
+import com.flooringmastery.dao.exceptions.FlooringMasteryPersistenceException;
+import com.flooringmastery.dto.Action;
+import com.flooringmastery.dto.ImportResult;
+import com.flooringmastery.dto.ImportRowError;
+import com.flooringmastery.dto.Order;
+import com.flooringmastery.service.exception.InvalidImportFileException;
+
+/**
+ * Imports CSV files through the service into a DAO under a temporary folder: valid rows become priced orders with the same
+ * values as orders typed at the console, every other row is reported with its row number and reason, and each date is
+ * numbered and written once however many rows it has and wherever they are in the file.
+ */
+class OrderImporterTest
+{
+
+    private static final DateTimeFormatter ROW_DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final LocalDate FIRST_DATE = LocalDate.now().plusDays(10);
+    private static final LocalDate SECOND_DATE = LocalDate.now().plusDays(11);
+
+    @TempDir
+    File testFolder;
+
+    /**
+     * Counts the writes of each date, so a test can check that a date was written with a single call.
+     */
+    private static class CountingDao extends FlooringMasteryDaoImpl
+    {
+        private final Map<LocalDate, Integer> writesByDate = new ConcurrentHashMap<>();
+
+        CountingDao(File testFolder)
+        {
+            super(testFolder);
+        }
+
+        @Override
+        public void addOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException
+        {
+            writesByDate.merge(date, 1, Integer::sum);
+            super.addOrder(date, order);
+        }
+
+        @Override
+        public void addOrders(LocalDate date, List<Order> newOrders) throws FlooringMasteryPersistenceException
+        {
+            writesByDate.merge(date, 1, Integer::sum);
+            super.addOrders(date, newOrders);
+        }
+    }
+
+    @Test
+    void validRowsAreImportedAndEveryOtherRowIsReported() throws Exception
+    {
+        CountingDao dao = newDao();
+        FlooringMasteryServiceImpl service = new FlooringMasteryServiceImpl(dao, (message, fileName) -> { });
+
+        File importFile = importFile(
+                row(FIRST_DATE, "Ada Lovelace", "TX", "Tile", "1.5E+2"),
+                row(SECOND_DATE, "Acme Inc.", "WA", "Wood", "200.125"),
+                row(FIRST_DATE, "Nobody", "ZZ", "Tile", "200"),
+                row(FIRST_DATE, "Nobody", "TX", "Tile", "lots"),
+                row(FIRST_DATE, "Nobody", "TX", "Tile", "99.99"),
+                row(FIRST_DATE, "Bob!", "TX", "Tile", "200"),
+                row(LocalDate.of(2000, 1, 1), "Nobody", "TX", "Tile", "200"),
+                FIRST_DATE.format(ROW_DATE_FORMAT) + ",Nobody,TX,Tile",
+                "",
+                row(FIRST_DATE, "Grace Hopper", "KY", "Carpet", "300"));
+
+        ImportResult result = service.importOrders(importFile);
+
+        assertEquals(10, result.getRowsRead());
+        assertEquals(3, result.getOrdersImported());
+        assertEquals(2, result.getDatesWritten());
+        List<Long> rejectedRows = new ArrayList<>();
+        for (ImportRowError error : result.getErrors())
+        {
+            rejectedRows.add(error.getRowNumber());
+        }
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), rejectedRows);
+        assertTrue(result.getErrors().get(2).getMessage().contains("between"), result.getErrors().get(2).getMessage());
+
+        List<Order> firstDateOrders = dao.getOrders(FIRST_DATE, Action.DISPLAY);
+        assertEquals(2, firstDateOrders.size());
+        assertEquals("Ada Lovelace", firstDateOrders.get(0).getCustomerName());
+        assertEquals("Grace Hopper", firstDateOrders.get(1).getCustomerName());
+
+        // The area gets the scale and rounding of the console, whatever form it was written in.
+        assertEquals(new BigDecimal("150.00"), firstDateOrders.get(0).getArea());
+        Order secondDateOrder = dao.getOrders(SECOND_DATE, Action.DISPLAY).get(0);
+        assertEquals(new BigDecimal("200.12"), secondDateOrder.getArea());
+
+        // Priced exactly like the same order typed at the console.
+        Order typed = new Order();
+        typed.setCustomerName("Ada Lovelace");
+        typed.setState("TX");
+        typed.setTaxRate(new BigDecimal("4.45"));
+        typed.setProductType("Tile");
+        typed.setArea(new BigDecimal("150.00"));
+        typed.setCostPerSquareFoot(new BigDecimal("3.50"));
+        typed.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        service.calculatePrices(typed);
+        Order imported = firstDateOrders.get(0);
+        assertEquals(typed.getMaterialCost(), imported.getMaterialCost());
+        assertEquals(typed.getLaborCost(), imported.getLaborCost());
+        assertEquals(typed.getTax(), imported.getTax());
+        assertEquals(typed.getTotal(), imported.getTotal());
+    }
+
+    @Test
+    void eachDateIsWrittenOnceWithConsecutiveNumbers() throws Exception
+    {
+        CountingDao dao = newDao();
+        FlooringMasteryServiceImpl service = new FlooringMasteryServiceImpl(dao, (message, fileName) -> { });
+
+        // Enough rows for several batches, with the dates interleaved all through the file.
+        LocalDate[] dates = { FIRST_DATE, SECOND_DATE, FIRST_DATE.plusDays(5) };
+        int rows = 5000;
+        String[] lines = new String[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            lines[i] = row(dates[i % dates.length], "Customer " + i, "TX", "Tile", "100");
+        }
+
+        ImportResult result = service.importOrders(importFile(lines));
+
+        assertEquals(rows, result.getOrdersImported());
+        assertEquals(dates.length, result.getDatesWritten());
+        assertTrue(result.getErrors().isEmpty());
+        for (int d = 0; d < dates.length; d++)
+        {
+            assertEquals(Integer.valueOf(1), dao.writesByDate.get(dates[d]), "writes of " + dates[d]);
+            List<Order> orders = dao.getOrders(dates[d], Action.DISPLAY);
+            assertEquals((rows - d + dates.length - 1) / dates.length, orders.size());
+            for (int i = 0; i < orders.size(); i++)
+            {
+                // Rows keep the order of the file within their date.
+                assertEquals(i + 1, orders.get(i).getOrderNumber());
+                assertEquals("Customer " + (i * dates.length + d), orders.get(i).getCustomerName());
+            }
+        }
+    }
+
+    @Test
+    void fileWithoutTheHeaderIsRejected() throws Exception
+    {
+        FlooringMasteryServiceImpl service = new FlooringMasteryServiceImpl(newDao(), (message, fileName) -> { });
+        File importFile = new File(testFolder, "NoHeader.csv");
+        Files.writeString(importFile.toPath(), row(FIRST_DATE, "Ada Lovelace", "TX", "Tile", "150") + "\n");
+
+        assertThrows(InvalidImportFileException.class, () -> service.importOrders(importFile));
+    }
+
+    private CountingDao newDao() throws IOException, FlooringMasteryPersistenceException
+    {
+        File dataFolder = new File(testFolder, "data");
+        dataFolder.mkdirs();
+        new File(testFolder, "orders").mkdirs();
+        Files.writeString(new File(dataFolder, "Taxes.txt").toPath(),
+                "State,StateName,TaxRate\nTX,Texas,4.45\nWA,Washington,9.25\nKY,Kentucky,6.00\n");
+        Files.writeString(new File(dataFolder, "Products.txt").toPath(),
+                "ProductType,CostPerSquareFoot,LaborCostPerSquareFoot\nCarpet,2.25,2.10\nTile,3.50,4.15\nWood,5.15,4.75\n");
+        CountingDao dao = new CountingDao(testFolder);
+        dao.loadStatesAndProductsLists();
+        return dao;
+    }
+
+    private File importFile(String... rows) throws IOException
+    {
+        File importFile = new File(testFolder, "Import.csv");
+        Files.writeString(importFile.toPath(), OrderImporter.HEADER + "\n" + String.join("\n", rows) + "\n");
+        return importFile;
+    }
+
+    private static String row(LocalDate date, String customerName, String state, String productType, String area)
+    {
+        return date.format(ROW_DATE_FORMAT) + "," + customerName + "," + state + "," + productType + "," + area;
+    }
+}